@@ -59,19 +59,60 @@ class ArrayUtils {
  
     
     /**
-     * Returns an array representing the resizing of another to the 
-     * specified dimensions.
+     * Returns a flat, row-major array representing the resizing of another
+     * to the specified dimensions.
      * @param arr the array to resize
      * @param m the rows of the resized array
      * @param n the columns of the resized array
-     * @return an array with a specified size containing the corresponding
-     * elements of another array, removing elements if necessary, and
-     * zero if the elements do not exist
+     * @return an array of length {@code m * n} with a specified size 
+     * containing the corresponding elements of another array, removing 
+     * elements if necessary, and zero if the elements do not exist
      */
-    public static double[][] resize(double[][] arr, int m, int n) {
+    public static double[] resize(double[][] arr, int m, int n) {
+        double[] tArr = new double[m * n];
+        for (int i = 0; i < Math.min(arr.length, m); i++) {
+            System.arraycopy(arr[i], 0, tArr, i * n, Math.min(arr[i].length, n));
+        }
+        return tArr;
+    }
+    
+    /**
+     * Returns a flat, row-major array representing the resizing of a
+     * region of another flat array to the specified dimensions.
+     * @param arr the flat array to resize
+     * @param offset the index of the first element of the region
+     * @param stride the distance between the starts of consecutive rows
+     * @param rows the rows of the region
+     * @param cols the columns of the region
+     * @param m the rows of the resized array
+     * @param n the columns of the resized array
+     * @return an array of length {@code m * n} containing the corresponding
+     * elements of the region, and zero if the elements do not exist
+     */
+    public static double[] resize(double[] arr, int offset, int stride,
+            int rows, int cols, int m, int n) {
+        double[] tArr = new double[m * n];
+        int len = Math.min(cols, n);
+        for (int i = 0; i < Math.min(rows, m); i++) {
+            System.arraycopy(arr, offset + i * stride, tArr, i * n, len);
+        }
+        return tArr;
+    }
+    
+    /**
+     * Returns a 2D array containing the elements of a region of a flat, 
+     * row-major array.
+     * @param arr the flat array
+     * @param offset the index of the first element of the region
+     * @param stride the distance between the starts of consecutive rows
+     * @param m the rows of the region
+     * @param n the columns of the region
+     * @return an m x n array copy of the region
+     */
+    public static double[][] unflatten(double[] arr, int offset, int stride, int m, int n) {
         double[][] tArr = new double[m][n];
-        for (int i = 0; i < arr.length; i++) {
-            System.arraycopy(arr[i], 0, tArr[i], 0, Math.min(arr[i].length, n));
+        for (int i = 0; i < m; i++) {
+            System.arraycopy(arr, offset + i * stride, tArr[i], 0, n);
         }
         return tArr;
     }
@@ -89,11 +130,41 @@ class ArrayUtils {
      * @return the index of the first instance of a longest row
      */
     public static int maxRow(Object[]... arr) {
-        int maxRowLength = arr[0].length;
+        return longestRow(arr);
+    }
+    
+    public static int maxRowLen(Object[]... arr) {
+        return arr.length == 0 ? 0 : arr[longestRow(arr)].length;
+    }
+    
+    /**
+     * Returns the first row's index having the maximum length in a 2D array.
+     *
+     * @param arr a 2D array
+     * @return the index of the first instance of a longest row
+     */
+    public static int maxRow(double[][] arr) {
+        return longestRow(arr);
+    }
+    
+    public static int maxRowLen(double[][] arr) {
+        return arr.length == 0 ? 0 : arr[longestRow(arr)].length;
+    }
+    
+    /**
+     * Returns the first index of a longest row of a 2D array of any
+     * component type, each row of which is an array.
+     *
+     * @param rows the rows of a 2D array
+     * @return the index of the first instance of a longest row
+     */
+    private static int longestRow(Object[] rows) {
+        int maxRowLength = Array.getLength(rows[0]);
         int maxRow = 0;
-        for (int i = 1; i < arr.length; i++) {
-            if (maxRowLength < arr[i].length) {
-                maxRowLength = arr[i].length;
+        for (int i = 1; i < rows.length; i++) {
+            int length = Array.getLength(rows[i]);
+            if (maxRowLength < length) {
+                maxRowLength = length;
                 maxRow = i;
             }
         }
@@ -101,10 +172,6 @@ class ArrayUtils {
         return maxRow;
     }
     
-    public static int maxRowLen(Object[]... arr) {
-        return arr[maxRow(arr)].length;
-    }
-    
     /**
      * Swaps two objects in an array.
      * @param arr the array to swap in
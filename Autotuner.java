@@ -0,0 +1,459 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Finds the kernel parameters which are fastest on this machine, and
+ * persists them in a profile which is loaded at startup.
+ *
+ * <p>
+ * The best block sizes of products, cutoff of Strassen-Winograd recursion,
+ * order of the blocks of transposition and threshold of parallel work
+ * depend on the cache sizes and core count of the machine. {@link #tune()}
+ * times the products, Strassen-Winograd products, transpositions and
+ * sums of the default backend for a few candidates of each parameter,
+ * applies the fastest, and writes them to the profile, which takes some
+ * seconds. Parameters are tuned one at a time, each with the best values
+ * of those tuned before it. The threshold is only tuned if the default
+ * parallelism has more than one thread. A parameter set by its system
+ * property is left as it is, and saved with that value.
+ *
+ * <p>
+ * The profile is a properties file, {@code .matrix/tuning.properties} in
+ * the home directory of the user unless the system property {@value
+ * #PROFILE_PROPERTY} names another, holding a set of parameters for each
+ * {@linkplain #getHostClass() host class}, so that machines of different
+ * kinds may share it. When the kernels are first used, each parameter is
+ * taken from the system property of the same name, if set, or else from the
+ * profile for the host class, or else a built-in default. The parameters
+ * are:
+ * <pre>
+ * matrix.gemm.mc              rows of a packed block of a product
+ * matrix.gemm.kc              shared dimension of a packed block
+ * matrix.gemm.nc              columns of a packed panel
+ * matrix.strassen.cutoff      order at which Strassen-Winograd stops
+ * matrix.transpose.leaf       order of the blocks transposed directly
+ * matrix.parallel.threshold   work below which operations stay serial
+ * </pre>
+ * For example, {@code java matrix.Autotuner} tunes this machine and prints
+ * the parameters found.
+ *
+ * <p>
+ * Tuning is a deployment step, taken by running this class or calling
+ * {@link #tune()} or {@link #ensureTuned()}, since it keeps the machine busy
+ * for some seconds. If the system property {@value #AUTO_PROPERTY} is
+ * {@code true}, a machine whose host class is not in the profile is
+ * instead tuned when the default backend is first looked up, which the
+ * first operation not given a backend does.
+ *
+ * @author Thurman
+ */
+public final class Autotuner {
+
+    /**
+     * The system property naming the profile file.
+     */
+    public static final String PROFILE_PROPERTY = "matrix.tuning.profile";
+
+    /**
+     * The system property which, if {@code true}, tunes this machine on first
+     * use unless it has been tuned.
+     */
+    public static final String AUTO_PROPERTY = "matrix.tuning.auto";
+
+    /**
+     * The time an operation is repeated for in each timing, in nanoseconds.
+     */
+    private static final long MIN_TIME = 5_000_000L;
+
+    /**
+     * The number of timings of which the fastest is kept.
+     */
+    private static final int RUNS = 3;
+
+    private static final int[] BLOCK_M = {32, 48, 64, 96, 128};
+    private static final int[] BLOCK_K = {128, 192, 256, 384, 512};
+    private static final int[] BLOCK_N = {256, 512, 1024, 2048, 4096};
+    private static final int[] TRANSPOSE_LEAF = {8, 16, 32, 64, 128};
+
+    /**
+     * The order of the products timed for the block sizes.
+     */
+    private static final int GEMM_ORDER = 512;
+
+    /**
+     * The order of the Strassen-Winograd products timed, each cutoff
+     * candidate being it halved some number of times.
+     */
+    private static final int STRASSEN_ORDER = 768;
+
+    /**
+     * The order of the matrices timed for the transposition blocks.
+     */
+    private static final int TRANSPOSE_ORDER = 2048;
+
+    /**
+     * The base two logarithms of the least and greatest numbers of entries
+     * of the sums timed for the parallel threshold.
+     */
+    private static final int MIN_WORK = 10, MAX_WORK = 22;
+
+    /**
+     * The parameters of the profile for the host class of this machine.
+     */
+    private static volatile Properties profile = load();
+
+    /**
+     * Whether {@link #autoTune()} has run.
+     */
+    private static boolean autoTuned;
+
+    private Autotuner() {
+    }
+
+    /**
+     * Returns the file the profile is read from and written to.
+     *
+     * @return the path of the profile
+     */
+    public static Path getProfile() {
+        String name = System.getProperty(PROFILE_PROPERTY);
+        return name != null ? Paths.get(name)
+                : Paths.get(System.getProperty("user.home"), ".matrix", "tuning.properties");
+    }
+
+    /**
+     * Returns the name of the class of machines this machine belongs to,
+     * which share a profile: the architecture and the number of processors
+     * available to the virtual machine, such as {@code amd64-8cpu}.
+     *
+     * @return the host class of this machine
+     */
+    public static String getHostClass() {
+        return System.getProperty("os.arch") + "-"
+                + Runtime.getRuntime().availableProcessors() + "cpu";
+    }
+
+    /**
+     * Checks if the profile holds parameters for the host class of this
+     * machine.
+     *
+     * @return {@code true} if this machine has been tuned
+     */
+    public static boolean isTuned() {
+        return !profile.isEmpty();
+    }
+
+    /**
+     * Tunes this machine unless the profile already holds parameters for
+     * its host class.
+     *
+     * @throws java.io.IOException if the profile cannot be written
+     */
+    public static void ensureTuned() throws IOException {
+        if (!isTuned()) {
+            tune();
+        }
+    }
+
+    /**
+     * Tunes this machine unless it has been tuned, if the system property
+     * {@value #AUTO_PROPERTY} is {@code true}, the first time this is called.
+     * A profile which cannot be written is ignored, as the parameters found
+     * are applied all the same.
+     */
+    static synchronized void autoTune() {
+        if (autoTuned) {
+            return;
+        }
+        autoTuned = true;
+        if (Boolean.getBoolean(AUTO_PROPERTY)) {
+            try {
+                ensureTuned();
+            } catch (IOException e) {
+                // tuned for this run only
+            }
+        }
+    }
+
+    /**
+     * Times candidates for each kernel parameter, applies the fastest, and
+     * saves them in the profile for the host class of this machine,
+     * replacing any saved before. A parameter whose system property is set
+     * is not timed or changed, and its value is saved as it is.
+     *
+     * @return the parameters found, by the names of their system properties
+     * @throws java.io.IOException if the profile cannot be written
+     */
+    public static synchronized Properties tune() throws IOException {
+        Properties found = new Properties();
+        Parallelism serial = Parallelism.SERIAL.withBackend(DefaultBackend.INSTANCE);
+        MatrixRandom random = new MatrixRandom(0);
+
+        // block sizes, one at a time, starting from the current ones
+        Matrix A = random.uniform(GEMM_ORDER, GEMM_ORDER);
+        Matrix B = random.uniform(GEMM_ORDER, GEMM_ORDER);
+        Matrix C = new Matrix(GEMM_ORDER, GEMM_ORDER);
+        Runnable product = () -> Matrix.gemm(1.0, A, B, 0.0, C, serial);
+        int mc = MultiplicationUtils.blockM;
+        int kc = MultiplicationUtils.blockK;
+        int nc = MultiplicationUtils.blockN;
+        int mc0 = mc;
+        int nc0 = nc;
+        kc = fastest("matrix.gemm.kc", BLOCK_K, kc, product,
+                x -> MultiplicationUtils.setBlockSizes(mc0, x, nc0));
+        int kc1 = kc;
+        mc = fastest("matrix.gemm.mc", BLOCK_M, mc, product,
+                x -> MultiplicationUtils.setBlockSizes(x, kc1, nc0));
+        int mc1 = mc;
+        nc = fastest("matrix.gemm.nc", BLOCK_N, nc, product,
+                x -> MultiplicationUtils.setBlockSizes(mc1, kc1, x));
+        found.setProperty("matrix.gemm.mc", Integer.toString(mc));
+        found.setProperty("matrix.gemm.kc", Integer.toString(kc));
+        found.setProperty("matrix.gemm.nc", Integer.toString(nc));
+
+        // Strassen-Winograd cutoff, where the order itself means no recursion
+        SquareMatrix S = new SquareMatrix(random.uniform(STRASSEN_ORDER, STRASSEN_ORDER));
+        int[] cutoffs = new int[4];
+        for (int i = 0; i < cutoffs.length; i++) {
+            cutoffs[i] = STRASSEN_ORDER >> i;
+        }
+        int cutoff = fastest("matrix.strassen.cutoff", cutoffs, MultiplicationUtils.strassenCutoff,
+                () -> S.strassenTimes(S, serial), MultiplicationUtils::setStrassenCutoff);
+        found.setProperty("matrix.strassen.cutoff", Integer.toString(cutoff));
+
+        // transposition blocks
+        Matrix T = random.uniform(TRANSPOSE_ORDER, TRANSPOSE_ORDER);
+        Matrix U = new Matrix(TRANSPOSE_ORDER, TRANSPOSE_ORDER);
+        int leaf = fastest("matrix.transpose.leaf", TRANSPOSE_LEAF, TransposeUtils.leaf,
+                () -> T.transposeInto(U, serial), TransposeUtils::setLeaf);
+        found.setProperty("matrix.transpose.leaf", Integer.toString(leaf));
+
+        // parallel threshold, the least work from which splitting is faster
+        Parallelism p = Parallelism.getDefault();
+        if (System.getProperty("matrix.parallel.threshold") != null) {
+            found.setProperty("matrix.parallel.threshold", Long.toString(
+                    getLong("matrix.parallel.threshold", Parallelism.DEFAULT_THRESHOLD)));
+        } else if (p.getLevel() > 1) {
+            long threshold = threshold(p, serial);
+            if (threshold > 0) {
+                found.setProperty("matrix.parallel.threshold", Long.toString(threshold));
+                Parallelism tuned = new Parallelism(p.pool, threshold);
+                Parallelism.setDefault(p.backend == null ? tuned : tuned.withBackend(p.backend));
+            }
+        }
+        save(found);
+        profile = found;
+        return found;
+    }
+
+    /**
+     * A setter of a kernel parameter.
+     */
+    private interface Parameter {
+
+        void set(int value);
+    }
+
+    /**
+     * Sets a parameter to each candidate in turn, times an operation with
+     * it, and leaves it set to the fastest, which is returned. The current
+     * value is returned if no candidate is faster, or untimed if the system
+     * property of the parameter is set.
+     */
+    private static int fastest(String name, int[] candidates, int current,
+            Runnable op, Parameter parameter) {
+        if (System.getProperty(name) != null) {
+            return current;
+        }
+        parameter.set(current);
+        int best = current;
+        double bestTime = nanosPerOp(op);
+        for (int candidate : candidates) {
+            if (candidate == current) {
+                continue;
+            }
+            parameter.set(candidate);
+            double time = nanosPerOp(op);
+            if (time < bestTime) {
+                best = candidate;
+                bestTime = time;
+            }
+        }
+        parameter.set(best);
+        return best;
+    }
+
+    /**
+     * Returns the least number of entries, a power of two, from which
+     * parallel sums of matrices of that many entries and of all larger sizes
+     * timed are faster than serial ones, or zero if the largest is not.
+     */
+    private static long threshold(Parallelism p, Parallelism serial) {
+        Parallelism parallel = new Parallelism(p.pool, 0).withBackend(DefaultBackend.INSTANCE);
+        long threshold = 0;
+        MatrixRandom random = new MatrixRandom(0);
+        for (int log = MAX_WORK; log >= MIN_WORK; log--) {
+            Matrix A = random.uniform(1 << (log - 6), 1 << 6);
+            Matrix C = new Matrix(A.getRows(), A.getCols());
+            double serialTime = nanosPerOp(() -> A.plusInto(A, C, serial));
+            double parallelTime = nanosPerOp(() -> A.plusInto(A, C, parallel));
+            if (parallelTime >= serialTime) {
+                break;
+            }
+            threshold = 1L << log;
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the least time an operation takes, repeating it enough times
+     * for each timing to be reliable.
+     */
+    private static double nanosPerOp(Runnable op) {
+        int reps = 1;
+        while (elapsed(op, reps) < MIN_TIME && reps < 1 << 20) {
+            reps *= 2;
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            best = Math.min(best, elapsed(op, reps));
+        }
+        return (double) best / reps;
+    }
+
+    private static long elapsed(Runnable op, int reps) {
+        long start = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            op.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the value of an integer parameter: the system property of its
+     * name if set, or else the profile entry, or else the default. Values
+     * which are not positive integers are ignored.
+     *
+     * @param name the name of the parameter
+     * @param def the default value
+     * @return the value of the parameter
+     */
+    static int getInt(String name, int def) {
+        long value = getLong(name, def);
+        return value > 0 && value <= Integer.MAX_VALUE ? (int) value : def;
+    }
+
+    /**
+     * Returns the value of a long parameter: the system property of its name
+     * if set, or else the profile entry, or else the default. Values which
+     * are not integers at least zero are ignored.
+     *
+     * @param name the name of the parameter
+     * @param def the default value
+     * @return the value of the parameter
+     */
+    static long getLong(String name, long def) {
+        for (String value : new String[] {System.getProperty(name), profile.getProperty(name)}) {
+            if (value == null) {
+                continue;
+            }
+            try {
+                long parsed = Long.parseLong(value.trim());
+                if (parsed >= 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the next source
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Reads the parameters of the host class of this machine from the
+     * profile. A profile which is missing or cannot be read gives none, so
+     * that the defaults apply.
+     */
+    private static Properties load() {
+        Properties parameters = new Properties();
+        Properties all = readProfile();
+        String prefix = getHostClass() + ".";
+        for (String key : all.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                parameters.setProperty(key.substring(prefix.length()), all.getProperty(key));
+            }
+        }
+        return parameters;
+    }
+
+    private static Properties readProfile() {
+        Properties all = new Properties();
+        Path path = getProfile();
+        if (Files.isReadable(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                all.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                all.clear();
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Replaces the parameters of the host class of this machine in the
+     * profile, keeping those of other host classes. The profile is written
+     * to a temporary file first, so that a reader never sees it incomplete.
+     */
+    private static void save(Properties parameters) throws IOException {
+        Properties all = readProfile();
+        String prefix = getHostClass() + ".";
+        for (String key : all.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                all.remove(key);
+            }
+        }
+        for (String key : parameters.stringPropertyNames()) {
+            all.setProperty(prefix + key, parameters.getProperty(key));
+        }
+        Path path = getProfile().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), "tuning", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                all.store(out, "Kernel parameters of the matrix package, by host class");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Tunes this machine and prints the parameters found.
+     *
+     * @param args unused
+     * @throws java.io.IOException if the profile cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Properties found = tune();
+        System.out.println(getHostClass() + " -> " + getProfile());
+        for (String key : new TreeSet<>(found.stringPropertyNames())) {
+            System.out.println(key + "=" + found.getProperty(key));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * The Cholesky decomposition of a symmetric positive-definite matrix.
+ *
+ * <p>
+ * The decomposition is A = LL^T, where L is lower triangular with a positive
+ * diagonal. It takes half the work of an {@link LUDecomposition} and needs
+ * no pivoting. If the matrix is not symmetric positive-definite, the
+ * decomposition is left incomplete and {@link isSPD()} is {@code false}.
+ *
+ * @author Thurman
+ */
+public class CholeskyDecomposition implements Factorization {
+
+    /**
+     * The flat, row-major array holding L on and below the diagonal.
+     */
+    final double[] l;
+
+    /**
+     * The order of the decomposed matrix.
+     */
+    final int n;
+
+    /**
+     * Whether the decomposed matrix is symmetric positive-definite.
+     */
+    final boolean spd;
+
+    /**
+     * Decomposes the specified square matrix.
+     *
+     * @param M a square matrix
+     * @throws java.lang.IllegalArgumentException if the matrix is not square
+     */
+    public CholeskyDecomposition(Matrix M) {
+        if (!M.isSquare()) {
+            throw new IllegalArgumentException("Matrix must be square");
+        }
+        this.n = M.getRows();
+        this.l = new double[n * n];
+        Parallelism p = Parallelism.getDefault();
+        this.spd = M.isSymmetric()
+                && p.getBackend().cholesky(p, n, M.data, M.offset, M.stride, l);
+    }
+
+    /**
+     * Decomposes the lower triangle of a flat n x n matrix into a lower
+     * triangular factor.
+     *
+     * @param n the order of the matrix
+     * @param a the array storing the matrix
+     * @param aOff the index of the first entry of the matrix
+     * @param lda the row stride of the matrix
+     * @param l the zeroed, contiguous array to store the factor in
+     * @return {@code true} if the matrix is positive-definite
+     */
+    static boolean decompose(int n, double[] a, int aOff, int lda, double[] l) {
+        for (int j = 0; j < n; j++) {
+            int rj = j * n;
+            double d = a[aOff + j * lda + j] - KernelUtils.dot(l, rj, l, rj, j);
+            if (!(d > 0.0)) {
+                return false;
+            }
+            double ljj = Math.sqrt(d);
+            l[rj + j] = ljj;
+            for (int i = j + 1; i < n; i++) {
+                int ri = i * n;
+                l[ri + j] = (a[aOff + i * lda + j] - KernelUtils.dot(l, ri, l, rj, j)) / ljj;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the decomposed matrix is symmetric positive-definite, in
+     * which case the decomposition is complete.
+     *
+     * @return {@code true} if the decomposition succeeded
+     */
+    public boolean isSPD() {
+        return spd;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns the lower triangular factor L.
+     *
+     * @return the lower triangular factor
+     */
+    public Matrix getL() {
+        return new Matrix(l.clone(), 0, n, new Order(n, n));
+    }
+
+    @Override
+    public double determinant() {
+        double det = 1.0;
+        for (int i = 0; i < n; i++) {
+            det *= l[i * n + i];
+        }
+        return spd ? det * det : Double.NaN;
+    }
+
+    /**
+     * Returns the natural logarithm of the determinant, which does not
+     * overflow for large matrices.
+     *
+     * @return the logarithm of the determinant
+     */
+    public double logDeterminant() {
+        requireSPD();
+        double log = 0.0;
+        for (int i = 0; i < n; i++) {
+            log += Math.log(l[i * n + i]);
+        }
+        return 2 * log;
+    }
+
+    @Override
+    public Matrix solve(Matrix B) {
+        if (B.getRows() != n) {
+            throw new IllegalArgumentException("Row count of argument not equal to the order of the matrix");
+        }
+        requireSPD();
+        int k = B.getCols();
+        double[] x = ArrayUtils.resize(B.data, B.offset, B.stride, n, k, n, k);
+        substitute(x, k, Parallelism.getDefault());
+        return new Matrix(x, 0, k, new Order(n, k));
+    }
+
+    @Override
+    public Vector solve(Vector b) {
+        if (b.length() != n) {
+            throw new IllegalArgumentException("Dimension of argument not equal to the order of the matrix");
+        }
+        requireSPD();
+        double[] x = Arrays.copyOfRange(b.data, b.offset, b.offset + n);
+        substitute(x, 1, Parallelism.SERIAL);
+        return new Vector(x, 0, n);
+    }
+
+    @Override
+    public SquareMatrix inverse() {
+        requireSPD();
+        double[] x = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            x[i * n + i] = 1.0;
+        }
+        substitute(x, n, Parallelism.getDefault());
+        return new SquareMatrix(x, n);
+    }
+
+    /**
+     * Overwrites a flat n x k array B with the solution of LL^T X = B.
+     */
+    private void substitute(double[] x, int k, Parallelism p) {
+        ParallelUtils.forRange(p, k, (long) n * n, 1, (c0, c1) -> {
+            int w = c1 - c0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    KernelUtils.axpy(-l[i * n + j], x, j * k + c0, x, i * k + c0, w);
+                }
+                KernelUtils.scale(1.0 / l[i * n + i], x, i * k + c0, x, i * k + c0, w);
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                KernelUtils.scale(1.0 / l[i * n + i], x, i * k + c0, x, i * k + c0, w);
+                for (int j = 0; j < i; j++) {
+                    KernelUtils.axpy(-l[i * n + j], x, i * k + c0, x, j * k + c0, w);
+                }
+            }
+        });
+    }
+
+    private void requireSPD() {
+        if (!spd) {
+            throw new ArithmeticException("Matrix is not symmetric positive-definite");
+        }
+    }
+}
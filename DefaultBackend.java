@@ -0,0 +1,225 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * The backend named {@code default}, computing with the blocked kernels of
+ * the matrix package and splitting large operations across the pool of the
+ * parallelism given.
+ *
+ * @author Thurman
+ */
+final class DefaultBackend extends MatrixBackend {
+
+    /**
+     * The instance of this backend.
+     */
+    static final DefaultBackend INSTANCE = new DefaultBackend();
+
+    private DefaultBackend() {
+    }
+
+    @Override
+    public String getName() {
+        return "default";
+    }
+
+    @Override
+    public void gemm(Parallelism p, double alpha, int m, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double beta, double[] c, int cOff, int ldc) {
+        if (beta != 1.0) {
+            for (int r = 0; r < m; r++) {
+                int i = cOff + r * ldc;
+                if (beta == 0.0) {
+                    Arrays.fill(c, i, i + n, 0.0);
+                } else {
+                    KernelUtils.scale(beta, c, i, c, i, n);
+                }
+            }
+        }
+        MultiplicationUtils.gemm(p, alpha, m, n, k,
+                a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+    }
+
+    @Override
+    public void gemv(Parallelism p, boolean transpose, double alpha, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff) {
+        boolean parallel = p.isParallel((long) m * n);
+        if (!transpose) {
+            if (parallel) {
+                ParallelUtils.forRange(p, m, n, 1, (r0, r1) -> gemvRows(alpha, r0, r1, n,
+                        a, aOff, lda, x, xOff, beta, y, yOff));
+            } else {
+                gemvRows(alpha, 0, m, n, a, aOff, lda, x, xOff, beta, y, yOff);
+            }
+        } else if (parallel) {
+            ParallelUtils.forRange(p, n, m, 16, (c0, c1) -> gemvColumns(alpha, m, c0, c1,
+                    a, aOff, lda, x, xOff, beta, y, yOff));
+        } else {
+            gemvColumns(alpha, m, 0, n, a, aOff, lda, x, xOff, beta, y, yOff);
+        }
+    }
+
+    /**
+     * Stores elements {@code [r0, r1)} of alpha * A * x + beta * y in y, each
+     * as the dot product of a row of A and x.
+     */
+    private static void gemvRows(double alpha, int r0, int r1, int n,
+            double[] a, int aOff, int lda,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff) {
+        for (int r = r0; r < r1; r++) {
+            double s = alpha * KernelUtils.dot(a, aOff + r * lda, x, xOff, n);
+            y[yOff + r] = beta == 0.0 ? s : s + beta * y[yOff + r];
+        }
+    }
+
+    /**
+     * Stores elements {@code [c0, c1)} of alpha * A^T * x + beta * y in y, by
+     * adding multiples of the same columns of each row of A.
+     */
+    private static void gemvColumns(double alpha, int m, int c0, int c1,
+            double[] a, int aOff, int lda,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff) {
+        int len = c1 - c0;
+        if (beta == 0.0) {
+            Arrays.fill(y, yOff + c0, yOff + c1, 0.0);
+        } else if (beta != 1.0) {
+            KernelUtils.scale(beta, y, yOff + c0, y, yOff + c0, len);
+        }
+        for (int r = 0; r < m; r++) {
+            KernelUtils.axpy(alpha * x[xOff + r], a, aOff + r * lda + c0, y, yOff + c0, len);
+        }
+    }
+
+    @Override
+    public void add(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        if (p.isParallel((long) m * n)) {
+            ParallelUtils.forRange(p, m, n, 1, (r0, r1) -> combineRows(1.0, r0, r1, n,
+                    a, aOff, lda, b, bOff, ldb, c, cOff, ldc));
+        } else {
+            combineRows(1.0, 0, m, n, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        }
+    }
+
+    @Override
+    public void subtract(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        if (p.isParallel((long) m * n)) {
+            ParallelUtils.forRange(p, m, n, 1, (r0, r1) -> combineRows(-1.0, r0, r1, n,
+                    a, aOff, lda, b, bOff, ldb, c, cOff, ldc));
+        } else {
+            combineRows(-1.0, 0, m, n, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        }
+    }
+
+    /**
+     * Stores rows {@code [r0, r1)} of the sum or difference of two matrices
+     * in a third, as a single run if all three are contiguous.
+     */
+    private static void combineRows(double sign, int r0, int r1, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        boolean runs = lda == n && ldb == n && ldc == n;
+        int rows = runs ? Math.min(1, r1 - r0) : r1 - r0;
+        int len = runs ? (r1 - r0) * n : n;
+        for (int r = r0; r < r0 + rows; r++) {
+            if (sign > 0) {
+                KernelUtils.add(a, aOff + r * lda, b, bOff + r * ldb, c, cOff + r * ldc, len);
+            } else {
+                KernelUtils.subtract(a, aOff + r * lda, b, bOff + r * ldb, c, cOff + r * ldc, len);
+            }
+        }
+    }
+
+    @Override
+    public void scale(Parallelism p, int m, int n, double alpha,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc) {
+        if (p.isParallel((long) m * n)) {
+            ParallelUtils.forRange(p, m, n, 1, (r0, r1) -> scaleRows(alpha, r0, r1, n,
+                    a, aOff, lda, c, cOff, ldc));
+        } else {
+            scaleRows(alpha, 0, m, n, a, aOff, lda, c, cOff, ldc);
+        }
+    }
+
+    /**
+     * Stores rows {@code [r0, r1)} of a matrix times a scalar in another, as
+     * a single run if both are contiguous.
+     */
+    private static void scaleRows(double alpha, int r0, int r1, int n,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc) {
+        boolean runs = lda == n && ldc == n;
+        int rows = runs ? Math.min(1, r1 - r0) : r1 - r0;
+        int len = runs ? (r1 - r0) * n : n;
+        for (int r = r0; r < r0 + rows; r++) {
+            KernelUtils.scale(alpha, a, aOff + r * lda, c, cOff + r * ldc, len);
+        }
+    }
+
+    @Override
+    public void axpby(double alpha, double[] x, int xOff, double beta,
+            double[] y, int yOff, int len) {
+        if (beta == 1.0) {
+            KernelUtils.axpy(alpha, x, xOff, y, yOff, len);
+        } else {
+            KernelUtils.axpby(alpha, x, xOff, beta, y, yOff, len);
+        }
+    }
+
+    @Override
+    public double dot(double[] x, int xOff, double[] y, int yOff, int len) {
+        return KernelUtils.dot(x, xOff, y, yOff, len);
+    }
+
+    @Override
+    public double asum(double[] x, int xOff, int len) {
+        return KernelUtils.asum(x, xOff, len);
+    }
+
+    @Override
+    public double nrm2(double[] x, int xOff, int len) {
+        return KernelUtils.nrm2(x, xOff, len);
+    }
+
+    @Override
+    public int iamax(double[] x, int xOff, int len) {
+        return KernelUtils.iamax(x, xOff, len);
+    }
+
+    @Override
+    public void transpose(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc) {
+        TransposeUtils.transpose(p, m, n, a, aOff, lda, c, cOff, ldc);
+    }
+
+    @Override
+    public int lu(Parallelism p, int n, double[] a, int[] piv) {
+        return LUDecomposition.decompose(a, n, piv, p);
+    }
+
+    @Override
+    public boolean cholesky(Parallelism p, int n,
+            double[] a, int aOff, int lda, double[] l) {
+        return CholeskyDecomposition.decompose(n, a, aOff, lda, l);
+    }
+}
@@ -6,8 +6,8 @@
 package matrix;
 
 /**
- * Provides methods for calculating determinants, as required by other 
- * classes in the matrix package.
+ * Provides methods for calculating determinants and reducing rows, as 
+ * required by other classes in the matrix package.
  * @author Guest
  */
 class DeterminantUtils {
@@ -20,26 +20,220 @@ class DeterminantUtils {
     }
     
     public static double determinantRecursive(Matrix m, int N) {
-        if (N == 1) {
-            return m.getEntry(1, 1);
-        }
-        
-        else {
-            Matrix minor;
-            double det = 0;
-            for (int i = 1 ; i <= m.getRows() ; i++) {
-                minor = m.minorMatrix(1, i);
-                det += m.getEntry(1, i) * negOnePow(1 + i) * determinantRecursive(minor, minor.getRows());
-            }
-            return det;
-        }
+        return m.view().subView(1, N, 1, N).determinantRecursive();
     }
 
     public static double negOnePow(int exp) {
-        return  ((1 & exp) << 1) - 1;
+        return 1 - ((1 & exp) << 1);
     }
     
+    /**
+     * Returns the determinant of a square matrix, computed by Gaussian
+     * elimination with partial pivoting in O(n^3) time.
+     * @param M a square matrix
+     * @return the determinant of the matrix
+     */
     public static double determinantRowReduction(Matrix M) {
-        return Double.NaN;
+        return new LUDecomposition(M).determinant();
+    }
+
+    /**
+     * Reduces a flat, row-major array to row echelon form in place, using
+     * Gaussian elimination with partial pivoting.
+     *
+     * <p>
+     * Pivots whose magnitude does not exceed a tolerance relative to the
+     * largest entry are treated as zero, and the entries below them are
+     * cleared. As partial pivoting does not reveal rank, the count returned
+     * may exceed the numerical rank, which {@link #rank(double[], int, int)}
+     * computes.
+     * @param a the flat array to reduce
+     * @param m the rows of the array
+     * @param n the columns of the array
+     * @return the number of nonzero rows of the row echelon form
+     */
+    public static int rowReduce(double[] a, int m, int n) {
+        double max = 0.0;
+        for (int i = 0; i < m * n; i++) {
+            max = Math.max(max, Math.abs(a[i]));
+        }
+        double tol = Math.max(m, n) * Math.ulp(max);
+
+        int r = 0;
+        for (int c = 0; c < n && r < m; c++) {
+            int pivot = r;
+            double big = Math.abs(a[r * n + c]);
+            for (int i = r + 1; i < m; i++) {
+                double v = Math.abs(a[i * n + c]);
+                if (v > big) {
+                    big = v;
+                    pivot = i;
+                }
+            }
+            if (big <= tol) {
+                for (int i = r; i < m; i++) {
+                    a[i * n + c] = 0.0;
+                }
+                continue;
+            }
+            swapRows(a, n, pivot, r);
+            double arc = a[r * n + c];
+            for (int i = r + 1; i < m; i++) {
+                double f = a[i * n + c] / arc;
+                a[i * n + c] = 0.0;
+                KernelUtils.axpy(-f, a, r * n + c + 1, a, i * n + c + 1, n - c - 1);
+            }
+            r++;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the numerical rank of a flat, row-major array, reducing it in
+     * place by Gaussian elimination with complete pivoting.
+     *
+     * <p>
+     * Each pivot is the largest remaining entry, and elimination stops once
+     * it does not exceed max(m, n) * eps * ||A||_1, which bounds the rounding
+     * left in the remaining entries, so that they are taken to be zero.
+     * @param a the flat array to reduce
+     * @param m the rows of the array
+     * @param n the columns of the array
+     * @return the rank of the array
+     */
+    static int rank(double[] a, int m, int n) {
+        double norm = 0.0;
+        for (int c = 0; c < n; c++) {
+            double sum = 0.0;
+            for (int i = c; i < m * n; i += n) {
+                sum += Math.abs(a[i]);
+            }
+            norm = Math.max(norm, sum);
+        }
+        double tol = Math.max(m, n) * Math.ulp(1.0) * norm;
+
+        int k = 0;
+        for (; k < Math.min(m, n); k++) {
+            int at = largestRemaining(a, m, n, k);
+            if (!(Math.abs(a[at]) > tol)) {
+                break;
+            }
+            swapRows(a, n, at / n, k);
+            swapCols(a, n, at % n, k);
+            double akk = a[k * n + k];
+            for (int i = k + 1; i < m; i++) {
+                double l = a[i * n + k] / akk;
+                a[i * n + k] = 0.0;
+                KernelUtils.axpy(-l, a, k * n + k + 1, a, i * n + k + 1, n - k - 1);
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Returns the index of the first entry of largest magnitude among the
+     * rows and columns from k on of a flat, row-major array.
+     * @param a the flat array
+     * @param m the rows of the array
+     * @param n the columns of the array
+     * @param k the first row and column to search
+     * @return the index in the array of a largest remaining entry
+     */
+    private static int largestRemaining(double[] a, int m, int n, int k) {
+        int at = k * n + k;
+        double max = 0.0;
+        for (int i = k; i < m; i++) {
+            for (int j = k; j < n; j++) {
+                double v = Math.abs(a[i * n + j]);
+                if (v > max) {
+                    max = v;
+                    at = i * n + j;
+                }
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Decomposes a flat n x n array in place as PAQ = LU, using Gaussian
+     * elimination with complete pivoting.
+     *
+     * <p>
+     * Each pivot is the largest remaining entry, so the magnitudes of the
+     * pivots do not increase and any that vanish come last.
+     * @param a the flat array, overwritten with L below the diagonal and U
+     * on and above it
+     * @param n the order of the array
+     * @param p the array to store the original row of each row in
+     * @param q the array to store the original column of each column in
+     * @return the product of the signs of the row and column permutations
+     */
+    static int decomposeComplete(double[] a, int n, int[] p, int[] q) {
+        int sign = 1;
+        for (int i = 0; i < n; i++) {
+            p[i] = i;
+            q[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            int at = largestRemaining(a, n, n, k);
+            if (a[at] == 0.0) {
+                break;
+            }
+            int pr = at / n;
+            int pc = at % n;
+            if (pr != k) {
+                swapRows(a, n, pr, k);
+                int t = p[pr];
+                p[pr] = p[k];
+                p[k] = t;
+                sign = -sign;
+            }
+            if (pc != k) {
+                swapCols(a, n, pc, k);
+                int t = q[pc];
+                q[pc] = q[k];
+                q[k] = t;
+                sign = -sign;
+            }
+            double akk = a[k * n + k];
+            for (int i = k + 1; i < n; i++) {
+                double l = a[i * n + k] /= akk;
+                KernelUtils.axpy(-l, a, k * n + k + 1, a, i * n + k + 1, n - k - 1);
+            }
+        }
+        return sign;
+    }
+
+    /**
+     * Swaps two columns of a flat, row-major array.
+     * @param a the flat array
+     * @param n the columns (and rows) of the array
+     * @param i a column to swap
+     * @param j a column to swap
+     */
+    static void swapCols(double[] a, int n, int i, int j) {
+        for (int r = 0; r < a.length; r += n) {
+            double t = a[r + i];
+            a[r + i] = a[r + j];
+            a[r + j] = t;
+        }
+    }
+
+    /**
+     * Swaps two rows of a flat, row-major array.
+     * @param a the flat array
+     * @param n the columns of the array
+     * @param i a row to swap
+     * @param j a row to swap
+     */
+    static void swapRows(double[] a, int n, int i, int j) {
+        if (i == j) {
+            return;
+        }
+        for (int c = 0, p = i * n, q = j * n; c < n; c++, p++, q++) {
+            double t = a[p];
+            a[p] = a[q];
+            a[q] = t;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A factorization of a square matrix which can be reused to solve linear
+ * systems with that matrix.
+ *
+ * <p>
+ * Factoring costs O(n^3) once; each solve against the factors afterwards
+ * costs O(n^2) per right-hand side.
+ *
+ * @author Thurman
+ */
+public interface Factorization {
+
+    /**
+     * Returns the order of the factored matrix.
+     *
+     * @return the number of rows (and columns) of the factored matrix
+     */
+    int size();
+
+    /**
+     * Returns the solution X of AX = B, where A is the factored matrix.
+     *
+     * @param B a matrix whose columns are the right-hand sides
+     * @return the matrix whose columns are the solutions
+     */
+    Matrix solve(Matrix B);
+
+    /**
+     * Returns the solution x of Ax = b, where A is the factored matrix.
+     *
+     * @param b the right-hand side
+     * @return the solution
+     */
+    Vector solve(Vector b);
+
+    /**
+     * Returns the inverse of the factored matrix.
+     *
+     * @return the inverse of the factored matrix
+     */
+    SquareMatrix inverse();
+
+    /**
+     * Returns the determinant of the factored matrix.
+     *
+     * @return the determinant of the factored matrix
+     */
+    double determinant();
+}
@@ -0,0 +1,226 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * Provides the element-wise and reduction kernels over flat arrays used by
+ * other classes in the matrix package.
+ *
+ * <p>
+ * Each element-wise kernel is a single counted loop reading and writing the
+ * same position of its operands, which is the form the JIT compiles to wide
+ * SIMD loads, arithmetic and stores. Reductions keep several independent
+ * partial sums so that consecutive additions do not wait on each other.
+ *
+ * @author Thurman
+ */
+class KernelUtils {
+
+    private KernelUtils() {
+    }
+
+    /**
+     * Stores the sums of corresponding elements of two arrays in a third.
+     *
+     * @param a the first addend array
+     * @param aOff the index of the first element of a
+     * @param b the second addend array
+     * @param bOff the index of the first element of b
+     * @param c the array to store the sums in
+     * @param cOff the index of the first element of c
+     * @param len the number of elements
+     */
+    static void add(double[] a, int aOff, double[] b, int bOff,
+            double[] c, int cOff, int len) {
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    /**
+     * Stores the differences of corresponding elements of two arrays in a
+     * third.
+     *
+     * @param a the minuend array
+     * @param aOff the index of the first element of a
+     * @param b the subtrahend array
+     * @param bOff the index of the first element of b
+     * @param c the array to store the differences in
+     * @param cOff the index of the first element of c
+     * @param len the number of elements
+     */
+    static void subtract(double[] a, int aOff, double[] b, int bOff,
+            double[] c, int cOff, int len) {
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = a[aOff + i] - b[bOff + i];
+        }
+    }
+
+    /**
+     * Stores the products of a scalar and the elements of an array in
+     * another.
+     *
+     * @param k a scalar
+     * @param a the array to scale
+     * @param aOff the index of the first element of a
+     * @param c the array to store the products in
+     * @param cOff the index of the first element of c
+     * @param len the number of elements
+     */
+    static void scale(double k, double[] a, int aOff,
+            double[] c, int cOff, int len) {
+        for (int i = 0; i < len; i++) {
+            c[cOff + i] = k * a[aOff + i];
+        }
+    }
+
+    /**
+     * Adds the products of a scalar and the elements of an array to the
+     * corresponding elements of another, that is {@code y += alpha * x}.
+     *
+     * @param alpha a scalar
+     * @param x the array to scale
+     * @param xOff the index of the first element of x
+     * @param y the array to add to
+     * @param yOff the index of the first element of y
+     * @param len the number of elements
+     */
+    static void axpy(double alpha, double[] x, int xOff,
+            double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    /**
+     * Stores the sums of multiples of the elements of two arrays in the
+     * second, that is {@code y = alpha * x + beta * y}.
+     *
+     * @param alpha the scalar multiplying x
+     * @param x the first array
+     * @param xOff the index of the first element of x
+     * @param beta the scalar multiplying y
+     * @param y the array to scale and add to
+     * @param yOff the index of the first element of y
+     * @param len the number of elements
+     */
+    static void axpby(double alpha, double[] x, int xOff, double beta,
+            double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) {
+            y[yOff + i] = alpha * x[xOff + i] + beta * y[yOff + i];
+        }
+    }
+
+    /**
+     * Returns the sum of the products of corresponding elements of two
+     * arrays.
+     *
+     * @param x the first array
+     * @param xOff the index of the first element of x
+     * @param y the second array
+     * @param yOff the index of the first element of y
+     * @param len the number of elements
+     * @return the dot product of the regions of the arrays
+     */
+    static double dot(double[] x, int xOff, double[] y, int yOff, int len) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i <= len - 4; i += 4) {
+            s0 += x[xOff + i] * y[yOff + i];
+            s1 += x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Returns the sum of the magnitudes of the elements of an array.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the sum of the magnitudes
+     */
+    static double asum(double[] x, int xOff, int len) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i <= len - 4; i += 4) {
+            s0 += Math.abs(x[xOff + i]);
+            s1 += Math.abs(x[xOff + i + 1]);
+            s2 += Math.abs(x[xOff + i + 2]);
+            s3 += Math.abs(x[xOff + i + 3]);
+        }
+        for (; i < len; i++) {
+            s0 += Math.abs(x[xOff + i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Returns the Euclidean norm of the elements of an array. The squares
+     * are summed directly, and only if the sum overflows or may have lost
+     * precision to underflow are they summed again, scaled by the largest
+     * magnitude.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the square root of the sum of the squares
+     */
+    static double nrm2(double[] x, int xOff, int len) {
+        double sum = dot(x, xOff, x, xOff, len);
+        if (sum >= Double.MIN_NORMAL / Math.ulp(1.0) && sum < Double.POSITIVE_INFINITY) {
+            return Math.sqrt(sum);
+        }
+        if (Double.isNaN(sum)) {
+            return sum;
+        }
+        int i = iamax(x, xOff, len);
+        double max = i < 0 ? 0.0 : Math.abs(x[xOff + i]);
+        if (max == 0.0 || Double.isInfinite(max)) {
+            return max;
+        }
+        double s0 = 0.0, s1 = 0.0;
+        int j = 0;
+        for (; j <= len - 2; j += 2) {
+            double a = x[xOff + j] / max;
+            double b = x[xOff + j + 1] / max;
+            s0 += a * a;
+            s1 += b * b;
+        }
+        for (; j < len; j++) {
+            double a = x[xOff + j] / max;
+            s0 += a * a;
+        }
+        return max * Math.sqrt(s0 + s1);
+    }
+
+    /**
+     * Returns the offset from xOff of the first element of largest magnitude
+     * of an array.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the offset of the largest magnitude, or -1 if len is zero
+     */
+    static int iamax(double[] x, int xOff, int len) {
+        int best = len > 0 ? 0 : -1;
+        double max = len > 0 ? Math.abs(x[xOff]) : 0.0;
+        for (int i = 1; i < len; i++) {
+            double a = Math.abs(x[xOff + i]);
+            if (a > max) {
+                max = a;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
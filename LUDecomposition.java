@@ -0,0 +1,353 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * The LU decomposition of a square matrix, computed by Gaussian elimination
+ * with partial pivoting.
+ *
+ * <p>
+ * The decomposition is PA = LU, where P is a permutation matrix, L is unit
+ * lower triangular and U is upper triangular. Both triangles are stored in
+ * one flat array, with the unit diagonal of L implied. The determinant is
+ * the product of the diagonal of U, negated for each row interchange.
+ *
+ * <p>
+ * Once computed, the decomposition solves systems with the matrix by
+ * forward and back substitution in O(n^2) time per right-hand side.
+ *
+ * @author Thurman
+ */
+public class LUDecomposition implements Factorization {
+
+    /**
+     * The flat, row-major array holding L below the diagonal and U on and
+     * above it.
+     */
+    final double[] lu;
+
+    /**
+     * The order of the decomposed matrix.
+     */
+    final int n;
+
+    /**
+     * The original row of each row of the decomposition.
+     */
+    final int[] piv;
+
+    /**
+     * The sign of the permutation, {@code 1} or {@code -1}.
+     */
+    final int pivSign;
+
+    /**
+     * Decomposes the specified square matrix.
+     *
+     * @param M a square matrix
+     * @throws java.lang.IllegalArgumentException if the matrix is not square
+     */
+    public LUDecomposition(Matrix M) {
+        if (!M.isSquare()) {
+            throw new IllegalArgumentException("Matrix must be square");
+        }
+        this.n = M.getRows();
+        this.lu = ArrayUtils.resize(M.data, M.offset, M.stride, n, n, n, n);
+        this.piv = new int[n];
+        Parallelism p = Parallelism.getDefault();
+        this.pivSign = p.getBackend().lu(p, n, lu, piv);
+    }
+
+    /**
+     * Decomposes a flat n x n array in place.
+     *
+     * @param a the flat array, overwritten with L and U
+     * @param n the order of the array
+     * @param piv the array to store the original row of each row in
+     * @param p the parallelism to update the trailing rows with
+     * @return the sign of the row permutation
+     */
+    static int decompose(double[] a, int n, int[] piv, Parallelism p) {
+        int sign = 1;
+        for (int i = 0; i < n; i++) {
+            piv[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+            double max = Math.abs(a[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double v = Math.abs(a[i * n + k]);
+                if (v > max) {
+                    max = v;
+                    pivot = i;
+                }
+            }
+            if (pivot != k) {
+                DeterminantUtils.swapRows(a, n, pivot, k);
+                int t = piv[pivot];
+                piv[pivot] = piv[k];
+                piv[k] = t;
+                sign = -sign;
+            }
+            double akk = a[k * n + k];
+            if (akk == 0.0) {
+                continue;
+            }
+            final int col = k;
+            final int rest = n - k - 1;
+            ParallelUtils.forRange(p, rest, rest, 1, (i0, i1) -> {
+                for (int i = col + 1 + i0; i < col + 1 + i1; i++) {
+                    double l = a[i * n + col] /= akk;
+                    KernelUtils.axpy(-l, a, col * n + col + 1, a, i * n + col + 1, rest);
+                }
+            });
+        }
+        return sign;
+    }
+
+    /**
+     * Checks if the decomposed matrix is singular.
+     *
+     * @return {@code true} if any diagonal entry of U is zero
+     */
+    public boolean isSingular() {
+        for (int i = 0; i < n; i++) {
+            if (lu[i * n + i] == 0.0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public double determinant() {
+        double det = pivSign;
+        for (int i = 0; i < n; i++) {
+            det *= lu[i * n + i];
+        }
+        return det;
+    }
+
+    /**
+     * Returns the natural logarithm of the absolute value of the determinant.
+     *
+     * <p>
+     * Unlike {@link determinant()}, this does not overflow or underflow for
+     * large matrices. Together with {@link determinantSign()} it describes
+     * the determinant completely.
+     *
+     * @return the logarithm of the absolute determinant, or negative
+     * infinity if the matrix is singular
+     */
+    public double logAbsDeterminant() {
+        double log = 0.0;
+        for (int i = 0; i < n; i++) {
+            log += Math.log(Math.abs(lu[i * n + i]));
+        }
+        return log;
+    }
+
+    /**
+     * Returns the sign of the determinant.
+     *
+     * @return {@code 1}, {@code -1}, or {@code 0} if the matrix is singular
+     */
+    public int determinantSign() {
+        int sign = pivSign;
+        for (int i = 0; i < n; i++) {
+            double u = lu[i * n + i];
+            if (u == 0.0) {
+                return 0;
+            }
+            if (u < 0.0) {
+                sign = -sign;
+            }
+        }
+        return sign;
+    }
+
+    /**
+     * Returns the unit lower triangular factor L.
+     *
+     * @return the lower triangular factor
+     */
+    public Matrix getL() {
+        Matrix L = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n, L.data, i * n, i);
+            L.data[i * n + i] = 1.0;
+        }
+        return L;
+    }
+
+    /**
+     * Returns the upper triangular factor U.
+     *
+     * @return the upper triangular factor
+     */
+    public Matrix getU() {
+        Matrix U = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(lu, i * n + i, U.data, i * n + i, n - i);
+        }
+        return U;
+    }
+
+    /**
+     * Returns the row permutation, such that row {@code i} of PA is row
+     * {@code getPivot()[i]} of A.
+     *
+     * @return a copy of the pivot indices
+     */
+    public int[] getPivot() {
+        return piv.clone();
+    }
+
+    @Override
+    public Matrix solve(Matrix B) {
+        if (B.getRows() != n) {
+            throw new IllegalArgumentException("Row count of argument not equal to the order of the matrix");
+        }
+        requireNonsingular();
+        int k = B.getCols();
+        double[] x = new double[n * k];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(B.data, B.index(piv[i], 0), x, i * k, k);
+        }
+        substitute(x, k, Parallelism.getDefault());
+        return new Matrix(x, 0, k, new Order(n, k));
+    }
+
+    @Override
+    public Vector solve(Vector b) {
+        if (b.length() != n) {
+            throw new IllegalArgumentException("Dimension of argument not equal to the order of the matrix");
+        }
+        requireNonsingular();
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = b.data[b.offset + piv[i]];
+        }
+        substitute(x, 1, Parallelism.SERIAL);
+        return new Vector(x, 0, n);
+    }
+
+    @Override
+    public SquareMatrix inverse() {
+        requireNonsingular();
+        double[] x = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            x[i * n + piv[i]] = 1.0;
+        }
+        substitute(x, n, Parallelism.getDefault());
+        return new SquareMatrix(x, n);
+    }
+
+    /**
+     * Returns the adjugate of the decomposed matrix, which is the transpose
+     * of its cofactor matrix.
+     *
+     * <p>
+     * A nonsingular matrix has the adjugate det(A) A^-1. For a singular
+     * matrix the factors are multiplied back and decomposed again with
+     * complete pivoting, which moves a vanishing pivot to the end. If only
+     * that pivot vanishes the matrix has rank n - 1, and its adjugate is the
+     * rank-one matrix formed from its right and left null vectors, which
+     * are obtained from the new factors directly. A matrix of lower rank has
+     * a zero adjugate.
+     *
+     * @return the adjugate of the decomposed matrix
+     */
+    public SquareMatrix adjugate() {
+        if (n == 1) {
+            return new SquareMatrix(new double[] {1.0}, 1);
+        }
+        if (!isSingular()) {
+            SquareMatrix adj = inverse();
+            KernelUtils.scale(determinant(), adj.data, 0, adj.data, 0, n * n);
+            return adj;
+        }
+
+        double[] a = new double[n * n];
+        Matrix product = getL().times(getU());
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(product.data, i * n, a, piv[i] * n, n);
+        }
+        int[] p = new int[n];
+        int[] q = new int[n];
+        int sign = DeterminantUtils.decomposeComplete(a, n, p, q);
+        double tol = n * Math.ulp(Math.abs(a[0]));
+        double[] adj = new double[n * n];
+        if (Math.abs(a[(n - 2) * n + n - 2]) <= tol) {
+            return new SquareMatrix(adj, n);
+        }
+
+        // Uz = 0 with z[n - 1] = 1, and v = Qz
+        int k = n - 1;
+        double[] z = new double[n];
+        z[k] = 1.0;
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = KernelUtils.dot(a, i * n + i + 1, z, i + 1, k - i);
+            z[i] = -sum / a[i * n + i];
+        }
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) {
+            v[q[i]] = z[i];
+        }
+        // w^T U = 0 with w = e[n - 1], and u = P^T L^-T w
+        double[] w = new double[n];
+        w[k] = 1.0;
+        for (int i = k - 1; i >= 0; i--) {
+            for (int j = i + 1; j < n; j++) {
+                w[i] -= a[j * n + i] * w[j];
+            }
+        }
+        double[] u = new double[n];
+        for (int i = 0; i < n; i++) {
+            u[p[i]] = w[i];
+        }
+
+        double scale = sign;
+        for (int i = 0; i < k; i++) {
+            scale *= a[i * n + i];
+        }
+        for (int i = 0; i < n; i++) {
+            KernelUtils.scale(scale * v[i], u, 0, adj, i * n, n);
+        }
+        return new SquareMatrix(adj, n);
+    }
+
+    /**
+     * Overwrites a flat n x k array PB with the solution of LUX = PB.
+     */
+    private void substitute(double[] x, int k, Parallelism p) {
+        ParallelUtils.forRange(p, k, (long) n * n, 1, (c0, c1) -> {
+            int w = c1 - c0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    KernelUtils.axpy(-lu[i * n + j], x, j * k + c0, x, i * k + c0, w);
+                }
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                for (int j = i + 1; j < n; j++) {
+                    KernelUtils.axpy(-lu[i * n + j], x, j * k + c0, x, i * k + c0, w);
+                }
+                KernelUtils.scale(1.0 / lu[i * n + i], x, i * k + c0, x, i * k + c0, w);
+            }
+        });
+    }
+
+    private void requireNonsingular() {
+        if (isSingular()) {
+            throw new ArithmeticException("Matrix is singular");
+        }
+    }
+}
@@ -26,15 +26,35 @@ public class Matrix {
     static final double DEFAULT_VALUE = 0.0;
 
     /**
-     * The internal 2D array storing the elements of the matrix.
+     * The internal flat array storing the elements of the matrix in row-major
+     * order. It may be shared with other matrices, in which case only the 
+     * region described by {@link offset} and {@link stride} belongs to this
+     * matrix.
      */
-    double[][] matrix;
+    double[] data;
+    
+    /**
+     * The index in {@link data} of the entry in the first row and column.
+     */
+    int offset;
+    
+    /**
+     * The distance in {@link data} between the starts of consecutive rows.
+     */
+    int stride;
 
     /**
      * The getOrder of the matrix (which contains its number of getRows and
  columns).
      */
     Order order;
+
+    /**
+     * Whether this matrix alone holds {@link data}, having allocated it and
+     * not yet shared it with any view. Only then may the array be rearranged
+     * wholesale, as the in-place transposition of a rectangular matrix does.
+     */
+    boolean owner;
     
     void init() {
         
@@ -72,7 +92,9 @@ public class Matrix {
     public Matrix(double[][] arr) {
         init(arr);
         this.order = new Order(arr.length, ArrayUtils.maxRowLen(arr));
-        this.matrix = ArrayUtils.resize(arr, order.rows, order.cols);
+        this.data = ArrayUtils.resize(arr, order.rows, order.cols);
+        this.stride = order.cols;
+        this.owner = true;
     }
 
     /**
@@ -92,8 +114,10 @@ public class Matrix {
      */
     public Matrix(Order order) {
         init(order);
-        this.matrix = new double[order.rows][order.cols];
+        this.data = new double[order.rows * order.cols];
         this.order = new Order(order.rows, order.cols);
+        this.stride = order.cols;
+        this.owner = true;
     }
 
     /**
@@ -109,8 +133,10 @@ public class Matrix {
     }
     
     public Matrix(double entry, Order order) {
-        this.matrix = ArrayUtils.fill(order.rows, order.cols, entry);
+        this.data = ArrayUtils.fill(order.rows * order.cols, entry);
         this.order = new Order(order);
+        this.stride = order.cols;
+        this.owner = true;
     }
     
     /**
@@ -127,8 +153,9 @@ public class Matrix {
     public Matrix(double[][] arr, int rows, int cols) {
         requireNonNullParams((Object) arr);
         this.order = new Order(rows, cols);
-        this.matrix = ArrayUtils.resize(arr, order.rows, order.cols);
-
+        this.data = ArrayUtils.resize(arr, order.rows, order.cols);
+        this.stride = order.cols;
+        this.owner = true;
     }
 
     /**
@@ -143,8 +170,10 @@ public class Matrix {
      */
     public Matrix(double[][] arr, Order order) {
         init(arr, order);
-        this.matrix = ArrayUtils.resize(arr, order.rows, order.cols);
+        this.data = ArrayUtils.resize(arr, order.rows, order.cols);
         this.order = order;
+        this.stride = order.cols;
+        this.owner = true;
     }
 
     /**
@@ -154,8 +183,30 @@ public class Matrix {
      */
     public Matrix(Matrix M) {
         init(M);
-        this.matrix = M.matrix.clone();
+        this.data = ArrayUtils.resize(M.data, M.offset, M.stride, 
+                M.getRows(), M.getCols(), M.getRows(), M.getCols());
         this.order = new Order(M.order);
+        this.stride = order.cols;
+        this.owner = true;
+    }
+    
+    /**
+     * Constructs a matrix backed by the specified region of a flat array, 
+     * without copying it.
+     *
+     * <p>
+     * Note that this constructor is for internal use only.
+     *
+     * @param data the flat, row-major array storing the entries
+     * @param offset the index of the entry in the first row and column
+     * @param stride the distance between the starts of consecutive rows
+     * @param order the order of the matrix
+     */
+    Matrix(double[] data, int offset, int stride, Order order) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.order = order;
     }
 
     /**
@@ -166,10 +217,11 @@ public class Matrix {
      * Note that this method and any overloaded variants are for internal use
      * only.
      *
-     * @param M the matrix for this to change to
+     * @param arr the flat array for this to change to
+     * @param order the order of the array
      */
-    private void internalUncheckedSet(double[][] arr) {
-        internalUncheckedSet(arr, new Order(arr.length, arr[0].length));
+    void internalUncheckedSet(double[] arr, Order order) {
+        internalUncheckedSet(arr, 0, order.cols, order);
     }
 
     /**
@@ -182,8 +234,9 @@ public class Matrix {
      *
      * @param M the matrix for this to change to
      */
-    private void internalUncheckedSet(Matrix M) {
-        internalUncheckedSet(M.matrix, M.order);
+    void internalUncheckedSet(Matrix M) {
+        M.owner = false;
+        internalUncheckedSet(M.data, M.offset, M.stride, M.order);
     }
 
     /**
@@ -194,13 +247,38 @@ public class Matrix {
      * Note that this method and any overloaded variants are for internal use
      * only.
      *
-     * @param M the matrix for this to change to
+     * @param arr the flat array for this to change to
+     * @param offset the index of the entry in the first row and column
+     * @param stride the distance between the starts of consecutive rows
+     * @param order the order of the region of the array
      */
-    private void internalUncheckedSet(double[][] arr, Order order) {
+    void internalUncheckedSet(double[] arr, int offset, int stride, Order order) {
         Objects.requireNonNull(arr);
         Objects.requireNonNull(order);
-        this.matrix = arr;
+        this.data = arr;
+        this.offset = offset;
+        this.stride = stride;
         this.order = order;
+        this.owner = false;
+    }
+
+    /**
+     * Changes this matrix to the entries of another. If the orders are equal
+     * the entries are copied into the storage of this matrix, so that
+     * matrices sharing it see the change; otherwise this matrix is rebound to
+     * the other's storage.
+     *
+     * @param M the matrix for this to change to
+     */
+    void assign(Matrix M) {
+        if (!order.equals(M.order)) {
+            internalUncheckedSet(M);
+            return;
+        }
+        int n = getCols();
+        for (int r = 0; r < getRows(); r++) {
+            System.arraycopy(M.data, M.index(r, 0), data, index(r, 0), n);
+        }
     }
 
     /**
@@ -234,6 +312,37 @@ public class Matrix {
         return this.order;
     }
     
+    /**
+     * Returns the index in the internal array of the entry at the specified
+     * zero-based row and column.
+     *
+     * @param r the zero-based row of the entry
+     * @param c the zero-based column of the entry
+     * @return the index of the entry in {@link data}
+     */
+    final int index(int r, int c) {
+        return offset + r * stride + c;
+    }
+    
+    /**
+     * Checks if the entries of this matrix occupy one gap-free run of the 
+     * internal array, so that kernels may treat it as a single array.
+     *
+     * @return {@code true} if consecutive rows are adjacent in {@link data}
+     */
+    final boolean isContiguous() {
+        return stride == order.cols || order.rows <= 1;
+    }
+    
+    /**
+     * Returns a 2D array copy of the entries of this matrix.
+     *
+     * @return a 2D array containing the entries of this matrix
+     */
+    public double[][] toArray() {
+        return ArrayUtils.unflatten(data, offset, stride, getRows(), getCols());
+    }
+    
     /**
      * Returns the entry at the specified getOrder.
      *
@@ -246,7 +355,7 @@ public class Matrix {
      * @return the targeted getEntry in the matrix
      */
     public double getEntry(final int row, final int col) {
-        return this.matrix[row - 1][col - 1];
+        return data[index(row - 1, col - 1)];
     }
     
     /**
@@ -266,7 +375,24 @@ public class Matrix {
      * @return a getRow vector of this matrix
      */
     public Vector getRow(int row) {
-        return new Vector(matrix[row - 1]);
+        double[] arr = new double[getCols()];
+        System.arraycopy(data, index(row - 1, 0), arr, 0, arr.length);
+        return new Vector(arr, 0, arr.length);
+    }
+
+    /**
+     * Returns a vector view of the specified row, which shares the entries of
+     * this matrix instead of copying them.
+     *
+     * @param row the row to view
+     * @return a vector backed by a row of this matrix
+     */
+    public Vector rowView(int row) {
+        if (row < 1 || row > getRows()) {
+            throw new IndexOutOfBoundsException(Integer.toString(row));
+        }
+        owner = false;
+        return new Vector(data, index(row - 1, 0), getCols());
     }
 
     /**
@@ -276,11 +402,100 @@ public class Matrix {
      * @return a column vector of this matrix
      */
     public Vector getCol(int col) {
-        double[] column = new double[matrix[col - 1].length];
-        for (int r = 0; r < matrix.length; r++) {
-            column[r] = matrix[r][col - 1];
+        double[] column = new double[getRows()];
+        for (int r = 0, i = index(0, col - 1); r < column.length; r++, i += stride) {
+            column[r] = data[i];
         }
-        return new Vector(column);
+        return new Vector(column, 0, column.length);
+    }
+
+    /**
+     * Returns a view of the specified column, which shares the entries of
+     * this matrix instead of copying them.
+     *
+     * <p>
+     * A vector is a single row of consecutive entries, so a column is viewed
+     * as a {@link MatrixView} with one column.
+     *
+     * @param col the column to view
+     * @return a view of a column of this matrix
+     */
+    public MatrixView colView(int col) {
+        return view().col(col);
+    }
+
+    /**
+     * Returns the submatrix of the specified rows and columns, which shares
+     * the entries of this matrix instead of copying them. Setting an entry of
+     * the submatrix, or adding to or scaling it, changes this matrix.
+     *
+     * @param r0 the first row of the submatrix
+     * @param r1 the last row of the submatrix
+     * @param c0 the first column of the submatrix
+     * @param c1 the last column of the submatrix
+     * @return a submatrix backed by this matrix
+     * @throws java.lang.IllegalArgumentException if the region is empty or
+     * exceeds this matrix
+     */
+    public Matrix subMatrix(int r0, int r1, int c0, int c1) {
+        MatrixView.checkRegion(r0, r1, c0, c1, getRows(), getCols());
+        owner = false;
+        return new Matrix(data, index(r0 - 1, c0 - 1), stride,
+                new Order(r1 - r0 + 1, c1 - c0 + 1));
+    }
+
+    /**
+     * Returns a view of this matrix, which shares its entries.
+     *
+     * @return a view of this matrix
+     */
+    public MatrixView view() {
+        return MatrixView.of(this);
+    }
+
+    /**
+     * Returns a transposed view of this matrix, which shares its entries
+     * instead of copying them as {@link transposition()} does.
+     *
+     * @return a transposed view of this matrix
+     */
+    public MatrixView transposedView() {
+        return view().transposed();
+    }
+
+    /**
+     * Returns a view of this matrix without the specified row and column,
+     * which shares its entries instead of copying them as
+     * {@link minorMatrix(int, int)} does.
+     *
+     * @param row the row to skip
+     * @param col the column to skip
+     * @return a view of the minor submatrix of an entry
+     */
+    public MatrixView minorView(int row, int col) {
+        return view().minor(row, col);
+    }
+
+    /**
+     * Returns an unevaluated expression of this matrix, on which sums,
+     * scalar multiples and products are combined into as few passes as
+     * possible when it is evaluated.
+     *
+     * @return an expression of this matrix
+     * @see MatrixExpression
+     */
+    public MatrixExpression lazy() {
+        return MatrixExpression.of(this);
+    }
+
+    /**
+     * Returns an independent copy of this matrix, which does not share the
+     * entries of any other matrix.
+     *
+     * @return a copy of this matrix
+     */
+    public Matrix copy() {
+        return new Matrix(this);
     }
 
     /**
@@ -301,24 +516,22 @@ public class Matrix {
      * @param a the value to set the getEntry to
      */
     public void setEntry(int row, int col, double a) {
-        matrix[row - 1][col - 1] = a;
+        data[index(row - 1, col - 1)] = a;
     }
     
     public void setRow(int row, double[] arr) {
         Objects.requireNonNull(arr);
-        if (arr.length != this.getOrder().rows) 
+        if (arr.length != this.getOrder().cols) 
             throw new IllegalArgumentException("Cannot set row to different dimension");
-        for (int c = 0 ; c < arr.length ; c++) {
-            setEntry(new Order(row, c), arr[c]);
-        }
+        System.arraycopy(arr, 0, data, index(row - 1, 0), arr.length);
     }
     
     public void setCol(int col, double[] arr) {
         Objects.requireNonNull(arr);
         if (arr.length != this.getOrder().rows) 
             throw new IllegalArgumentException("Cannot set column to different dimension");
-        for (int r = 0; r < 10; r++) {
-            setEntry(new Order(r, col), arr[r]);
+        for (int r = 0, i = index(0, col - 1); r < arr.length; r++, i += stride) {
+            data[i] = arr[r];
         }
     }
     
@@ -328,12 +541,7 @@ public class Matrix {
      * @param M a matrix of the same getOrder
      */
     public void add(Matrix M) {
-        orderCheck(M);
-        for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                this.matrix[r][c] += M.matrix[r][c];
-            }
-        }
+        plusInto(M, this);
     }
 
     /**
@@ -343,14 +551,52 @@ public class Matrix {
      * @return the sum of this and the argument matrix
      */
     public Matrix plus(Matrix M) {
+        return plus(M, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the sum of this and another matrix, computed with the specified
+     * parallelism.
+     *
+     * @param M a matrix of the same getOrder
+     * @param p the parallelism to compute with
+     * @return the sum of this and the argument matrix
+     */
+    public Matrix plus(Matrix M, Parallelism p) {
         orderCheck(M);
-        Matrix sum = new Matrix(getRows(), getCols());
-        for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                sum.matrix[r][c] = this.matrix[r][c] + M.matrix[r][c];
-            }
-        }
-        return sum;
+        return plusInto(M, new Matrix(getRows(), getCols()), p);
+    }
+
+    /**
+     * Stores the sum of this and another matrix in a destination matrix,
+     * without allocating.
+     *
+     * @param M a matrix of the same order
+     * @param dest a matrix of the same order to store the sum in, which may
+     * be this or the argument matrix
+     * @return the destination matrix
+     */
+    public Matrix plusInto(Matrix M, Matrix dest) {
+        return plusInto(M, dest, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores the sum of this and another matrix in a destination matrix,
+     * computed with the specified parallelism. Serial computation allocates
+     * nothing.
+     *
+     * @param M a matrix of the same order
+     * @param dest a matrix of the same order to store the sum in, which may
+     * be this or the argument matrix
+     * @param p the parallelism to compute with
+     * @return the destination matrix
+     */
+    public Matrix plusInto(Matrix M, Matrix dest, Parallelism p) {
+        orderCheck(M);
+        orderCheck(dest);
+        p.getBackend().add(p, getRows(), getCols(), data, offset, stride,
+                M.data, M.offset, M.stride, dest.data, dest.offset, dest.stride);
+        return dest;
     }
 
     /**
@@ -359,12 +605,7 @@ public class Matrix {
      * @param M a matrix of the same getOrder
      */
     public void subtract(Matrix M) {
-        orderCheck(M);
-        for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                this.matrix[r][c] -= M.matrix[r][c];
-            }
-        }
+        minusInto(M, this);
     }
 
     /**
@@ -374,14 +615,52 @@ public class Matrix {
      * @return the difference of this and the argument matrix
      */
     public Matrix minus(Matrix M) {
+        return minus(M, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the difference of this and another matrix, computed with the
+     * specified parallelism.
+     *
+     * @param M a matrix of the same getOrder
+     * @param p the parallelism to compute with
+     * @return the difference of this and the argument matrix
+     */
+    public Matrix minus(Matrix M, Parallelism p) {
         orderCheck(M);
-        Matrix diff = new Matrix(getRows(), getCols());
-        for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                diff.matrix[r][c] = this.matrix[r][c] - M.matrix[r][c];
-            }
-        }
-        return diff;
+        return minusInto(M, new Matrix(getRows(), getCols()), p);
+    }
+
+    /**
+     * Stores the difference of this and another matrix in a destination
+     * matrix, without allocating.
+     *
+     * @param M a matrix of the same order
+     * @param dest a matrix of the same order to store the difference in,
+     * which may be this or the argument matrix
+     * @return the destination matrix
+     */
+    public Matrix minusInto(Matrix M, Matrix dest) {
+        return minusInto(M, dest, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores the difference of this and another matrix in a destination
+     * matrix, computed with the specified parallelism. Serial computation
+     * allocates nothing.
+     *
+     * @param M a matrix of the same order
+     * @param dest a matrix of the same order to store the difference in,
+     * which may be this or the argument matrix
+     * @param p the parallelism to compute with
+     * @return the destination matrix
+     */
+    public Matrix minusInto(Matrix M, Matrix dest, Parallelism p) {
+        orderCheck(M);
+        orderCheck(dest);
+        p.getBackend().subtract(p, getRows(), getCols(), data, offset, stride,
+                M.data, M.offset, M.stride, dest.data, dest.offset, dest.stride);
+        return dest;
     }
 
     /**
@@ -391,7 +670,7 @@ public class Matrix {
  columns
      */
     public void multiply(Matrix M) {
-        internalUncheckedSet(this.times(M));
+        assign(this.times(M));
     }
 
     /**
@@ -401,19 +680,141 @@ public class Matrix {
      * @return the product of this and another matrix
      */
     public Matrix times(Matrix M) {
+        return times(M, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the product of this and another matrix, computed with the
+     * specified parallelism.
+     *
+     * @param M a matrix with the same getRow count as this matrix's columns
+     * @param p the parallelism to compute with
+     * @return the product of this and another matrix
+     */
+    public Matrix times(Matrix M, Parallelism p) {
+        productCheck(M);
+        return timesInto(M, new Matrix(this.getRows(), M.getCols()), p);
+    }
+
+    /**
+     * Stores the product of this and another matrix in a destination matrix.
+     *
+     * @param M a matrix with the same row count as this matrix's columns
+     * @param dest a matrix of the order of the product, which must not share
+     * entries with either operand
+     * @return the destination matrix
+     */
+    public Matrix timesInto(Matrix M, Matrix dest) {
+        return timesInto(M, dest, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores the product of this and another matrix in a destination matrix,
+     * computed with the specified parallelism. Serial computation allocates
+     * nothing once the packing buffers of the calling thread have grown to
+     * the block sizes.
+     *
+     * @param M a matrix with the same row count as this matrix's columns
+     * @param dest a matrix of the order of the product, which must not share
+     * entries with either operand
+     * @param p the parallelism to compute with
+     * @return the destination matrix
+     */
+    public Matrix timesInto(Matrix M, Matrix dest, Parallelism p) {
+        gemm(1.0, this, M, 0.0, dest, p);
+        return dest;
+    }
+
+    /**
+     * Stores a scaled product plus a scaled matrix in that matrix, that is
+     * {@code C = alpha * A * B + beta * C}, as the BLAS routine of the same
+     * name.
+     *
+     * @param alpha the scalar multiplying the product
+     * @param A the left operand
+     * @param B a matrix with the same row count as A's columns
+     * @param beta the scalar multiplying C; if zero, C is overwritten without
+     * being read
+     * @param C a matrix of the order of the product, which must not share
+     * entries with either operand
+     */
+    public static void gemm(double alpha, Matrix A, Matrix B, double beta, Matrix C) {
+        gemm(alpha, A, B, beta, C, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores a scaled product plus a scaled matrix in that matrix, that is
+     * {@code C = alpha * A * B + beta * C}, computed with the specified
+     * parallelism.
+     *
+     * @param alpha the scalar multiplying the product
+     * @param A the left operand
+     * @param B a matrix with the same row count as A's columns
+     * @param beta the scalar multiplying C; if zero, C is overwritten without
+     * being read
+     * @param C a matrix of the order of the product, which must not share
+     * entries with either operand
+     * @param p the parallelism to compute with
+     */
+    public static void gemm(double alpha, Matrix A, Matrix B, double beta, Matrix C,
+            Parallelism p) {
+        A.productCheck(B);
+        if (C.getRows() != A.getRows() || C.getCols() != B.getCols()) {
+            throw new IllegalArgumentException("Destination order not equal to the product's order");
+        }
+        if (C.overlaps(A) || C.overlaps(B)) {
+            throw new IllegalArgumentException("Destination shares entries with an operand");
+        }
+        p.getBackend().gemm(p, alpha, C.getRows(), C.getCols(), A.getCols(),
+                A.data, A.offset, A.stride,
+                B.data, B.offset, B.stride,
+                beta, C.data, C.offset, C.stride);
+    }
+
+    private void productCheck(Matrix M) {
         if (this.getCols() != M.getRows()) {
             throw new IllegalArgumentException(
                     "Row count of argument not equal to the column count of the calling matrix");
         }
-        Matrix product = new Matrix(this.getRows(), M.getCols());
-        for (int r = 0; r < this.getRows(); r++) {
-            for (int c = 0; c < M.getCols(); c++) {
-                for (int i = 0; i < M.getCols(); i++) {
-                    product.matrix[r][c] += (this.matrix[r][i] * M.matrix[i][c]);
-                }
-            }
+    }
+
+    /**
+     * Checks if the entries of this and another matrix may share storage,
+     * by comparing the spans of the internal array they occupy.
+     *
+     * @param M a matrix
+     * @return {@code true} if the spans of the two matrices intersect
+     */
+    final boolean overlaps(Matrix M) {
+        if (data != M.data || order.rows == 0 || order.cols == 0
+                || M.order.rows == 0 || M.order.cols == 0) {
+            return false;
         }
-        return product;
+        int end = index(getRows() - 1, getCols() - 1);
+        int mEnd = M.index(M.getRows() - 1, M.getCols() - 1);
+        return offset <= mEnd && M.offset <= end;
+    }
+
+    /**
+     * Returns the product of this and a sparse matrix.
+     *
+     * @param S a sparse matrix with the same row count as this matrix's 
+     * columns
+     * @return the product of this and the sparse matrix
+     */
+    public Matrix times(SparseMatrix S) {
+        return S.leftTimes(this);
+    }
+
+    /**
+     * Returns the product of this and an off-heap matrix.
+     *
+     * @param M an off-heap matrix with the same row count as this matrix's 
+     * columns
+     * @return the product, allocated in the arena of the off-heap matrix
+     */
+    public OffHeapMatrix times(OffHeapMatrix M) {
+        return M.leftTimes(this);
     }
 
     /**
@@ -422,11 +823,18 @@ public class Matrix {
      * @param k a scalar
      */
     public void multiply(double k) {
-        for (int r = 0; r < this.getRows(); r++) {
-            for (int c = 0; c < this.getCols(); c++) {
-                this.matrix[r][c] *= k;
-            }
-        }
+        multiply(k, Parallelism.getDefault());
+    }
+
+    /**
+     * Sets this matrix to the product of itself and a specified scalar,
+     * computed with the specified parallelism.
+     *
+     * @param k a scalar
+     * @param p the parallelism to compute with
+     */
+    public void multiply(double k, Parallelism p) {
+        timesInto(k, this, p);
     }
 
     /**
@@ -436,20 +844,84 @@ public class Matrix {
      * @return the product of this and the scalar
      */
     public Matrix times(double k) {
-        Matrix product = new Matrix(this.getRows(), this.getCols());
-        for (int r = 0; r < this.getRows(); r++) {
-            for (int c = 0; c < this.getCols(); c++) {
-                product.matrix[r][c] = k * this.matrix[r][c];
-            }
-        }
-        return product;
+        return times(k, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the product of this and a specified scalar, computed with the
+     * specified parallelism.
+     *
+     * @param k a scalar
+     * @param p the parallelism to compute with
+     * @return the product of this and the scalar
+     */
+    public Matrix times(double k, Parallelism p) {
+        return timesInto(k, new Matrix(this.getRows(), this.getCols()), p);
+    }
+
+    /**
+     * Stores the product of this and a specified scalar in a destination
+     * matrix, without allocating.
+     *
+     * @param k a scalar
+     * @param dest a matrix of the same order to store the product in, which
+     * may be this matrix
+     * @return the destination matrix
+     */
+    public Matrix timesInto(double k, Matrix dest) {
+        return timesInto(k, dest, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores the product of this and a specified scalar in a destination
+     * matrix, computed with the specified parallelism. Serial computation
+     * allocates nothing.
+     *
+     * @param k a scalar
+     * @param dest a matrix of the same order to store the product in, which
+     * may be this matrix
+     * @param p the parallelism to compute with
+     * @return the destination matrix
+     */
+    public Matrix timesInto(double k, Matrix dest, Parallelism p) {
+        orderCheck(dest);
+        p.getBackend().scale(p, getRows(), getCols(), k, data, offset, stride,
+                dest.data, dest.offset, dest.stride);
+        return dest;
     }
 
     /**
      * Transposes this matrix.
      */
     public void transpose() {
-        internalUncheckedSet(this.transposition());
+        transpose(Parallelism.getDefault());
+    }
+
+    /**
+     * Transposes this matrix, computed with the specified parallelism.
+     *
+     * <p>
+     * A square matrix is transposed in place, in the entries it shares with
+     * any matrix it is a region of. A rectangular matrix which owns its
+     * internal array, never having been viewed or taken as a region of
+     * another, is transposed in place by following cycles, which is done
+     * serially. Any other matrix is replaced by a transposed copy, so that
+     * the matrices sharing its entries are left unchanged.
+     *
+     * @param p the parallelism to compute with
+     */
+    public void transpose(Parallelism p) {
+        int m = getRows();
+        int n = getCols();
+        if (m == n) {
+            TransposeUtils.transposeSquare(p, n, data, offset, stride);
+        } else if (owner && offset == 0 && data.length == m * n && isContiguous()) {
+            TransposeUtils.transposeInPlace(data, 0, m, n);
+            stride = m;
+            order = new Order(n, m);
+        } else {
+            assign(this.transposition(p));
+        }
     }
 
     /**
@@ -458,26 +930,114 @@ public class Matrix {
      * @return the transposition of this matrix
      */
     public Matrix transposition() {
-        double[][] arr = new double[getRows()][getCols()];
-        for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                arr[c][r] = this.matrix[r][c];
-            }
+        return transposition(Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the transposition of this matrix, computed with the specified
+     * parallelism.
+     *
+     * @param p the parallelism to compute with
+     * @return the transposition of this matrix
+     */
+    public Matrix transposition(Parallelism p) {
+        return transposeInto(new Matrix(getCols(), getRows()), p);
+    }
+
+    /**
+     * Stores the transposition of this matrix in a destination matrix,
+     * without allocating.
+     *
+     * @param dest a matrix with this matrix's columns as rows and rows as
+     * columns, which must not share entries with this matrix
+     * @return the destination matrix
+     */
+    public Matrix transposeInto(Matrix dest) {
+        return transposeInto(dest, Parallelism.getDefault());
+    }
+
+    /**
+     * Stores the transposition of this matrix in a destination matrix,
+     * computed with the specified parallelism. Serial computation allocates
+     * nothing.
+     *
+     * @param dest a matrix with this matrix's columns as rows and rows as
+     * columns, which must not share entries with this matrix
+     * @param p the parallelism to compute with
+     * @return the destination matrix
+     */
+    public Matrix transposeInto(Matrix dest, Parallelism p) {
+        int m = getRows();
+        int n = getCols();
+        if (dest.getRows() != n || dest.getCols() != m) {
+            throw new IllegalArgumentException("Destination order not equal to the transposed order");
+        }
+        if (dest.overlaps(this)) {
+            throw new IllegalArgumentException("Destination shares entries with this matrix");
         }
-        return new Matrix(arr);
+        p.getBackend().transpose(p, m, n, data, offset, stride,
+                dest.data, dest.offset, dest.stride);
+        return dest;
     }
 
+    /**
+     * Returns the row echelon form of this matrix, obtained by Gaussian
+     * elimination with partial pivoting.
+     *
+     * @return a matrix in row echelon form which is row equivalent to this
+     */
     public Matrix ref() {
-        return null;
+        Matrix ref = new Matrix(this);
+        DeterminantUtils.rowReduce(ref.data, getRows(), getCols());
+        return ref;
+    }
+
+    /**
+     * Returns the rank of this matrix, which is the number of linearly
+     * independent rows (or columns), computed by Gaussian elimination with
+     * complete pivoting. Entries left smaller than the rounding error of the
+     * elimination, relative to the 1-norm of this matrix, count as zero.
+     *
+     * @return the rank of this matrix
+     */
+    public int rank() {
+        return DeterminantUtils.rank(ArrayUtils.resize(data, offset, stride,
+                getRows(), getCols(), getRows(), getCols()), getRows(), getCols());
+    }
+
+    /**
+     * Returns the LU decomposition of this matrix.
+     *
+     * @return the LU decomposition of this matrix
+     * @throws java.lang.IllegalArgumentException if this matrix is not square
+     */
+    public LUDecomposition lu() {
+        return new LUDecomposition(this);
     }
 
     /**
      * Returns the determinant of this matrix.
      *
      * @return the determinant of this matrix
+     * @throws java.lang.IllegalArgumentException if this matrix is not square
      */
     public double determinant() {
-        return 0;
+        return DeterminantUtils.determinantRowReduction(this);
+    }
+
+    /**
+     * Returns the natural logarithm of the absolute value of the determinant
+     * of this matrix, which does not overflow for large matrices.
+     *
+     * <p>
+     * Use {@link lu()} to obtain both this and the sign of the determinant
+     * from a single decomposition.
+     *
+     * @return the logarithm of the absolute determinant of this matrix
+     * @throws java.lang.IllegalArgumentException if this matrix is not square
+     */
+    public double logDeterminant() {
+        return lu().logAbsDeterminant();
     }
 
     /**
@@ -492,19 +1052,20 @@ public class Matrix {
         row--;
         col--;
 
-        double[][] minor = new double[getRows() - 1][getCols() - 1];
+        int n = getCols() - 1;
+        double[] minor = new double[(getRows() - 1) * n];
 
         for (int r = 0; r < row; r++) {
-            System.arraycopy(matrix[r], 0, minor[r], 0, col);
-            System.arraycopy(matrix[r], col + 1, minor[r], col, getCols() - col - 1);
+            System.arraycopy(data, index(r, 0), minor, r * n, col);
+            System.arraycopy(data, index(r, col + 1), minor, r * n + col, n - col);
         }
 
         for (int r = row + 1; r < getRows(); r++) {
-            System.arraycopy(matrix[r], 0, minor[r - 1], 0, col);
-            System.arraycopy(matrix[r], col + 1, minor[r - 1], col, getCols() - col - 1);
+            System.arraycopy(data, index(r, 0), minor, (r - 1) * n, col);
+            System.arraycopy(data, index(r, col + 1), minor, (r - 1) * n + col, n - col);
         }
 
-        return new Matrix(minor);
+        return new Matrix(minor, 0, n, new Order(getRows() - 1, n));
     }
 
     /**
@@ -535,7 +1096,7 @@ public class Matrix {
      * @return the cofactor determinant of an getEntry in this matrix
      */
     public double cofactor(Order order) {
-        return minor(order.rows, order.cols);
+        return cofactor(order.rows, order.cols);
     }
 
     /**
@@ -558,19 +1119,38 @@ public class Matrix {
      * containing the calculated cofactors of <i>each</i> getEntry, while the
      * latter will simply return a submatrix of the original matrix.
      *
+     * <p>
+     * All cofactors are obtained from a single LU decomposition, as the
+     * transposition of {@link LUDecomposition#adjugate()}.
+     *
      * @return the cofactor matrix of this matrix
+     * @throws java.lang.IllegalArgumentException if this matrix is not square
      */
     public Matrix cofactorMatrix() {
-        Matrix cofactorM = new Matrix(getRows(), getCols());
+        return lu().adjugate().transposition();
+    }
+
+    
+    /**
+     * Checks if this matrix is symmetric (equal to its transposition).
+     *
+     * @return {@code true} if and only if this matrix is square and each
+     * entry equals its reflection across the main diagonal
+     */
+    public boolean isSymmetric() {
+        if (!isSquare()) {
+            return false;
+        }
         for (int r = 0; r < getRows(); r++) {
-            for (int c = 0; c < getCols(); c++) {
-                cofactorM.matrix[r][c] = this.cofactor(r, c);
+            for (int c = 0; c < r; c++) {
+                if (data[index(r, c)] != data[index(c, r)]) {
+                    return false;
+                }
             }
         }
-        return cofactorM;
+        return true;
     }
 
-    
     public final boolean isVector() {
         return this.getRows() == 1;
     }
@@ -585,7 +1165,7 @@ public class Matrix {
     }
     
     public final SquareMatrix toSquare() {
-        return new SquareMatrix(this.matrix, this.order);
+        return new SquareMatrix(this);
     }
     
     /**
@@ -652,36 +1232,48 @@ public class Matrix {
         if (!(o instanceof Matrix)) {
             return false;
         }
-        if (!(this.hashCode() == o.hashCode())) {
+        Matrix M = (Matrix) o;
+        if (!this.isOrderOf(M)) {
             return false;
         }
-        return Arrays.deepEquals(this.matrix, ((Matrix) o).matrix);
+        for (int r = 0; r < getRows(); r++) {
+            int i = this.index(r, 0);
+            int j = M.index(r, 0);
+            for (int c = 0; c < getCols(); c++) {
+                if (Double.doubleToLongBits(this.data[i + c]) 
+                        != Double.doubleToLongBits(M.data[j + c])) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 23 * hash + Arrays.deepHashCode(this.matrix);
+        for (int r = 0; r < getRows(); r++) {
+            int i = index(r, 0);
+            for (int c = 0; c < getCols(); c++) {
+                long bits = Double.doubleToLongBits(data[i + c]);
+                hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+            }
+        }
         hash = 23 * hash + Objects.hashCode(this.order);
         return hash;
     }
 
     /**
-     * Returns a string representation of this matrix.
+     * Returns a string representation of this matrix, one row per line. A
+     * matrix of more than {@value MatrixText#SUMMARY_THRESHOLD} entries is
+     * summarized by its order and its corner entries; use {@link
+     * MatrixText#write(Matrix, Appendable)} to print it in full.
      *
-     * @return
+     * @return a string representation of this matrix
      */
     @Override
     public String toString() {
-        String str = "";
-        for (double[] row : this.matrix) {
-            str += row[0];
-            for (int r = 1; r < row.length; r++) {
-                str += " " + row[r];
-            }
-            str += "\n";
-        }
-        return str;
+        return MatrixText.toString(this);
     }
 
     @Override
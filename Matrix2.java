@@ -0,0 +1,416 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A 2 x 2 matrix whose entries are held in 4 scalar fields.
+ *
+ * <p>
+ * Every operation is written out entry by entry, without loops, arrays or
+ * bounds checks, so that small transforms avoid the overhead of a general
+ * {@link Matrix}. Operations returning a new Matrix2 have an {@code Into}
+ * variant which stores the result in a destination instead and so
+ * allocates nothing; the destination may be this matrix or an operand, as
+ * every entry of the result is computed before any is stored. Many
+ * vectors are transformed at once with {@link #timesInto(Vector2Batch,
+ * Vector2Batch)}.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class Matrix2 {
+
+    private double m11, m12;
+    private double m21, m22;
+
+    /**
+     * Constructs a zero matrix.
+     */
+    public Matrix2() {
+    }
+
+    /**
+     * Constructs a matrix from its entries, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     */
+    public Matrix2(double m11, double m12,
+            double m21, double m22) {
+        set(m11, m12, m21, m22);
+    }
+
+    /**
+     * Constructs a copy of a matrix.
+     *
+     * @param M the matrix to copy
+     */
+    public Matrix2(Matrix2 M) {
+        set(M);
+    }
+
+    /**
+     * Returns the 2 x 2 identity matrix.
+     *
+     * @return a new identity matrix
+     */
+    public static Matrix2 identity() {
+        Matrix2 I = new Matrix2();
+        I.m11 = 1.0;
+        I.m22 = 1.0;
+        return I;
+    }
+
+    /**
+     * Returns a 2 x 2 matrix with the entries of a general matrix.
+     *
+     * @param M a matrix of order 2 x 2
+     * @return a new matrix equal to the argument
+     * @throws java.lang.IllegalArgumentException if the matrix is not
+     * 2 x 2
+     */
+    public static Matrix2 of(Matrix M) {
+        if (M.getRows() != 2 || M.getCols() != 2) {
+            throw new IllegalArgumentException("Matrix must be 2 x 2");
+        }
+        int r1 = M.index(0, 0);
+        int r2 = M.index(1, 0);
+        return new Matrix2(
+                M.data[r1], M.data[r1 + 1],
+                M.data[r2], M.data[r2 + 1]);
+    }
+
+    /**
+     * Returns a general matrix with the entries of this matrix.
+     *
+     * @return a new 2 x 2 matrix equal to this
+     */
+    public Matrix toMatrix() {
+        return new Matrix(new double[] {
+            m11, m12,
+            m21, m22
+        }, 0, 2, new Order(2, 2));
+    }
+
+    /**
+     * Sets the entries of this matrix, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     * @return this matrix
+     */
+    public Matrix2 set(double m11, double m12,
+            double m21, double m22) {
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m21 = m21;
+        this.m22 = m22;
+        return this;
+    }
+
+    /**
+     * Sets the entries of this matrix to those of another.
+     *
+     * @param M the matrix to copy
+     * @return this matrix
+     */
+    public Matrix2 set(Matrix2 M) {
+        return set(M.m11, M.m12, M.m21, M.m22);
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the matrix
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 2
+     */
+    public double getEntry(int row, int col) {
+        switch (key(row, col)) {
+            case 11: return m11;
+            case 12: return m12;
+            case 21: return m21;
+            case 22: return m22;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Sets the entry at the specified row and column to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 2
+     */
+    public void setEntry(int row, int col, double a) {
+        switch (key(row, col)) {
+            case 11: m11 = a; break;
+            case 12: m12 = a; break;
+            case 21: m21 = a; break;
+            case 22: m22 = a; break;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Returns the row and column as the two digits of a number, or -1 if
+     * either is out of range.
+     */
+    private static int key(int row, int col) {
+        return row < 1 || row > 2 || col < 1 || col > 2 ? -1 : 10 * row + col;
+    }
+
+    /**
+     * Returns the determinant of this matrix, computed in closed form.
+     *
+     * @return the determinant of this matrix
+     */
+    public double determinant() {
+        return m11 * m22 - m12 * m21;
+    }
+
+    /**
+     * Returns the sum of the diagonal entries of this matrix.
+     *
+     * @return the trace of this matrix
+     */
+    public double trace() {
+        return m11 + m22;
+    }
+
+    /**
+     * Returns the sum of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the sum
+     */
+    public Matrix2 plus(Matrix2 M) {
+        return plusInto(M, new Matrix2());
+    }
+
+    /**
+     * Stores the sum of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the sum in
+     * @return the destination
+     */
+    public Matrix2 plusInto(Matrix2 M, Matrix2 dest) {
+        return dest.set(m11 + M.m11, m12 + M.m12, m21 + M.m21, m22 + M.m22);
+    }
+
+    /**
+     * Returns the difference of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the difference
+     */
+    public Matrix2 minus(Matrix2 M) {
+        return minusInto(M, new Matrix2());
+    }
+
+    /**
+     * Stores the difference of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the difference in
+     * @return the destination
+     */
+    public Matrix2 minusInto(Matrix2 M, Matrix2 dest) {
+        return dest.set(m11 - M.m11, m12 - M.m12, m21 - M.m21, m22 - M.m22);
+    }
+
+    /**
+     * Returns the product of this matrix and a scalar.
+     *
+     * @param k a scalar
+     * @return a new matrix holding the product
+     */
+    public Matrix2 times(double k) {
+        return timesInto(k, new Matrix2());
+    }
+
+    /**
+     * Stores the product of this matrix and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix2 timesInto(double k, Matrix2 dest) {
+        return dest.set(m11 * k, m12 * k, m21 * k, m22 * k);
+    }
+
+    /**
+     * Returns the product of this and another matrix.
+     *
+     * @param M the right operand
+     * @return a new matrix holding the product
+     */
+    public Matrix2 times(Matrix2 M) {
+        return timesInto(M, new Matrix2());
+    }
+
+    /**
+     * Stores the product of this and another matrix in a destination.
+     *
+     * @param M the right operand
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix2 timesInto(Matrix2 M, Matrix2 dest) {
+        return dest.set(
+                m11 * M.m11 + m12 * M.m21,
+                m11 * M.m12 + m12 * M.m22,
+                m21 * M.m11 + m22 * M.m21,
+                m21 * M.m12 + m22 * M.m22);
+    }
+
+    /**
+     * Returns the product of this matrix and a column vector.
+     *
+     * @param v the vector to transform
+     * @return a new vector holding the product
+     */
+    public Vector2 times(Vector2 v) {
+        return timesInto(v, new Vector2());
+    }
+
+    /**
+     * Stores the product of this matrix and a column vector in a
+     * destination.
+     *
+     * @param v the vector to transform
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector2 timesInto(Vector2 v, Vector2 dest) {
+        double x = v.x, y = v.y;
+        return dest.set(
+                m11 * x + m12 * y,
+                m21 * x + m22 * y);
+    }
+
+    /**
+     * Stores the products of this matrix and each vector of a batch in
+     * another batch, which may be the same.
+     *
+     * <p>
+     * The entries of this matrix are read once, and each component is
+     * streamed from and to its own array.
+     *
+     * @param src the vectors to transform
+     * @param dest the batch to store the products in
+     * @return the destination
+     * @throws java.lang.IllegalArgumentException if the batches are not of
+     * the same size
+     */
+    public Vector2Batch timesInto(Vector2Batch src, Vector2Batch dest) {
+        if (src.size() != dest.size()) {
+            throw new IllegalArgumentException("Batch sizes not equal");
+        }
+        double a11 = m11, a12 = m12;
+        double a21 = m21, a22 = m22;
+        double[] x = src.x, y = src.y;
+        double[] X = dest.x, Y = dest.y;
+        for (int i = 0; i < src.size(); i++) {
+            double xi = x[i], yi = y[i];
+            X[i] = a11 * xi + a12 * yi;
+            Y[i] = a21 * xi + a22 * yi;
+        }
+        return dest;
+    }
+
+    /**
+     * Returns the transposition of this matrix.
+     *
+     * @return a new matrix holding the transposition
+     */
+    public Matrix2 transposition() {
+        return transposeInto(new Matrix2());
+    }
+
+    /**
+     * Stores the transposition of this matrix in a destination.
+     *
+     * @param dest the matrix to store the transposition in
+     * @return the destination
+     */
+    public Matrix2 transposeInto(Matrix2 dest) {
+        return dest.set(m11, m21, m12, m22);
+    }
+
+    /**
+     * Returns the inverse of this matrix.
+     *
+     * @return a new matrix holding the inverse
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix2 inverse() {
+        return inverseInto(new Matrix2());
+    }
+
+    /**
+     * Stores the inverse of this matrix, computed in closed form from its
+     * adjugate, in a destination.
+     *
+     * @param dest the matrix to store the inverse in
+     * @return the destination
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix2 inverseInto(Matrix2 dest) {
+        double det = determinant();
+        if (det == 0.0) {
+            throw new ArithmeticException("Matrix is singular");
+        }
+        double k = 1.0 / det;
+        return dest.set(m22 * k, -m12 * k, -m21 * k, m11 * k);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix2)) {
+            return false;
+        }
+        Matrix2 M = (Matrix2) o;
+        return bits(m11) == bits(M.m11)
+                && bits(m12) == bits(M.m12)
+                && bits(m21) == bits(M.m21)
+                && bits(m22) == bits(M.m22);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + bits(m11);
+        hash = 31 * hash + bits(m12);
+        hash = 31 * hash + bits(m21);
+        hash = 31 * hash + bits(m22);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long bits(double a) {
+        return Double.doubleToLongBits(a);
+    }
+
+    @Override
+    public String toString() {
+        return toMatrix().toString();
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A 3 x 3 matrix whose entries are held in 9 scalar fields.
+ *
+ * <p>
+ * Every operation is written out entry by entry, without loops, arrays or
+ * bounds checks, so that small transforms avoid the overhead of a general
+ * {@link Matrix}. Operations returning a new Matrix3 have an {@code Into}
+ * variant which stores the result in a destination instead and so
+ * allocates nothing; the destination may be this matrix or an operand, as
+ * every entry of the result is computed before any is stored. Many
+ * vectors are transformed at once with {@link #timesInto(Vector3Batch,
+ * Vector3Batch)}.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class Matrix3 {
+
+    private double m11, m12, m13;
+    private double m21, m22, m23;
+    private double m31, m32, m33;
+
+    /**
+     * Constructs a zero matrix.
+     */
+    public Matrix3() {
+    }
+
+    /**
+     * Constructs a matrix from its entries, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m13 the entry in row 1, column 3
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     * @param m23 the entry in row 2, column 3
+     * @param m31 the entry in row 3, column 1
+     * @param m32 the entry in row 3, column 2
+     * @param m33 the entry in row 3, column 3
+     */
+    public Matrix3(double m11, double m12, double m13,
+            double m21, double m22, double m23,
+            double m31, double m32, double m33) {
+        set(m11, m12, m13, m21, m22, m23, m31, m32, m33);
+    }
+
+    /**
+     * Constructs a copy of a matrix.
+     *
+     * @param M the matrix to copy
+     */
+    public Matrix3(Matrix3 M) {
+        set(M);
+    }
+
+    /**
+     * Returns the 3 x 3 identity matrix.
+     *
+     * @return a new identity matrix
+     */
+    public static Matrix3 identity() {
+        Matrix3 I = new Matrix3();
+        I.m11 = 1.0;
+        I.m22 = 1.0;
+        I.m33 = 1.0;
+        return I;
+    }
+
+    /**
+     * Returns a 3 x 3 matrix with the entries of a general matrix.
+     *
+     * @param M a matrix of order 3 x 3
+     * @return a new matrix equal to the argument
+     * @throws java.lang.IllegalArgumentException if the matrix is not
+     * 3 x 3
+     */
+    public static Matrix3 of(Matrix M) {
+        if (M.getRows() != 3 || M.getCols() != 3) {
+            throw new IllegalArgumentException("Matrix must be 3 x 3");
+        }
+        int r1 = M.index(0, 0);
+        int r2 = M.index(1, 0);
+        int r3 = M.index(2, 0);
+        return new Matrix3(
+                M.data[r1], M.data[r1 + 1], M.data[r1 + 2],
+                M.data[r2], M.data[r2 + 1], M.data[r2 + 2],
+                M.data[r3], M.data[r3 + 1], M.data[r3 + 2]);
+    }
+
+    /**
+     * Returns a general matrix with the entries of this matrix.
+     *
+     * @return a new 3 x 3 matrix equal to this
+     */
+    public Matrix toMatrix() {
+        return new Matrix(new double[] {
+            m11, m12, m13,
+            m21, m22, m23,
+            m31, m32, m33
+        }, 0, 3, new Order(3, 3));
+    }
+
+    /**
+     * Sets the entries of this matrix, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m13 the entry in row 1, column 3
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     * @param m23 the entry in row 2, column 3
+     * @param m31 the entry in row 3, column 1
+     * @param m32 the entry in row 3, column 2
+     * @param m33 the entry in row 3, column 3
+     * @return this matrix
+     */
+    public Matrix3 set(double m11, double m12, double m13,
+            double m21, double m22, double m23,
+            double m31, double m32, double m33) {
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+        this.m31 = m31;
+        this.m32 = m32;
+        this.m33 = m33;
+        return this;
+    }
+
+    /**
+     * Sets the entries of this matrix to those of another.
+     *
+     * @param M the matrix to copy
+     * @return this matrix
+     */
+    public Matrix3 set(Matrix3 M) {
+        return set(M.m11, M.m12, M.m13, M.m21, M.m22, M.m23, M.m31, M.m32,
+                M.m33);
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the matrix
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 3
+     */
+    public double getEntry(int row, int col) {
+        switch (key(row, col)) {
+            case 11: return m11;
+            case 12: return m12;
+            case 13: return m13;
+            case 21: return m21;
+            case 22: return m22;
+            case 23: return m23;
+            case 31: return m31;
+            case 32: return m32;
+            case 33: return m33;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Sets the entry at the specified row and column to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 3
+     */
+    public void setEntry(int row, int col, double a) {
+        switch (key(row, col)) {
+            case 11: m11 = a; break;
+            case 12: m12 = a; break;
+            case 13: m13 = a; break;
+            case 21: m21 = a; break;
+            case 22: m22 = a; break;
+            case 23: m23 = a; break;
+            case 31: m31 = a; break;
+            case 32: m32 = a; break;
+            case 33: m33 = a; break;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Returns the row and column as the two digits of a number, or -1 if
+     * either is out of range.
+     */
+    private static int key(int row, int col) {
+        return row < 1 || row > 3 || col < 1 || col > 3 ? -1 : 10 * row + col;
+    }
+
+    /**
+     * Returns the determinant of this matrix, computed in closed form.
+     *
+     * @return the determinant of this matrix
+     */
+    public double determinant() {
+        return m11 * (m22 * m33 - m23 * m32)
+                + m12 * (m23 * m31 - m21 * m33)
+                + m13 * (m21 * m32 - m22 * m31);
+    }
+
+    /**
+     * Returns the sum of the diagonal entries of this matrix.
+     *
+     * @return the trace of this matrix
+     */
+    public double trace() {
+        return m11 + m22 + m33;
+    }
+
+    /**
+     * Returns the sum of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the sum
+     */
+    public Matrix3 plus(Matrix3 M) {
+        return plusInto(M, new Matrix3());
+    }
+
+    /**
+     * Stores the sum of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the sum in
+     * @return the destination
+     */
+    public Matrix3 plusInto(Matrix3 M, Matrix3 dest) {
+        return dest.set(m11 + M.m11, m12 + M.m12, m13 + M.m13, m21 + M.m21,
+                m22 + M.m22, m23 + M.m23, m31 + M.m31, m32 + M.m32,
+                m33 + M.m33);
+    }
+
+    /**
+     * Returns the difference of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the difference
+     */
+    public Matrix3 minus(Matrix3 M) {
+        return minusInto(M, new Matrix3());
+    }
+
+    /**
+     * Stores the difference of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the difference in
+     * @return the destination
+     */
+    public Matrix3 minusInto(Matrix3 M, Matrix3 dest) {
+        return dest.set(m11 - M.m11, m12 - M.m12, m13 - M.m13, m21 - M.m21,
+                m22 - M.m22, m23 - M.m23, m31 - M.m31, m32 - M.m32,
+                m33 - M.m33);
+    }
+
+    /**
+     * Returns the product of this matrix and a scalar.
+     *
+     * @param k a scalar
+     * @return a new matrix holding the product
+     */
+    public Matrix3 times(double k) {
+        return timesInto(k, new Matrix3());
+    }
+
+    /**
+     * Stores the product of this matrix and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix3 timesInto(double k, Matrix3 dest) {
+        return dest.set(m11 * k, m12 * k, m13 * k, m21 * k, m22 * k, m23 * k,
+                m31 * k, m32 * k, m33 * k);
+    }
+
+    /**
+     * Returns the product of this and another matrix.
+     *
+     * @param M the right operand
+     * @return a new matrix holding the product
+     */
+    public Matrix3 times(Matrix3 M) {
+        return timesInto(M, new Matrix3());
+    }
+
+    /**
+     * Stores the product of this and another matrix in a destination.
+     *
+     * @param M the right operand
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix3 timesInto(Matrix3 M, Matrix3 dest) {
+        return dest.set(
+                m11 * M.m11 + m12 * M.m21 + m13 * M.m31,
+                m11 * M.m12 + m12 * M.m22 + m13 * M.m32,
+                m11 * M.m13 + m12 * M.m23 + m13 * M.m33,
+                m21 * M.m11 + m22 * M.m21 + m23 * M.m31,
+                m21 * M.m12 + m22 * M.m22 + m23 * M.m32,
+                m21 * M.m13 + m22 * M.m23 + m23 * M.m33,
+                m31 * M.m11 + m32 * M.m21 + m33 * M.m31,
+                m31 * M.m12 + m32 * M.m22 + m33 * M.m32,
+                m31 * M.m13 + m32 * M.m23 + m33 * M.m33);
+    }
+
+    /**
+     * Returns the product of this matrix and a column vector.
+     *
+     * @param v the vector to transform
+     * @return a new vector holding the product
+     */
+    public Vector3 times(Vector3 v) {
+        return timesInto(v, new Vector3());
+    }
+
+    /**
+     * Stores the product of this matrix and a column vector in a
+     * destination.
+     *
+     * @param v the vector to transform
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector3 timesInto(Vector3 v, Vector3 dest) {
+        double x = v.x, y = v.y, z = v.z;
+        return dest.set(
+                m11 * x + m12 * y + m13 * z,
+                m21 * x + m22 * y + m23 * z,
+                m31 * x + m32 * y + m33 * z);
+    }
+
+    /**
+     * Stores the products of this matrix and each vector of a batch in
+     * another batch, which may be the same.
+     *
+     * <p>
+     * The entries of this matrix are read once, and each component is
+     * streamed from and to its own array.
+     *
+     * @param src the vectors to transform
+     * @param dest the batch to store the products in
+     * @return the destination
+     * @throws java.lang.IllegalArgumentException if the batches are not of
+     * the same size
+     */
+    public Vector3Batch timesInto(Vector3Batch src, Vector3Batch dest) {
+        if (src.size() != dest.size()) {
+            throw new IllegalArgumentException("Batch sizes not equal");
+        }
+        double a11 = m11, a12 = m12, a13 = m13;
+        double a21 = m21, a22 = m22, a23 = m23;
+        double a31 = m31, a32 = m32, a33 = m33;
+        double[] x = src.x, y = src.y, z = src.z;
+        double[] X = dest.x, Y = dest.y, Z = dest.z;
+        for (int i = 0; i < src.size(); i++) {
+            double xi = x[i], yi = y[i], zi = z[i];
+            X[i] = a11 * xi + a12 * yi + a13 * zi;
+            Y[i] = a21 * xi + a22 * yi + a23 * zi;
+            Z[i] = a31 * xi + a32 * yi + a33 * zi;
+        }
+        return dest;
+    }
+
+    /**
+     * Returns the transposition of this matrix.
+     *
+     * @return a new matrix holding the transposition
+     */
+    public Matrix3 transposition() {
+        return transposeInto(new Matrix3());
+    }
+
+    /**
+     * Stores the transposition of this matrix in a destination.
+     *
+     * @param dest the matrix to store the transposition in
+     * @return the destination
+     */
+    public Matrix3 transposeInto(Matrix3 dest) {
+        return dest.set(m11, m21, m31, m12, m22, m32, m13, m23, m33);
+    }
+
+    /**
+     * Returns the inverse of this matrix.
+     *
+     * @return a new matrix holding the inverse
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix3 inverse() {
+        return inverseInto(new Matrix3());
+    }
+
+    /**
+     * Stores the inverse of this matrix, computed in closed form from its
+     * adjugate, in a destination.
+     *
+     * @param dest the matrix to store the inverse in
+     * @return the destination
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix3 inverseInto(Matrix3 dest) {
+        double c11 = m22 * m33 - m23 * m32;
+        double c12 = m23 * m31 - m21 * m33;
+        double c13 = m21 * m32 - m22 * m31;
+        double det = m11 * c11 + m12 * c12 + m13 * c13;
+        if (det == 0.0) {
+            throw new ArithmeticException("Matrix is singular");
+        }
+        double k = 1.0 / det;
+        return dest.set(
+                c11 * k, (m13 * m32 - m12 * m33) * k, (m12 * m23 - m13 * m22) * k,
+                c12 * k, (m11 * m33 - m13 * m31) * k, (m13 * m21 - m11 * m23) * k,
+                c13 * k, (m12 * m31 - m11 * m32) * k, (m11 * m22 - m12 * m21) * k);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix3)) {
+            return false;
+        }
+        Matrix3 M = (Matrix3) o;
+        return bits(m11) == bits(M.m11)
+                && bits(m12) == bits(M.m12)
+                && bits(m13) == bits(M.m13)
+                && bits(m21) == bits(M.m21)
+                && bits(m22) == bits(M.m22)
+                && bits(m23) == bits(M.m23)
+                && bits(m31) == bits(M.m31)
+                && bits(m32) == bits(M.m32)
+                && bits(m33) == bits(M.m33);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + bits(m11);
+        hash = 31 * hash + bits(m12);
+        hash = 31 * hash + bits(m13);
+        hash = 31 * hash + bits(m21);
+        hash = 31 * hash + bits(m22);
+        hash = 31 * hash + bits(m23);
+        hash = 31 * hash + bits(m31);
+        hash = 31 * hash + bits(m32);
+        hash = 31 * hash + bits(m33);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long bits(double a) {
+        return Double.doubleToLongBits(a);
+    }
+
+    @Override
+    public String toString() {
+        return toMatrix().toString();
+    }
+}
@@ -0,0 +1,585 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A 4 x 4 matrix whose entries are held in 16 scalar fields.
+ *
+ * <p>
+ * Every operation is written out entry by entry, without loops, arrays or
+ * bounds checks, so that small transforms avoid the overhead of a general
+ * {@link Matrix}. Operations returning a new Matrix4 have an {@code Into}
+ * variant which stores the result in a destination instead and so
+ * allocates nothing; the destination may be this matrix or an operand, as
+ * every entry of the result is computed before any is stored. Many
+ * vectors are transformed at once with {@link #timesInto(Vector4Batch,
+ * Vector4Batch)}.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class Matrix4 {
+
+    private double m11, m12, m13, m14;
+    private double m21, m22, m23, m24;
+    private double m31, m32, m33, m34;
+    private double m41, m42, m43, m44;
+
+    /**
+     * Constructs a zero matrix.
+     */
+    public Matrix4() {
+    }
+
+    /**
+     * Constructs a matrix from its entries, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m13 the entry in row 1, column 3
+     * @param m14 the entry in row 1, column 4
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     * @param m23 the entry in row 2, column 3
+     * @param m24 the entry in row 2, column 4
+     * @param m31 the entry in row 3, column 1
+     * @param m32 the entry in row 3, column 2
+     * @param m33 the entry in row 3, column 3
+     * @param m34 the entry in row 3, column 4
+     * @param m41 the entry in row 4, column 1
+     * @param m42 the entry in row 4, column 2
+     * @param m43 the entry in row 4, column 3
+     * @param m44 the entry in row 4, column 4
+     */
+    public Matrix4(double m11, double m12, double m13, double m14,
+            double m21, double m22, double m23, double m24,
+            double m31, double m32, double m33, double m34,
+            double m41, double m42, double m43, double m44) {
+        set(m11, m12, m13, m14, m21, m22, m23, m24, m31, m32, m33, m34, m41,
+                m42, m43, m44);
+    }
+
+    /**
+     * Constructs a copy of a matrix.
+     *
+     * @param M the matrix to copy
+     */
+    public Matrix4(Matrix4 M) {
+        set(M);
+    }
+
+    /**
+     * Returns the 4 x 4 identity matrix.
+     *
+     * @return a new identity matrix
+     */
+    public static Matrix4 identity() {
+        Matrix4 I = new Matrix4();
+        I.m11 = 1.0;
+        I.m22 = 1.0;
+        I.m33 = 1.0;
+        I.m44 = 1.0;
+        return I;
+    }
+
+    /**
+     * Returns a 4 x 4 matrix with the entries of a general matrix.
+     *
+     * @param M a matrix of order 4 x 4
+     * @return a new matrix equal to the argument
+     * @throws java.lang.IllegalArgumentException if the matrix is not
+     * 4 x 4
+     */
+    public static Matrix4 of(Matrix M) {
+        if (M.getRows() != 4 || M.getCols() != 4) {
+            throw new IllegalArgumentException("Matrix must be 4 x 4");
+        }
+        int r1 = M.index(0, 0);
+        int r2 = M.index(1, 0);
+        int r3 = M.index(2, 0);
+        int r4 = M.index(3, 0);
+        return new Matrix4(
+                M.data[r1], M.data[r1 + 1], M.data[r1 + 2], M.data[r1 + 3],
+                M.data[r2], M.data[r2 + 1], M.data[r2 + 2], M.data[r2 + 3],
+                M.data[r3], M.data[r3 + 1], M.data[r3 + 2], M.data[r3 + 3],
+                M.data[r4], M.data[r4 + 1], M.data[r4 + 2], M.data[r4 + 3]);
+    }
+
+    /**
+     * Returns a general matrix with the entries of this matrix.
+     *
+     * @return a new 4 x 4 matrix equal to this
+     */
+    public Matrix toMatrix() {
+        return new Matrix(new double[] {
+            m11, m12, m13, m14,
+            m21, m22, m23, m24,
+            m31, m32, m33, m34,
+            m41, m42, m43, m44
+        }, 0, 4, new Order(4, 4));
+    }
+
+    /**
+     * Sets the entries of this matrix, listed row by row.
+     *
+     * @param m11 the entry in row 1, column 1
+     * @param m12 the entry in row 1, column 2
+     * @param m13 the entry in row 1, column 3
+     * @param m14 the entry in row 1, column 4
+     * @param m21 the entry in row 2, column 1
+     * @param m22 the entry in row 2, column 2
+     * @param m23 the entry in row 2, column 3
+     * @param m24 the entry in row 2, column 4
+     * @param m31 the entry in row 3, column 1
+     * @param m32 the entry in row 3, column 2
+     * @param m33 the entry in row 3, column 3
+     * @param m34 the entry in row 3, column 4
+     * @param m41 the entry in row 4, column 1
+     * @param m42 the entry in row 4, column 2
+     * @param m43 the entry in row 4, column 3
+     * @param m44 the entry in row 4, column 4
+     * @return this matrix
+     */
+    public Matrix4 set(double m11, double m12, double m13, double m14,
+            double m21, double m22, double m23, double m24,
+            double m31, double m32, double m33, double m34,
+            double m41, double m42, double m43, double m44) {
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m14 = m14;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+        this.m24 = m24;
+        this.m31 = m31;
+        this.m32 = m32;
+        this.m33 = m33;
+        this.m34 = m34;
+        this.m41 = m41;
+        this.m42 = m42;
+        this.m43 = m43;
+        this.m44 = m44;
+        return this;
+    }
+
+    /**
+     * Sets the entries of this matrix to those of another.
+     *
+     * @param M the matrix to copy
+     * @return this matrix
+     */
+    public Matrix4 set(Matrix4 M) {
+        return set(M.m11, M.m12, M.m13, M.m14, M.m21, M.m22, M.m23, M.m24,
+                M.m31, M.m32, M.m33, M.m34, M.m41, M.m42, M.m43, M.m44);
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the matrix
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 4
+     */
+    public double getEntry(int row, int col) {
+        switch (key(row, col)) {
+            case 11: return m11;
+            case 12: return m12;
+            case 13: return m13;
+            case 14: return m14;
+            case 21: return m21;
+            case 22: return m22;
+            case 23: return m23;
+            case 24: return m24;
+            case 31: return m31;
+            case 32: return m32;
+            case 33: return m33;
+            case 34: return m34;
+            case 41: return m41;
+            case 42: return m42;
+            case 43: return m43;
+            case 44: return m44;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Sets the entry at the specified row and column to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     * @throws java.lang.IndexOutOfBoundsException if the row or column is
+     * not between 1 and 4
+     */
+    public void setEntry(int row, int col, double a) {
+        switch (key(row, col)) {
+            case 11: m11 = a; break;
+            case 12: m12 = a; break;
+            case 13: m13 = a; break;
+            case 14: m14 = a; break;
+            case 21: m21 = a; break;
+            case 22: m22 = a; break;
+            case 23: m23 = a; break;
+            case 24: m24 = a; break;
+            case 31: m31 = a; break;
+            case 32: m32 = a; break;
+            case 33: m33 = a; break;
+            case 34: m34 = a; break;
+            case 41: m41 = a; break;
+            case 42: m42 = a; break;
+            case 43: m43 = a; break;
+            case 44: m44 = a; break;
+            default: throw new IndexOutOfBoundsException(row + ", " + col);
+        }
+    }
+
+    /**
+     * Returns the row and column as the two digits of a number, or -1 if
+     * either is out of range.
+     */
+    private static int key(int row, int col) {
+        return row < 1 || row > 4 || col < 1 || col > 4 ? -1 : 10 * row + col;
+    }
+
+    /**
+     * Returns the determinant of this matrix, computed in closed form.
+     *
+     * @return the determinant of this matrix
+     */
+    public double determinant() {
+        // 2 x 2 minors of the top two rows (s) and the bottom two rows (c)
+        double s0 = m11 * m22 - m21 * m12;
+        double s1 = m11 * m23 - m21 * m13;
+        double s2 = m11 * m24 - m21 * m14;
+        double s3 = m12 * m23 - m22 * m13;
+        double s4 = m12 * m24 - m22 * m14;
+        double s5 = m13 * m24 - m23 * m14;
+        double c5 = m33 * m44 - m43 * m34;
+        double c4 = m32 * m44 - m42 * m34;
+        double c3 = m32 * m43 - m42 * m33;
+        double c2 = m31 * m44 - m41 * m34;
+        double c1 = m31 * m43 - m41 * m33;
+        double c0 = m31 * m42 - m41 * m32;
+        return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+    }
+
+    /**
+     * Returns the sum of the diagonal entries of this matrix.
+     *
+     * @return the trace of this matrix
+     */
+    public double trace() {
+        return m11 + m22 + m33 + m44;
+    }
+
+    /**
+     * Returns the sum of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the sum
+     */
+    public Matrix4 plus(Matrix4 M) {
+        return plusInto(M, new Matrix4());
+    }
+
+    /**
+     * Stores the sum of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the sum in
+     * @return the destination
+     */
+    public Matrix4 plusInto(Matrix4 M, Matrix4 dest) {
+        return dest.set(m11 + M.m11, m12 + M.m12, m13 + M.m13, m14 + M.m14,
+                m21 + M.m21, m22 + M.m22, m23 + M.m23, m24 + M.m24, m31 + M.m31,
+                m32 + M.m32, m33 + M.m33, m34 + M.m34, m41 + M.m41, m42 + M.m42,
+                m43 + M.m43, m44 + M.m44);
+    }
+
+    /**
+     * Returns the difference of this and another matrix.
+     *
+     * @param M a matrix
+     * @return a new matrix holding the difference
+     */
+    public Matrix4 minus(Matrix4 M) {
+        return minusInto(M, new Matrix4());
+    }
+
+    /**
+     * Stores the difference of this and another matrix in a destination.
+     *
+     * @param M a matrix
+     * @param dest the matrix to store the difference in
+     * @return the destination
+     */
+    public Matrix4 minusInto(Matrix4 M, Matrix4 dest) {
+        return dest.set(m11 - M.m11, m12 - M.m12, m13 - M.m13, m14 - M.m14,
+                m21 - M.m21, m22 - M.m22, m23 - M.m23, m24 - M.m24, m31 - M.m31,
+                m32 - M.m32, m33 - M.m33, m34 - M.m34, m41 - M.m41, m42 - M.m42,
+                m43 - M.m43, m44 - M.m44);
+    }
+
+    /**
+     * Returns the product of this matrix and a scalar.
+     *
+     * @param k a scalar
+     * @return a new matrix holding the product
+     */
+    public Matrix4 times(double k) {
+        return timesInto(k, new Matrix4());
+    }
+
+    /**
+     * Stores the product of this matrix and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix4 timesInto(double k, Matrix4 dest) {
+        return dest.set(m11 * k, m12 * k, m13 * k, m14 * k, m21 * k, m22 * k,
+                m23 * k, m24 * k, m31 * k, m32 * k, m33 * k, m34 * k, m41 * k,
+                m42 * k, m43 * k, m44 * k);
+    }
+
+    /**
+     * Returns the product of this and another matrix.
+     *
+     * @param M the right operand
+     * @return a new matrix holding the product
+     */
+    public Matrix4 times(Matrix4 M) {
+        return timesInto(M, new Matrix4());
+    }
+
+    /**
+     * Stores the product of this and another matrix in a destination.
+     *
+     * @param M the right operand
+     * @param dest the matrix to store the product in
+     * @return the destination
+     */
+    public Matrix4 timesInto(Matrix4 M, Matrix4 dest) {
+        return dest.set(
+                m11 * M.m11 + m12 * M.m21 + m13 * M.m31 + m14 * M.m41,
+                m11 * M.m12 + m12 * M.m22 + m13 * M.m32 + m14 * M.m42,
+                m11 * M.m13 + m12 * M.m23 + m13 * M.m33 + m14 * M.m43,
+                m11 * M.m14 + m12 * M.m24 + m13 * M.m34 + m14 * M.m44,
+                m21 * M.m11 + m22 * M.m21 + m23 * M.m31 + m24 * M.m41,
+                m21 * M.m12 + m22 * M.m22 + m23 * M.m32 + m24 * M.m42,
+                m21 * M.m13 + m22 * M.m23 + m23 * M.m33 + m24 * M.m43,
+                m21 * M.m14 + m22 * M.m24 + m23 * M.m34 + m24 * M.m44,
+                m31 * M.m11 + m32 * M.m21 + m33 * M.m31 + m34 * M.m41,
+                m31 * M.m12 + m32 * M.m22 + m33 * M.m32 + m34 * M.m42,
+                m31 * M.m13 + m32 * M.m23 + m33 * M.m33 + m34 * M.m43,
+                m31 * M.m14 + m32 * M.m24 + m33 * M.m34 + m34 * M.m44,
+                m41 * M.m11 + m42 * M.m21 + m43 * M.m31 + m44 * M.m41,
+                m41 * M.m12 + m42 * M.m22 + m43 * M.m32 + m44 * M.m42,
+                m41 * M.m13 + m42 * M.m23 + m43 * M.m33 + m44 * M.m43,
+                m41 * M.m14 + m42 * M.m24 + m43 * M.m34 + m44 * M.m44);
+    }
+
+    /**
+     * Returns the product of this matrix and a column vector.
+     *
+     * @param v the vector to transform
+     * @return a new vector holding the product
+     */
+    public Vector4 times(Vector4 v) {
+        return timesInto(v, new Vector4());
+    }
+
+    /**
+     * Stores the product of this matrix and a column vector in a
+     * destination.
+     *
+     * @param v the vector to transform
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector4 timesInto(Vector4 v, Vector4 dest) {
+        double x = v.x, y = v.y, z = v.z, w = v.w;
+        return dest.set(
+                m11 * x + m12 * y + m13 * z + m14 * w,
+                m21 * x + m22 * y + m23 * z + m24 * w,
+                m31 * x + m32 * y + m33 * z + m34 * w,
+                m41 * x + m42 * y + m43 * z + m44 * w);
+    }
+
+    /**
+     * Stores the products of this matrix and each vector of a batch in
+     * another batch, which may be the same.
+     *
+     * <p>
+     * The entries of this matrix are read once, and each component is
+     * streamed from and to its own array.
+     *
+     * @param src the vectors to transform
+     * @param dest the batch to store the products in
+     * @return the destination
+     * @throws java.lang.IllegalArgumentException if the batches are not of
+     * the same size
+     */
+    public Vector4Batch timesInto(Vector4Batch src, Vector4Batch dest) {
+        if (src.size() != dest.size()) {
+            throw new IllegalArgumentException("Batch sizes not equal");
+        }
+        double a11 = m11, a12 = m12, a13 = m13, a14 = m14;
+        double a21 = m21, a22 = m22, a23 = m23, a24 = m24;
+        double a31 = m31, a32 = m32, a33 = m33, a34 = m34;
+        double a41 = m41, a42 = m42, a43 = m43, a44 = m44;
+        double[] x = src.x, y = src.y, z = src.z, w = src.w;
+        double[] X = dest.x, Y = dest.y, Z = dest.z, W = dest.w;
+        for (int i = 0; i < src.size(); i++) {
+            double xi = x[i], yi = y[i], zi = z[i], wi = w[i];
+            X[i] = a11 * xi + a12 * yi + a13 * zi + a14 * wi;
+            Y[i] = a21 * xi + a22 * yi + a23 * zi + a24 * wi;
+            Z[i] = a31 * xi + a32 * yi + a33 * zi + a34 * wi;
+            W[i] = a41 * xi + a42 * yi + a43 * zi + a44 * wi;
+        }
+        return dest;
+    }
+
+    /**
+     * Returns the transposition of this matrix.
+     *
+     * @return a new matrix holding the transposition
+     */
+    public Matrix4 transposition() {
+        return transposeInto(new Matrix4());
+    }
+
+    /**
+     * Stores the transposition of this matrix in a destination.
+     *
+     * @param dest the matrix to store the transposition in
+     * @return the destination
+     */
+    public Matrix4 transposeInto(Matrix4 dest) {
+        return dest.set(m11, m21, m31, m41, m12, m22, m32, m42, m13, m23, m33,
+                m43, m14, m24, m34, m44);
+    }
+
+    /**
+     * Returns the inverse of this matrix.
+     *
+     * @return a new matrix holding the inverse
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix4 inverse() {
+        return inverseInto(new Matrix4());
+    }
+
+    /**
+     * Stores the inverse of this matrix, computed in closed form from its
+     * adjugate, in a destination.
+     *
+     * @param dest the matrix to store the inverse in
+     * @return the destination
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix4 inverseInto(Matrix4 dest) {
+        // 2 x 2 minors of the top two rows (s) and the bottom two rows (c)
+        double s0 = m11 * m22 - m21 * m12;
+        double s1 = m11 * m23 - m21 * m13;
+        double s2 = m11 * m24 - m21 * m14;
+        double s3 = m12 * m23 - m22 * m13;
+        double s4 = m12 * m24 - m22 * m14;
+        double s5 = m13 * m24 - m23 * m14;
+        double c5 = m33 * m44 - m43 * m34;
+        double c4 = m32 * m44 - m42 * m34;
+        double c3 = m32 * m43 - m42 * m33;
+        double c2 = m31 * m44 - m41 * m34;
+        double c1 = m31 * m43 - m41 * m33;
+        double c0 = m31 * m42 - m41 * m32;
+        double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0.0) {
+            throw new ArithmeticException("Matrix is singular");
+        }
+        double k = 1.0 / det;
+        return dest.set(
+                (m22 * c5 - m23 * c4 + m24 * c3) * k,
+                (-m12 * c5 + m13 * c4 - m14 * c3) * k,
+                (m42 * s5 - m43 * s4 + m44 * s3) * k,
+                (-m32 * s5 + m33 * s4 - m34 * s3) * k,
+                (-m21 * c5 + m23 * c2 - m24 * c1) * k,
+                (m11 * c5 - m13 * c2 + m14 * c1) * k,
+                (-m41 * s5 + m43 * s2 - m44 * s1) * k,
+                (m31 * s5 - m33 * s2 + m34 * s1) * k,
+                (m21 * c4 - m22 * c2 + m24 * c0) * k,
+                (-m11 * c4 + m12 * c2 - m14 * c0) * k,
+                (m41 * s4 - m42 * s2 + m44 * s0) * k,
+                (-m31 * s4 + m32 * s2 - m34 * s0) * k,
+                (-m21 * c3 + m22 * c1 - m23 * c0) * k,
+                (m11 * c3 - m12 * c1 + m13 * c0) * k,
+                (-m41 * s3 + m42 * s1 - m43 * s0) * k,
+                (m31 * s3 - m32 * s1 + m33 * s0) * k);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix4)) {
+            return false;
+        }
+        Matrix4 M = (Matrix4) o;
+        return bits(m11) == bits(M.m11)
+                && bits(m12) == bits(M.m12)
+                && bits(m13) == bits(M.m13)
+                && bits(m14) == bits(M.m14)
+                && bits(m21) == bits(M.m21)
+                && bits(m22) == bits(M.m22)
+                && bits(m23) == bits(M.m23)
+                && bits(m24) == bits(M.m24)
+                && bits(m31) == bits(M.m31)
+                && bits(m32) == bits(M.m32)
+                && bits(m33) == bits(M.m33)
+                && bits(m34) == bits(M.m34)
+                && bits(m41) == bits(M.m41)
+                && bits(m42) == bits(M.m42)
+                && bits(m43) == bits(M.m43)
+                && bits(m44) == bits(M.m44);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + bits(m11);
+        hash = 31 * hash + bits(m12);
+        hash = 31 * hash + bits(m13);
+        hash = 31 * hash + bits(m14);
+        hash = 31 * hash + bits(m21);
+        hash = 31 * hash + bits(m22);
+        hash = 31 * hash + bits(m23);
+        hash = 31 * hash + bits(m24);
+        hash = 31 * hash + bits(m31);
+        hash = 31 * hash + bits(m32);
+        hash = 31 * hash + bits(m33);
+        hash = 31 * hash + bits(m34);
+        hash = 31 * hash + bits(m41);
+        hash = 31 * hash + bits(m42);
+        hash = 31 * hash + bits(m43);
+        hash = 31 * hash + bits(m44);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long bits(double a) {
+        return Double.doubleToLongBits(a);
+    }
+
+    @Override
+    public String toString() {
+        return toMatrix().toString();
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * An engine computing the arithmetic of the matrix package, which may be
+ * replaced without changing the code using it.
+ *
+ * <p>
+ * The operations of a backend act on flat, row-major arrays described by an
+ * offset and a row stride (the <i>leading dimension</i>), in the manner of
+ * the BLAS and LAPACK routines they are named after. {@link Matrix}, {@link
+ * Vector}, {@link MatrixMath} and the factorizations check their arguments
+ * and then dispatch to the backend of the {@link Parallelism} they compute
+ * with, which unless {@linkplain Parallelism#withBackend(MatrixBackend)
+ * given one} is the default backend. A backend is therefore only called with
+ * arrays large enough for the regions described, and with a destination
+ * which either is an operand, at the same offset and stride, or does not
+ * overlap any.
+ *
+ * <p>
+ * Two backends are built in: {@code default}, the blocked and parallel
+ * kernels of this package, and {@code reference}, straightforward serial
+ * loops against which other backends may be checked. Further backends are
+ * discovered with {@link ServiceLoader}, by listing the names of their
+ * classes, which must have a public no-argument constructor, in a resource
+ * {@code META-INF/services/matrix.MatrixBackend} on the class path. The
+ * default backend is the one named by the system property {@code
+ * matrix.backend}, or {@code default}, and may be changed with {@link
+ * #setDefault(MatrixBackend)}.
+ *
+ * @author Thurman
+ */
+public abstract class MatrixBackend {
+
+    private static Map<String, MatrixBackend> backends;
+
+    private static volatile MatrixBackend defaultBackend;
+
+    /**
+     * Constructs a backend.
+     */
+    protected MatrixBackend() {
+    }
+
+    /**
+     * Returns the backend used by operations whose parallelism does not name
+     * one.
+     *
+     * @return the default backend
+     * @throws java.lang.IllegalArgumentException if no backend has the name
+     * given by the system property {@code matrix.backend}
+     */
+    public static MatrixBackend getDefault() {
+        MatrixBackend backend = defaultBackend;
+        if (backend == null) {
+            synchronized (MatrixBackend.class) {
+                if (defaultBackend == null) {
+                    defaultBackend = forName(System.getProperty("matrix.backend", "default"));
+                }
+                backend = defaultBackend;
+            }
+            Autotuner.autoTune();
+        }
+        return backend;
+    }
+
+    /**
+     * Changes the backend used by operations whose parallelism does not name
+     * one.
+     *
+     * @param backend the new default backend
+     */
+    public static void setDefault(MatrixBackend backend) {
+        defaultBackend = Objects.requireNonNull(backend);
+    }
+
+    /**
+     * Returns the backend with the specified name, among those built in and
+     * those discovered on the class path.
+     *
+     * @param name the name of a backend
+     * @return the backend of that name
+     * @throws java.lang.IllegalArgumentException if no backend has the name
+     */
+    public static MatrixBackend forName(String name) {
+        Objects.requireNonNull(name);
+        MatrixBackend backend = available().get(name);
+        if (backend == null) {
+            throw new IllegalArgumentException(String.format(
+                    "No matrix backend named %s among %s", name, getNames()));
+        }
+        return backend;
+    }
+
+    /**
+     * Returns the names of the backends built in and discovered on the class
+     * path.
+     *
+     * @return the names of the available backends
+     */
+    public static Set<String> getNames() {
+        return available().keySet();
+    }
+
+    /**
+     * Returns the available backends by name, discovering them on first
+     * use. A discovered backend taking the name of an earlier one, or which
+     * cannot be instantiated, is skipped.
+     */
+    private static synchronized Map<String, MatrixBackend> available() {
+        if (backends == null) {
+            Map<String, MatrixBackend> map = new LinkedHashMap<>();
+            map.put(DefaultBackend.INSTANCE.getName(), DefaultBackend.INSTANCE);
+            map.put(ReferenceBackend.INSTANCE.getName(), ReferenceBackend.INSTANCE);
+            Iterator<MatrixBackend> it = ServiceLoader.load(MatrixBackend.class).iterator();
+            while (true) {
+                try {
+                    if (!it.hasNext()) {
+                        break;
+                    }
+                    MatrixBackend backend = it.next();
+                    map.putIfAbsent(backend.getName(), backend);
+                } catch (ServiceConfigurationError e) {
+                    // a broken provider must not hide the others
+                }
+            }
+            backends = Collections.unmodifiableMap(map);
+        }
+        return backends;
+    }
+
+    /**
+     * Returns the name by which this backend is selected.
+     *
+     * @return the name of this backend
+     */
+    public abstract String getName();
+
+    /**
+     * Stores a scaled product plus a scaled matrix in that matrix, that is
+     * {@code C = alpha * A * B + beta * C}, where A is m x k, B is k x n and
+     * C is m x n. If beta is zero, C is overwritten without being read.
+     *
+     * @param p the parallelism to compute with
+     * @param alpha the scalar multiplying the product
+     * @param m the rows of A and C
+     * @param n the columns of B and C
+     * @param k the columns of A and rows of B
+     * @param a the array storing A
+     * @param aOff the index of the first entry of A
+     * @param lda the row stride of A
+     * @param b the array storing B
+     * @param bOff the index of the first entry of B
+     * @param ldb the row stride of B
+     * @param beta the scalar multiplying C
+     * @param c the array storing C, which must not overlap A or B
+     * @param cOff the index of the first entry of C
+     * @param ldc the row stride of C
+     */
+    public abstract void gemm(Parallelism p, double alpha, int m, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double beta, double[] c, int cOff, int ldc);
+
+    /**
+     * Stores a scaled product of a matrix, or its transposition, and a
+     * vector plus a scaled vector in that vector, that is {@code y = alpha *
+     * A * x + beta * y} or {@code y = alpha * A^T * x + beta * y}, where A
+     * is m x n. If beta is zero, y is overwritten without being read.
+     *
+     * @param p the parallelism to compute with
+     * @param transpose whether to multiply by the transposition of A, so
+     * that x has m elements and y has n, rather than n and m
+     * @param alpha the scalar multiplying the product
+     * @param m the rows of A
+     * @param n the columns of A
+     * @param a the array storing A
+     * @param aOff the index of the first entry of A
+     * @param lda the row stride of A
+     * @param x the array storing x
+     * @param xOff the index of the first element of x
+     * @param beta the scalar multiplying y
+     * @param y the array storing y, which must not overlap A or x
+     * @param yOff the index of the first element of y
+     */
+    public abstract void gemv(Parallelism p, boolean transpose, double alpha, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff);
+
+    /**
+     * Stores the sums of corresponding entries of two m x n matrices in a
+     * third.
+     *
+     * @param p the parallelism to compute with
+     * @param m the rows of the matrices
+     * @param n the columns of the matrices
+     * @param a the array storing the first addend
+     * @param aOff the index of the first entry of the first addend
+     * @param lda the row stride of the first addend
+     * @param b the array storing the second addend
+     * @param bOff the index of the first entry of the second addend
+     * @param ldb the row stride of the second addend
+     * @param c the array storing the sum
+     * @param cOff the index of the first entry of the sum
+     * @param ldc the row stride of the sum
+     */
+    public abstract void add(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc);
+
+    /**
+     * Stores the differences of corresponding entries of two m x n matrices
+     * in a third.
+     *
+     * @param p the parallelism to compute with
+     * @param m the rows of the matrices
+     * @param n the columns of the matrices
+     * @param a the array storing the minuend
+     * @param aOff the index of the first entry of the minuend
+     * @param lda the row stride of the minuend
+     * @param b the array storing the subtrahend
+     * @param bOff the index of the first entry of the subtrahend
+     * @param ldb the row stride of the subtrahend
+     * @param c the array storing the difference
+     * @param cOff the index of the first entry of the difference
+     * @param ldc the row stride of the difference
+     */
+    public abstract void subtract(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc);
+
+    /**
+     * Stores the products of a scalar and the entries of an m x n matrix in
+     * another.
+     *
+     * @param p the parallelism to compute with
+     * @param m the rows of the matrices
+     * @param n the columns of the matrices
+     * @param alpha a scalar
+     * @param a the array storing the matrix to scale
+     * @param aOff the index of the first entry of the matrix to scale
+     * @param lda the row stride of the matrix to scale
+     * @param c the array storing the product
+     * @param cOff the index of the first entry of the product
+     * @param ldc the row stride of the product
+     */
+    public abstract void scale(Parallelism p, int m, int n, double alpha,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc);
+
+    /**
+     * Stores the sums of multiples of the elements of two arrays in the
+     * second, that is {@code y = alpha * x + beta * y}. If beta is one, this
+     * is the BLAS routine {@code axpy}.
+     *
+     * @param alpha the scalar multiplying x
+     * @param x the first array
+     * @param xOff the index of the first element of x
+     * @param beta the scalar multiplying y
+     * @param y the array to scale and add to
+     * @param yOff the index of the first element of y
+     * @param len the number of elements
+     */
+    public abstract void axpby(double alpha, double[] x, int xOff, double beta,
+            double[] y, int yOff, int len);
+
+    /**
+     * Returns the sum of the products of corresponding elements of two
+     * arrays.
+     *
+     * @param x the first array
+     * @param xOff the index of the first element of x
+     * @param y the second array
+     * @param yOff the index of the first element of y
+     * @param len the number of elements
+     * @return the dot product of the regions of the arrays
+     */
+    public abstract double dot(double[] x, int xOff, double[] y, int yOff, int len);
+
+    /**
+     * Returns the sum of the magnitudes of the elements of an array.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the sum of the magnitudes
+     */
+    public abstract double asum(double[] x, int xOff, int len);
+
+    /**
+     * Returns the Euclidean norm of the elements of an array, without
+     * overflow or underflow in computing it unless the norm itself does.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the square root of the sum of the squares
+     */
+    public abstract double nrm2(double[] x, int xOff, int len);
+
+    /**
+     * Returns the offset from xOff of the first element of largest magnitude
+     * of an array.
+     *
+     * @param x the array
+     * @param xOff the index of the first element of x
+     * @param len the number of elements
+     * @return the offset of the largest magnitude, or -1 if len is zero
+     */
+    public abstract int iamax(double[] x, int xOff, int len);
+
+    /**
+     * Stores the transposition of an m x n matrix in an n x m matrix, which
+     * must not overlap it.
+     *
+     * @param p the parallelism to compute with
+     * @param m the rows of the matrix
+     * @param n the columns of the matrix
+     * @param a the array storing the matrix
+     * @param aOff the index of the first entry of the matrix
+     * @param lda the row stride of the matrix
+     * @param c the array to store the transposition in
+     * @param cOff the index of the first entry of the transposition
+     * @param ldc the row stride of the transposition
+     */
+    public abstract void transpose(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc);
+
+    /**
+     * Decomposes a contiguous n x n matrix in place into a unit lower
+     * triangular matrix L and an upper triangular matrix U by Gaussian
+     * elimination with partial pivoting, so that the rows of the matrix,
+     * permuted, are L times U. A zero pivot leaves its column of L
+     * unreduced.
+     *
+     * @param p the parallelism to compute with
+     * @param n the order of the matrix
+     * @param a the array storing the matrix from index zero, overwritten with
+     * L below its diagonal and U on and above it
+     * @param piv the array to store the original row of each row in
+     * @return the sign of the row permutation, {@code 1} or {@code -1}
+     */
+    public abstract int lu(Parallelism p, int n, double[] a, int[] piv);
+
+    /**
+     * Decomposes a symmetric n x n matrix into a lower triangular matrix L
+     * with a positive diagonal, such that the matrix is L times L^T. Only
+     * the entries on and below the diagonal of the matrix are read.
+     *
+     * @param p the parallelism to compute with
+     * @param n the order of the matrix
+     * @param a the array storing the matrix
+     * @param aOff the index of the first entry of the matrix
+     * @param lda the row stride of the matrix
+     * @param l the zeroed array to store L in, contiguously from index zero
+     * @return {@code true} if the matrix is positive-definite, and otherwise
+     * {@code false}, in which case L is incomplete
+     */
+    public abstract boolean cholesky(Parallelism p, int n,
+            double[] a, int aOff, int lda, double[] l);
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A batch of small matrices of the same order, on which products,
+ * determinants and solutions are computed for every matrix at once.
+ *
+ * <p>
+ * The matrices are stored interleaved: the entry in zero-based row
+ * {@code r} and column {@code c} of the {@code b}th matrix is stored at
+ * {@code (r * cols + c) * count + b}. The same entry of consecutive
+ * matrices is thus adjacent, and each step of an operation is one loop
+ * across the batch, which the compiler vectorizes so that one instruction
+ * works on several matrices. Batches are processed in blocks of {@value
+ * #BLOCK} matrices, split across the pool of a {@link Parallelism}.
+ *
+ * <p>
+ * Determinants and solutions are computed by Gaussian elimination with
+ * partial pivoting per matrix; only swapping rows, which differs from
+ * matrix to matrix, is not vectorized.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class MatrixBatch {
+
+    /**
+     * The number of matrices processed together by one task.
+     */
+    static final int BLOCK = 256;
+
+    final double[] data;
+    final int count;
+    final int rows;
+    final int cols;
+
+    /**
+     * Constructs a batch of zero matrices.
+     *
+     * @param count the number of matrices
+     * @param rows the rows of each matrix
+     * @param cols the columns of each matrix
+     * @throws java.lang.IllegalArgumentException if an argument is negative
+     */
+    public MatrixBatch(int count, int rows, int cols) {
+        if (count < 0 || rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Batch dimensions must not be negative");
+        }
+        this.data = new double[Math.multiplyExact(count, Math.multiplyExact(rows, cols))];
+        this.count = count;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Returns a batch of copies of the specified matrices.
+     *
+     * @param matrices matrices of the same order
+     * @return a batch holding the matrices
+     * @throws java.lang.IllegalArgumentException if there are no matrices or
+     * their orders are not equal
+     */
+    public static MatrixBatch of(Matrix... matrices) {
+        if (matrices.length == 0) {
+            throw new IllegalArgumentException("Batch must contain a matrix");
+        }
+        Matrix first = matrices[0];
+        MatrixBatch batch = new MatrixBatch(matrices.length, first.getRows(), first.getCols());
+        for (int b = 0; b < matrices.length; b++) {
+            batch.set(b + 1, matrices[b]);
+        }
+        return batch;
+    }
+
+    /**
+     * Returns a batch of the matrices stored one after another, each row by
+     * row, in a packed array.
+     *
+     * @param packed the entries of the matrices
+     * @param count the number of matrices
+     * @param rows the rows of each matrix
+     * @param cols the columns of each matrix
+     * @return a batch holding the matrices
+     * @throws java.lang.IllegalArgumentException if the array is not of
+     * length {@code count * rows * cols}
+     */
+    public static MatrixBatch fromPacked(double[] packed, int count, int rows, int cols) {
+        MatrixBatch batch = new MatrixBatch(count, rows, cols);
+        int size = rows * cols;
+        if (packed.length != batch.data.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Packed length %s not equal to %s matrices of order %s x %s",
+                    packed.length, count, rows, cols));
+        }
+        for (int b = 0; b < count; b++) {
+            for (int e = 0; e < size; e++) {
+                batch.data[e * count + b] = packed[b * size + e];
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Returns the matrices of this batch stored one after another, each row
+     * by row, in a packed array.
+     *
+     * @return a new packed array of the entries of this batch
+     */
+    public double[] toPacked() {
+        int size = rows * cols;
+        double[] packed = new double[data.length];
+        for (int e = 0; e < size; e++) {
+            for (int b = 0; b < count; b++) {
+                packed[b * size + e] = data[e * count + b];
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the number of matrices of this batch.
+     *
+     * @return the size of this batch
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the order of each matrix of this batch.
+     *
+     * @return the order of the matrices
+     */
+    public Order getOrder() {
+        return new Order(rows, cols);
+    }
+
+    /**
+     * Returns a copy of a matrix of this batch.
+     *
+     * @param index the index of the matrix
+     * @return a new matrix equal to the matrix at the index
+     */
+    public Matrix get(int index) {
+        int b = checkIndex(index);
+        Matrix M = new Matrix(rows, cols);
+        for (int e = 0; e < rows * cols; e++) {
+            M.data[e] = data[e * count + b];
+        }
+        return M;
+    }
+
+    /**
+     * Sets a matrix of this batch to a copy of another.
+     *
+     * @param index the index of the matrix
+     * @param M a matrix of the order of the batch
+     * @throws java.lang.IllegalArgumentException if the order of the matrix
+     * is not the order of the batch
+     */
+    public void set(int index, Matrix M) {
+        int b = checkIndex(index);
+        if (M.getRows() != rows || M.getCols() != cols) {
+            throw new IllegalArgumentException(Matrix.unequalOrderMsg());
+        }
+        for (int r = 0; r < rows; r++) {
+            int i = M.index(r, 0);
+            for (int c = 0; c < cols; c++) {
+                data[(r * cols + c) * count + b] = M.data[i + c];
+            }
+        }
+    }
+
+    /**
+     * Returns an entry of a matrix of this batch.
+     *
+     * @param index the index of the matrix
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry
+     */
+    public double getEntry(int index, int row, int col) {
+        return data[((row - 1) * cols + col - 1) * count + checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if (index < 1 || index > count) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        return index - 1;
+    }
+
+    /**
+     * Returns the products of the matrices of this and another batch.
+     *
+     * @param B a batch of the same size, whose matrices have as many rows as
+     * the matrices of this batch have columns
+     * @return a new batch of the products
+     */
+    public MatrixBatch times(MatrixBatch B) {
+        return times(B, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the products of the matrices of this and another batch,
+     * computed with the specified parallelism.
+     *
+     * @param B a batch of the same size, whose matrices have as many rows as
+     * the matrices of this batch have columns
+     * @param p the parallelism to compute with
+     * @return a new batch of the products
+     */
+    public MatrixBatch times(MatrixBatch B, Parallelism p) {
+        return timesInto(B, new MatrixBatch(count, rows, B.cols), p);
+    }
+
+    /**
+     * Stores the products of the matrices of this and another batch in a
+     * destination batch, computed with the specified parallelism.
+     *
+     * @param B a batch of the same size, whose matrices have as many rows as
+     * the matrices of this batch have columns
+     * @param dest a batch of the order of the products, which must not be
+     * either operand
+     * @param p the parallelism to compute with
+     * @return the destination
+     * @throws java.lang.IllegalArgumentException if the sizes or orders of
+     * the batches do not agree
+     */
+    public MatrixBatch timesInto(MatrixBatch B, MatrixBatch dest, Parallelism p) {
+        if (B.count != count || dest.count != count) {
+            throw new IllegalArgumentException("Batch sizes not equal");
+        }
+        if (cols != B.rows) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        if (dest.rows != rows || dest.cols != B.cols) {
+            throw new IllegalArgumentException("Destination order not equal to the product's order");
+        }
+        if (dest == this || dest == B) {
+            throw new IllegalArgumentException("Destination shares entries with an operand");
+        }
+        int m = rows;
+        int k = cols;
+        int n = B.cols;
+        double[] a = data;
+        double[] bb = B.data;
+        double[] c = dest.data;
+        ParallelUtils.forRange(p, count, (long) m * n * k, BLOCK, (b0, b1) -> {
+            for (int s0 = b0; s0 < b1; s0 += BLOCK) {
+                int s1 = Math.min(b1, s0 + BLOCK);
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        int ci = (i * n + j) * count;
+                        for (int b = s0; b < s1; b++) {
+                            c[ci + b] = 0.0;
+                        }
+                        for (int q = 0; q < k; q++) {
+                            int ai = (i * k + q) * count;
+                            int bi = (q * n + j) * count;
+                            for (int b = s0; b < s1; b++) {
+                                c[ci + b] += a[ai + b] * bb[bi + b];
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        return dest;
+    }
+
+    /**
+     * Returns the determinants of the matrices of this batch.
+     *
+     * @return the determinant of each matrix, in order
+     * @throws java.lang.IllegalArgumentException if the matrices are not
+     * square
+     */
+    public double[] determinants() {
+        return determinants(Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the determinants of the matrices of this batch, computed with
+     * the specified parallelism.
+     *
+     * @param p the parallelism to compute with
+     * @return the determinant of each matrix, in order
+     * @throws java.lang.IllegalArgumentException if the matrices are not
+     * square
+     */
+    public double[] determinants(Parallelism p) {
+        requireSquare();
+        int n = rows;
+        double[] det = new double[count];
+        ParallelUtils.forRange(p, count, (long) n * n * n, BLOCK, (b0, b1) -> {
+            for (int s0 = b0; s0 < b1; s0 += BLOCK) {
+                int len = Math.min(BLOCK, b1 - s0);
+                double[] lu = gather(s0, len);
+                double[] scratch = Workspace.borrow(4 * len);
+                eliminate(lu, n, len, null, 0, det, s0, scratch);
+                Workspace.release(scratch);
+                Workspace.release(lu);
+            }
+        });
+        return det;
+    }
+
+    /**
+     * Returns the solutions of {@code AX = B} for each matrix A of this
+     * batch and the corresponding matrix of another batch.
+     *
+     * @param B a batch of the same size, whose matrices have as many rows as
+     * the matrices of this batch
+     * @return a new batch of the solutions
+     * @throws java.lang.ArithmeticException if a matrix of this batch is
+     * singular
+     */
+    public MatrixBatch solve(MatrixBatch B) {
+        return solve(B, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the solutions of {@code AX = B} for each matrix A of this
+     * batch and the corresponding matrix of another batch, computed with the
+     * specified parallelism.
+     *
+     * @param B a batch of the same size, whose matrices have as many rows as
+     * the matrices of this batch
+     * @param p the parallelism to compute with
+     * @return a new batch of the solutions
+     * @throws java.lang.ArithmeticException if a matrix of this batch is
+     * singular
+     */
+    public MatrixBatch solve(MatrixBatch B, Parallelism p) {
+        requireSquare();
+        if (B.count != count) {
+            throw new IllegalArgumentException("Batch sizes not equal");
+        }
+        if (B.rows != rows) {
+            throw new IllegalArgumentException("Row count of argument not equal to the order of the matrix");
+        }
+        int n = rows;
+        int k = B.cols;
+        MatrixBatch X = new MatrixBatch(count, n, k);
+        System.arraycopy(B.data, 0, X.data, 0, B.data.length);
+        ParallelUtils.forRange(p, count, (long) n * n * (n + k), BLOCK, (b0, b1) -> {
+            for (int s0 = b0; s0 < b1; s0 += BLOCK) {
+                int len = Math.min(BLOCK, b1 - s0);
+                double[] lu = gather(s0, len);
+                double[] x = X.gather(s0, len);
+                double[] det = new double[len];
+                double[] scratch = Workspace.borrow(4 * len);
+                eliminate(lu, n, len, x, k, det, 0, scratch);
+                for (int b = 0; b < len; b++) {
+                    if (det[b] == 0.0) {
+                        throw new ArithmeticException(String.format(
+                                "Matrix %s of the batch is singular", s0 + b + 1));
+                    }
+                }
+                backSubstitute(lu, n, len, x, k, scratch);
+                X.scatter(x, s0, len);
+                Workspace.release(scratch);
+                Workspace.release(x);
+                Workspace.release(lu);
+            }
+        });
+        return X;
+    }
+
+    /**
+     * Copies the matrices {@code [s0, s0 + len)} into a borrowed array in
+     * which the same entry of the matrices is stored in runs of len.
+     */
+    private double[] gather(int s0, int len) {
+        int size = rows * cols;
+        double[] block = Workspace.borrow(size * len);
+        for (int e = 0; e < size; e++) {
+            System.arraycopy(data, e * count + s0, block, e * len, len);
+        }
+        return block;
+    }
+
+    /**
+     * Copies a block produced by {@link #gather(int, int)} back.
+     */
+    private void scatter(double[] block, int s0, int len) {
+        for (int e = 0; e < rows * cols; e++) {
+            System.arraycopy(block, e * len, data, e * count + s0, len);
+        }
+    }
+
+    /**
+     * Reduces a block of len n x n matrices to upper triangular form by
+     * Gaussian elimination with partial pivoting, applying the same row
+     * operations to a block of n x k right-hand sides if present, and stores
+     * the determinant of each matrix in det from index d0. The elimination
+     * of a matrix stops at a zero pivot, leaving a zero determinant. The
+     * scratch array holds at least 4 * len entries.
+     */
+    private static void eliminate(double[] lu, int n, int len, double[] x, int k,
+            double[] det, int d0, double[] scratch) {
+        // scratch holds the reciprocal pivots, the multipliers of a row, the
+        // determinants and the pivot rows, len entries each; the multipliers
+        // hold the largest magnitudes while pivots are searched for
+        int inv = 0;
+        int mul = len;
+        int dt = 2 * len;
+        int piv = 3 * len;
+        for (int b = 0; b < len; b++) {
+            scratch[dt + b] = 1.0;
+        }
+        for (int j = 0; j < n; j++) {
+            int dj = (j * n + j) * len;
+            for (int b = 0; b < len; b++) {
+                scratch[mul + b] = Math.abs(lu[dj + b]);
+                scratch[piv + b] = j;
+            }
+            for (int i = j + 1; i < n; i++) {
+                int ij = (i * n + j) * len;
+                for (int b = 0; b < len; b++) {
+                    double a = Math.abs(lu[ij + b]);
+                    if (a > scratch[mul + b]) {
+                        scratch[mul + b] = a;
+                        scratch[piv + b] = i;
+                    }
+                }
+            }
+            for (int b = 0; b < len; b++) {
+                int pivot = (int) scratch[piv + b];
+                if (pivot != j) {
+                    swapRows(lu, n, j, len, b, j, pivot);
+                    if (x != null) {
+                        swapRows(x, k, 0, len, b, j, pivot);
+                    }
+                    scratch[dt + b] = -scratch[dt + b];
+                }
+            }
+            for (int b = 0; b < len; b++) {
+                double d = lu[dj + b];
+                scratch[dt + b] *= d;
+                scratch[inv + b] = d == 0.0 ? 0.0 : 1.0 / d;
+            }
+            for (int i = j + 1; i < n; i++) {
+                int ij = (i * n + j) * len;
+                for (int b = 0; b < len; b++) {
+                    scratch[mul + b] = lu[ij + b] * scratch[inv + b];
+                }
+                for (int c = j + 1; c < n; c++) {
+                    int ic = (i * n + c) * len;
+                    int jc = (j * n + c) * len;
+                    for (int b = 0; b < len; b++) {
+                        lu[ic + b] -= scratch[mul + b] * lu[jc + b];
+                    }
+                }
+                for (int c = 0; x != null && c < k; c++) {
+                    int ic = (i * k + c) * len;
+                    int jc = (j * k + c) * len;
+                    for (int b = 0; b < len; b++) {
+                        x[ic + b] -= scratch[mul + b] * x[jc + b];
+                    }
+                }
+            }
+        }
+        System.arraycopy(scratch, dt, det, d0, len);
+    }
+
+    /**
+     * Overwrites a block of right-hand sides with the solutions of UX = Y,
+     * for the upper triangular matrices left by elimination.
+     */
+    private static void backSubstitute(double[] lu, int n, int len, double[] x, int k,
+            double[] scratch) {
+        for (int i = n - 1; i >= 0; i--) {
+            int di = (i * n + i) * len;
+            for (int b = 0; b < len; b++) {
+                scratch[b] = 1.0 / lu[di + b];
+            }
+            for (int c = 0; c < k; c++) {
+                int ic = (i * k + c) * len;
+                for (int j = i + 1; j < n; j++) {
+                    int ij = (i * n + j) * len;
+                    int jc = (j * k + c) * len;
+                    for (int b = 0; b < len; b++) {
+                        x[ic + b] -= lu[ij + b] * x[jc + b];
+                    }
+                }
+                for (int b = 0; b < len; b++) {
+                    x[ic + b] *= scratch[b];
+                }
+            }
+        }
+    }
+
+    /**
+     * Swaps two rows of one matrix of a block of len matrices with the given
+     * number of columns, from a given column on.
+     */
+    private static void swapRows(double[] block, int cols, int from, int len, int b,
+            int r1, int r2) {
+        for (int c = from; c < cols; c++) {
+            int i = (r1 * cols + c) * len + b;
+            int j = (r2 * cols + c) * len + b;
+            double t = block[i];
+            block[i] = block[j];
+            block[j] = t;
+        }
+    }
+
+    private void requireSquare() {
+        if (rows != cols) {
+            throw new IllegalArgumentException("Matrix must be square");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch of %s matrices of order %s", count, getOrder());
+    }
+}
@@ -0,0 +1,538 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the average time of the operations of the matrix package over a
+ * range of sizes, shapes and densities, and reports the results as JSON.
+ *
+ * <p>
+ * Each benchmark is run for a number of warmup iterations, which are
+ * discarded, and then for a number of measured iterations. An iteration
+ * repeats the operation until a time budget is spent, and scores the mean
+ * time per operation. The reported score is the mean over the measured
+ * iterations and the error is their standard deviation, both in
+ * microseconds per operation. Results of operations are consumed so that
+ * they cannot be optimized away. Where the virtual machine can count the
+ * bytes allocated by a thread, the bytes allocated per operation over the
+ * measured iterations are reported as a secondary metric, {@code
+ * alloc.bytes/op}, along with the fraction of scratch arrays served by the
+ * {@link Workspace} pools, {@code workspace.hitRate}, for benchmarks which
+ * borrow any.
+ *
+ * <p>
+ * Shapes apply to the left operand of size {@code s}: {@code square} is s x
+ * s, {@code tall} is s x s/8 and {@code wide} is s/8 x s. Products multiply
+ * it by a square matrix of its column count, so the product has the same
+ * shape. Densities apply to the sparse operand of the sparse benchmarks
+ * only. The 4 x 4 benchmarks transform {@code s} vectors or take the
+ * determinants of {@code s} matrices.
+ *
+ * <p>
+ * Options are given as {@code name=value} arguments:
+ * <pre>
+ * sizes=8,64,256,1024,4096   sizes to run
+ * shapes=square,tall,wide    shapes to run
+ * densities=0.001,0.01,0.1   densities of sparse operands
+ * include=regex              run only benchmarks whose name matches
+ * warmup=3                   warmup iterations
+ * iterations=5               measured iterations
+ * time=200                   time budget of an iteration, in milliseconds
+ * out=results.json           write JSON to a file instead of the console
+ * serial=true                run with {@link Parallelism#SERIAL} as default
+ * backend=default            run with the named {@link MatrixBackend}
+ * zeroAlloc=regex            fail unless matching benchmarks allocate nothing
+ * </pre>
+ * With {@code serial=true zeroAlloc=Into|gemm}, the run exits with status
+ * one if any destination-passing operation allocates. Since the smallest
+ * object takes 16 bytes, an operation allocates if it averages a byte or
+ * more; smaller averages are left over from the harness itself.
+ * For example, {@code java matrix.MatrixBenchmark sizes=512 include=times}
+ * runs the products at size 512.
+ *
+ * @author Thurman
+ */
+public final class MatrixBenchmark {
+
+    private static volatile int sink;
+
+    private final int[] sizes;
+    private final String[] shapes;
+    private final double[] densities;
+    private final Pattern include;
+    private final int warmup;
+    private final int iterations;
+    private final long time;
+    private final Pattern zeroAlloc;
+    private final List<String> failures = new ArrayList<>();
+
+    private MatrixBenchmark(Map<String, String> options) {
+        this.sizes = ints(options.getOrDefault("sizes", "8,64,256,1024,4096"));
+        this.shapes = options.getOrDefault("shapes", "square,tall,wide").split(",");
+        this.densities = doubles(options.getOrDefault("densities", "0.001,0.01,0.1"));
+        this.include = Pattern.compile(options.getOrDefault("include", ".*"));
+        this.warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        this.time = Long.parseLong(options.getOrDefault("time", "200")) * 1_000_000L;
+        String zero = options.get("zeroAlloc");
+        this.zeroAlloc = zero == null ? null : Pattern.compile(zero);
+        if (iterations < 1 || warmup < 0 || time <= 0) {
+            throw new IllegalArgumentException("Illegal iteration options");
+        }
+    }
+
+    /**
+     * An operation whose result is consumed after each run.
+     */
+    private interface Operation {
+
+        Object run();
+    }
+
+    /**
+     * Creates the operation of a benchmark from its operands.
+     */
+    private interface Setup {
+
+        Operation create(Operands o);
+    }
+
+    /**
+     * The operands of one combination of parameters, generated from a fixed
+     * seed so that runs are comparable.
+     */
+    private static final class Operands {
+
+        final int rows;
+        final int cols;
+        final double density;
+        final Random random = new Random(42);
+
+        Operands(int rows, int cols, double density) {
+            this.rows = rows;
+            this.cols = cols;
+            this.density = density;
+        }
+
+        double[][] array(int m, int n) {
+            double[][] a = new double[m][n];
+            for (double[] row : a) {
+                for (int j = 0; j < n; j++) {
+                    row[j] = random.nextDouble();
+                }
+            }
+            return a;
+        }
+
+        Matrix matrix(int m, int n) {
+            return new Matrix(array(m, n));
+        }
+
+        SparseMatrix sparse(int m, int n) {
+            double[][] a = new double[m][n];
+            for (double[] row : a) {
+                for (int j = 0; j < n; j++) {
+                    if (random.nextDouble() < density) {
+                        row[j] = random.nextDouble();
+                    }
+                }
+            }
+            return new SparseMatrix(new Matrix(a));
+        }
+
+        double[] vector(int n) {
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextDouble();
+            }
+            return x;
+        }
+    }
+
+    /**
+     * A benchmark and the parameters it is run over.
+     */
+    private static final class Benchmark {
+
+        final String name;
+        final boolean squareOnly;
+        final boolean sparse;
+        final Setup setup;
+
+        Benchmark(String name, boolean squareOnly, boolean sparse, Setup setup) {
+            this.name = name;
+            this.squareOnly = squareOnly;
+            this.sparse = sparse;
+            this.setup = setup;
+        }
+    }
+
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<>();
+        list.add(new Benchmark("Matrix.new", false, false, o -> {
+            double[][] a = o.array(o.rows, o.cols);
+            return () -> new Matrix(a);
+        }));
+        list.add(new Benchmark("Matrix.times", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix B = o.matrix(o.cols, o.cols);
+            return () -> A.times(B);
+        }));
+        list.add(new Benchmark("Matrix.plus", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix B = o.matrix(o.rows, o.cols);
+            return () -> A.plus(B);
+        }));
+        list.add(new Benchmark("Matrix.transposition", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            return A::transposition;
+        }));
+        list.add(new Benchmark("Matrix.plusInto", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix B = o.matrix(o.rows, o.cols);
+            Matrix C = new Matrix(o.rows, o.cols);
+            return () -> A.plusInto(B, C);
+        }));
+        list.add(new Benchmark("Matrix.timesInto", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix B = o.matrix(o.cols, o.cols);
+            Matrix C = new Matrix(o.rows, o.cols);
+            return () -> A.timesInto(B, C);
+        }));
+        list.add(new Benchmark("Matrix.transposeInto", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix C = new Matrix(o.cols, o.rows);
+            return () -> A.transposeInto(C);
+        }));
+        list.add(new Benchmark("Matrix.gemm", false, false, o -> {
+            Matrix A = o.matrix(o.rows, o.cols);
+            Matrix B = o.matrix(o.cols, o.cols);
+            Matrix C = o.matrix(o.rows, o.cols);
+            return () -> {
+                Matrix.gemm(1.0, A, B, 0.5, C);
+                return C;
+            };
+        }));
+        list.add(new Benchmark("Matrix.times(4x4 transforms)", true, false, o -> {
+            Matrix A = o.matrix(4, 4);
+            Vector[] v = new Vector[o.rows];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = new Vector(o.vector(4));
+            }
+            return () -> {
+                Matrix last = null;
+                for (Vector x : v) {
+                    last = A.times(x.transposition());
+                }
+                return last;
+            };
+        }));
+        list.add(new Benchmark("Matrix4.timesInto(batch)", true, false, o -> {
+            Matrix4 A = Matrix4.of(o.matrix(4, 4));
+            Vector4Batch v = new Vector4Batch(o.vector(o.rows), o.vector(o.rows),
+                    o.vector(o.rows), o.vector(o.rows));
+            Vector4Batch dest = new Vector4Batch(o.rows);
+            return () -> A.timesInto(v, dest);
+        }));
+        list.add(new Benchmark("SquareMatrix.determinant(4x4 loop)", true, false, o -> {
+            SquareMatrix[] A = new SquareMatrix[o.rows];
+            for (int i = 0; i < A.length; i++) {
+                A[i] = new SquareMatrix(o.matrix(4, 4));
+            }
+            return () -> {
+                double[] det = new double[A.length];
+                for (int i = 0; i < A.length; i++) {
+                    det[i] = A[i].determinant();
+                }
+                return det;
+            };
+        }));
+        list.add(new Benchmark("MatrixBatch.determinants(4x4)", true, false, o -> {
+            MatrixBatch A = MatrixBatch.fromPacked(o.vector(o.rows * 16), o.rows, 4, 4);
+            return A::determinants;
+        }));
+        list.add(new Benchmark("MatrixMath.multiply", false, false, o -> {
+            double[][] a = o.array(o.rows, o.cols);
+            double[][] b = o.array(o.cols, o.cols);
+            return () -> MatrixMath.multiply(a, b);
+        }));
+        list.add(new Benchmark("MatrixMath.add", false, false, o -> {
+            double[][] a = o.array(o.rows, o.cols);
+            double[][] b = o.array(o.rows, o.cols);
+            return () -> MatrixMath.add(a, b);
+        }));
+        list.add(new Benchmark("MatrixMath.dot", false, false, o -> {
+            double[] x = o.vector(o.rows * o.cols);
+            double[] y = o.vector(o.rows * o.cols);
+            return () -> MatrixMath.dot(x, y);
+        }));
+        list.add(new Benchmark("Vector.dot", false, false, o -> {
+            Vector x = new Vector(o.vector(o.rows * o.cols));
+            Vector y = new Vector(o.vector(o.rows * o.cols));
+            return () -> x.dot(y);
+        }));
+        list.add(new Benchmark("Vector.axpy", false, false, o -> {
+            Vector x = new Vector(o.vector(o.rows * o.cols));
+            Vector y = new Vector(o.vector(o.rows * o.cols));
+            return () -> y.axpy(1e-9, x);
+        }));
+        list.add(new Benchmark("Vector.nrm2", false, false, o -> {
+            Vector x = new Vector(o.vector(o.rows * o.cols));
+            return x::nrm2;
+        }));
+        list.add(new Benchmark("DeterminantUtils.determinantRowReduction", true, false, o -> {
+            Matrix A = o.matrix(o.rows, o.rows);
+            return () -> DeterminantUtils.determinantRowReduction(A);
+        }));
+        list.add(new Benchmark("SparseMatrix.times", false, true, o -> {
+            SparseMatrix S = o.sparse(o.rows, o.cols);
+            Matrix B = o.matrix(o.cols, o.cols);
+            return () -> S.times(B);
+        }));
+        list.add(new Benchmark("SparseMatrix.plus", false, true, o -> {
+            SparseMatrix S = o.sparse(o.rows, o.cols);
+            SparseMatrix T = o.sparse(o.rows, o.cols);
+            return () -> S.plus(T);
+        }));
+        return list;
+    }
+
+    /**
+     * Runs the benchmarks selected by the options.
+     *
+     * @param args options of the form {@code name=value}
+     * @throws java.io.IOException if the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Option not of the form name=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        MatrixBenchmark harness = new MatrixBenchmark(options);
+        if (Boolean.parseBoolean(options.get("serial"))) {
+            Parallelism.setDefault(Parallelism.SERIAL);
+        }
+        if (options.containsKey("backend")) {
+            MatrixBackend.setDefault(MatrixBackend.forName(options.get("backend")));
+        }
+        StringBuilder json = new StringBuilder();
+        harness.run(json, System.err);
+        String out = options.get("out");
+        if (out == null) {
+            System.out.print(json);
+        } else {
+            try (Writer w = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                w.append(json);
+            }
+        }
+        if (!harness.failures.isEmpty()) {
+            System.err.println("Allocating benchmarks: " + harness.failures);
+            System.exit(1);
+        }
+    }
+
+    private void run(StringBuilder json, PrintStream log) {
+        json.append("[\n");
+        boolean first = true;
+        for (Benchmark b : benchmarks()) {
+            if (!include.matcher(b.name).find()) {
+                continue;
+            }
+            for (int size : sizes) {
+                for (String shape : shapes) {
+                    if (b.squareOnly && !shape.equals("square")) {
+                        continue;
+                    }
+                    if (!shape.matches("square|tall|wide")) {
+                        throw new IllegalArgumentException("Unknown shape: " + shape);
+                    }
+                    int small = Math.max(1, size / 8);
+                    int rows = shape.equals("wide") ? small : size;
+                    int cols = shape.equals("tall") ? small : size;
+                    for (double density : b.sparse ? densities : new double[] {1.0}) {
+                        Operation op = b.setup.create(new Operands(rows, cols, density));
+                        double[] alloc = new double[2];
+                        double[] scores = measure(op, alloc);
+                        Map<String, String> params = new LinkedHashMap<>();
+                        params.put("size", Integer.toString(size));
+                        params.put("shape", shape);
+                        if (b.sparse) {
+                            params.put("density", Double.toString(density));
+                        }
+                        double mean = mean(scores);
+                        double error = deviation(scores, mean);
+                        log.printf(Locale.ROOT, "%-42s %-28s %14.3f +- %10.3f us/op %12.1f B/op%n",
+                                b.name, params, mean, error, alloc[0]);
+                        if (zeroAlloc != null && zeroAlloc.matcher(b.name).find()
+                                && !(alloc[0] < 1.0)) {
+                            failures.add(b.name + params);
+                        }
+                        if (!first) {
+                            json.append(",\n");
+                        }
+                        first = false;
+                        appendResult(json, b.name, params, mean, error, scores, alloc[0], alloc[1]);
+                    }
+                }
+            }
+        }
+        json.append("\n]\n");
+    }
+
+    /**
+     * Returns the mean time per operation of each measured iteration, in
+     * microseconds, and stores the bytes allocated per operation over all of
+     * them, or NaN if they cannot be counted, followed by the workspace hit
+     * rate over them, or NaN if nothing was borrowed.
+     */
+    private double[] measure(Operation op, double[] alloc) {
+        double[] scores = new double[iterations];
+        long bytes = 0;
+        long total = 0;
+        long hits = 0;
+        long borrows = 0;
+        for (int i = -warmup; i < iterations; i++) {
+            if (i == 0) {
+                hits = Workspace.getHits();
+                borrows = hits + Workspace.getMisses();
+            }
+            long ops = 0;
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                sink ^= System.identityHashCode(op.run());
+                ops++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < time);
+            allocated = allocatedBytes() - allocated;
+            if (i >= 0) {
+                scores[i] = elapsed / 1e3 / ops;
+                bytes += allocated;
+                total += ops;
+            }
+        }
+        long overhead = -allocatedBytes() + allocatedBytes();
+        alloc[0] = allocatedBytes() < 0 ? Double.NaN
+                : Math.max(0, bytes - overhead * iterations) / (double) total;
+        hits = Workspace.getHits() - hits;
+        borrows = Workspace.getHits() + Workspace.getMisses() - borrows;
+        alloc[1] = borrows == 0 ? Double.NaN : (double) hits / borrows;
+        return scores;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, or -1 if the
+     * virtual machine does not count them.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private void appendResult(StringBuilder json, String name, Map<String, String> params,
+            double mean, double error, double[] scores, double alloc, double hitRate) {
+        json.append("  {\n    \"benchmark\": \"").append(name).append("\",\n");
+        json.append("    \"mode\": \"avgt\",\n");
+        json.append("    \"warmupIterations\": ").append(warmup).append(",\n");
+        json.append("    \"measurementIterations\": ").append(iterations).append(",\n");
+        json.append("    \"measurementTimeMillis\": ").append(time / 1_000_000L).append(",\n");
+        json.append("    \"params\": {");
+        String sep = "";
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            json.append(sep).append('"').append(e.getKey()).append("\": \"")
+                    .append(e.getValue()).append('"');
+            sep = ", ";
+        }
+        json.append("},\n");
+        json.append("    \"primaryMetric\": {\n");
+        json.append("      \"score\": ").append(number(mean)).append(",\n");
+        json.append("      \"scoreError\": ").append(number(error)).append(",\n");
+        json.append("      \"scoreUnit\": \"us/op\",\n");
+        json.append("      \"rawData\": [");
+        for (int i = 0; i < scores.length; i++) {
+            json.append(i > 0 ? ", " : "").append(number(scores[i]));
+        }
+        json.append("]\n    },\n");
+        json.append("    \"secondaryMetrics\": {\n");
+        json.append("      \"alloc.bytes/op\": {\"score\": ").append(number(alloc))
+                .append(", \"scoreUnit\": \"B/op\"}");
+        if (!Double.isNaN(hitRate)) {
+            json.append(",\n      \"workspace.hitRate\": {\"score\": ").append(number(hitRate))
+                    .append(", \"scoreUnit\": \"ratio\"}");
+        }
+        json.append("\n");
+        json.append("    }\n  }");
+    }
+
+    private static String number(double x) {
+        return Double.isFinite(x) ? Double.toString(x) : "null";
+    }
+
+    private static double mean(double[] x) {
+        double sum = 0.0;
+        for (double v : x) {
+            sum += v;
+        }
+        return sum / x.length;
+    }
+
+    private static double deviation(double[] x, double mean) {
+        if (x.length < 2) {
+            return Double.NaN;
+        }
+        double sum = 0.0;
+        for (double v : x) {
+            sum += (v - mean) * (v - mean);
+        }
+        return Math.sqrt(sum / (x.length - 1));
+    }
+
+    private static int[] ints(String list) {
+        String[] s = list.split(",");
+        int[] x = new int[s.length];
+        for (int i = 0; i < s.length; i++) {
+            x[i] = Integer.parseInt(s[i].trim());
+            if (x[i] < 1) {
+                throw new IllegalArgumentException("Illegal size: " + x[i]);
+            }
+        }
+        return x;
+    }
+
+    private static double[] doubles(String list) {
+        String[] s = list.split(",");
+        double[] x = new double[s.length];
+        for (int i = 0; i < s.length; i++) {
+            x[i] = Double.parseDouble(s[i].trim());
+        }
+        return x;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An unevaluated expression of sums, differences, scalar multiples and
+ * products of matrices.
+ *
+ * <p>
+ * Operations on an expression only build a small tree, checking the orders
+ * of their operands as they go. Nothing is computed until {@link
+ * #evaluate()}, which first expands the tree into a linear combination of
+ * matrices and matrix products. The matrices of the combination are then
+ * summed in one fused pass over the rows of the result, so that each
+ * operand is read once and no temporary is allocated, and each product is
+ * added by the multiplication kernel with its coefficient as the kernel's
+ * scale. For example
+ * <pre>
+ * A.lazy().plus(B).minus(C).times(k).evaluate()
+ * </pre>
+ * computes kA + kB - kC in a single pass, and
+ * <pre>
+ * A.lazy().times(B).times(alpha).plus(C.lazy().times(beta)).evaluate()
+ * </pre>
+ * computes alpha AB + beta C as one scaled copy of C and one kernel call.
+ *
+ * <p>
+ * Matrices are read when the expression is evaluated, not when it is built,
+ * so changes to them in between are seen by the result.
+ *
+ * @author Thurman
+ */
+public abstract class MatrixExpression {
+
+    /**
+     * The order of the value of this expression.
+     */
+    final Order order;
+
+    MatrixExpression(Order order) {
+        this.order = order;
+    }
+
+    /**
+     * Returns an expression whose value is a matrix.
+     *
+     * @param M a matrix
+     * @return an expression of the matrix
+     */
+    public static MatrixExpression of(Matrix M) {
+        return new Leaf(M);
+    }
+
+    /**
+     * Returns the order of the value of this expression.
+     *
+     * @return the order of the value of this expression
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns an expression of the sum of this and another expression.
+     *
+     * @param E an expression of the same order
+     * @return an expression of the sum
+     */
+    public MatrixExpression plus(MatrixExpression E) {
+        return new Sum(this, E, 1.0);
+    }
+
+    /**
+     * Returns an expression of the sum of this expression and a matrix.
+     *
+     * @param M a matrix of the same order
+     * @return an expression of the sum
+     */
+    public MatrixExpression plus(Matrix M) {
+        return plus(of(M));
+    }
+
+    /**
+     * Returns an expression of the difference of this and another expression.
+     *
+     * @param E an expression of the same order
+     * @return an expression of the difference
+     */
+    public MatrixExpression minus(MatrixExpression E) {
+        return new Sum(this, E, -1.0);
+    }
+
+    /**
+     * Returns an expression of the difference of this expression and a
+     * matrix.
+     *
+     * @param M a matrix of the same order
+     * @return an expression of the difference
+     */
+    public MatrixExpression minus(Matrix M) {
+        return minus(of(M));
+    }
+
+    /**
+     * Returns an expression of the product of this expression and a scalar.
+     *
+     * @param k a scalar
+     * @return an expression of the product
+     */
+    public MatrixExpression times(double k) {
+        return new Scaled(this, k);
+    }
+
+    /**
+     * Returns an expression of the negation of this expression.
+     *
+     * @return an expression of the negation
+     */
+    public MatrixExpression negate() {
+        return times(-1.0);
+    }
+
+    /**
+     * Returns an expression of the product of this and another expression.
+     *
+     * @param E an expression with the same row count as this expression's
+     * columns
+     * @return an expression of the product
+     */
+    public MatrixExpression times(MatrixExpression E) {
+        return new Product(this, E);
+    }
+
+    /**
+     * Returns an expression of the product of this expression and a matrix.
+     *
+     * @param M a matrix with the same row count as this expression's columns
+     * @return an expression of the product
+     */
+    public MatrixExpression times(Matrix M) {
+        return times(of(M));
+    }
+
+    /**
+     * Computes the value of this expression.
+     *
+     * @return a new matrix holding the value of this expression
+     */
+    public Matrix evaluate() {
+        return evaluate(Parallelism.getDefault());
+    }
+
+    /**
+     * Computes the value of this expression with the specified parallelism.
+     *
+     * @param p the parallelism to compute with
+     * @return a new matrix holding the value of this expression
+     */
+    public Matrix evaluate(Parallelism p) {
+        Matrix result = new Matrix(order.rows, order.cols);
+        List<Term> terms = new ArrayList<>();
+        collect(1.0, terms);
+        accumulate(terms, result, p);
+        return result;
+    }
+
+    /**
+     * Returns a matrix holding the value of this expression, which is the
+     * matrix itself for a leaf.
+     */
+    Matrix operand(Parallelism p) {
+        return evaluate(p);
+    }
+
+    /**
+     * Appends the terms of coef times this expression to a linear
+     * combination.
+     */
+    abstract void collect(double coef, List<Term> terms);
+
+    /**
+     * Stores a linear combination in a matrix of its order: the matrices are
+     * combined in one fused pass, then each product is added by the
+     * multiplication kernel.
+     */
+    static void accumulate(List<Term> terms, Matrix result, Parallelism p) {
+        Map<Matrix, Integer> seen = new IdentityHashMap<>();
+        List<Matrix> matrices = new ArrayList<>();
+        List<Double> coefs = new ArrayList<>();
+        List<Term> products = new ArrayList<>();
+        for (Term t : terms) {
+            if (t.matrix == null) {
+                products.add(t);
+                continue;
+            }
+            Integer i = seen.get(t.matrix);
+            if (i == null) {
+                seen.put(t.matrix, matrices.size());
+                matrices.add(t.matrix);
+                coefs.add(t.coef);
+            } else {
+                coefs.set(i, coefs.get(i) + t.coef);
+            }
+        }
+        double[] k = new double[coefs.size()];
+        Arrays.setAll(k, coefs::get);
+        combine(matrices.toArray(new Matrix[0]), k, result, p);
+
+        int m = result.getRows();
+        int n = result.getCols();
+        for (Term t : products) {
+            Matrix A = t.left.operand(p);
+            Matrix B = t.right.operand(p);
+            p.getBackend().gemm(p, t.coef, m, n, A.getCols(),
+                    A.data, A.offset, A.stride, B.data, B.offset, B.stride,
+                    1.0, result.data, result.offset, result.stride);
+        }
+    }
+
+    /**
+     * Stores the linear combination of matrices in a matrix, or zero if
+     * there are none, traversing each row of the operands once.
+     */
+    private static void combine(Matrix[] matrices, double[] coefs, Matrix result,
+            Parallelism p) {
+        int n = result.getCols();
+        int count = matrices.length;
+        boolean contiguous = result.isContiguous();
+        for (Matrix M : matrices) {
+            contiguous &= M.isContiguous();
+        }
+        boolean runs = contiguous;
+        ParallelUtils.forRange(p, result.getRows(), (long) n * Math.max(1, count), 1, (r0, r1) -> {
+            int rows = runs ? 1 : r1 - r0;
+            int len = runs ? (r1 - r0) * n : n;
+            for (int i = 0; i < rows; i++) {
+                int r = r0 + i;
+                int out = result.index(r, 0);
+                if (count == 0) {
+                    Arrays.fill(result.data, out, out + len, 0.0);
+                    continue;
+                }
+                Matrix first = matrices[0];
+                KernelUtils.scale(coefs[0], first.data, first.index(r, 0),
+                        result.data, out, len);
+                for (int j = 1; j < count; j++) {
+                    Matrix M = matrices[j];
+                    KernelUtils.axpy(coefs[j], M.data, M.index(r, 0), result.data, out, len);
+                }
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s expression", order);
+    }
+
+    /**
+     * A term of a linear combination: a coefficient times either a matrix
+     * or a product of two expressions.
+     */
+    static final class Term {
+
+        final double coef;
+        final Matrix matrix;
+        final MatrixExpression left;
+        final MatrixExpression right;
+
+        Term(double coef, Matrix matrix) {
+            this(coef, matrix, null, null);
+        }
+
+        Term(double coef, MatrixExpression left, MatrixExpression right) {
+            this(coef, null, left, right);
+        }
+
+        private Term(double coef, Matrix matrix, MatrixExpression left, MatrixExpression right) {
+            this.coef = coef;
+            this.matrix = matrix;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static final class Leaf extends MatrixExpression {
+
+        private final Matrix matrix;
+
+        Leaf(Matrix matrix) {
+            super(matrix.getOrder());
+            this.matrix = matrix;
+        }
+
+        @Override
+        Matrix operand(Parallelism p) {
+            return matrix;
+        }
+
+        @Override
+        void collect(double coef, List<Term> terms) {
+            terms.add(new Term(coef, matrix));
+        }
+    }
+
+    private static final class Sum extends MatrixExpression {
+
+        private final MatrixExpression left;
+        private final MatrixExpression right;
+        private final double sign;
+
+        Sum(MatrixExpression left, MatrixExpression right, double sign) {
+            super(left.order);
+            if (!left.order.equals(right.order)) {
+                throw new IllegalArgumentException(Matrix.unequalOrderMsg());
+            }
+            this.left = left;
+            this.right = right;
+            this.sign = sign;
+        }
+
+        @Override
+        void collect(double coef, List<Term> terms) {
+            left.collect(coef, terms);
+            right.collect(sign * coef, terms);
+        }
+    }
+
+    private static final class Scaled extends MatrixExpression {
+
+        private final MatrixExpression operand;
+        private final double k;
+
+        Scaled(MatrixExpression operand, double k) {
+            super(operand.order);
+            this.operand = operand;
+            this.k = k;
+        }
+
+        @Override
+        void collect(double coef, List<Term> terms) {
+            operand.collect(coef * k, terms);
+        }
+    }
+
+    private static final class Product extends MatrixExpression {
+
+        private final MatrixExpression left;
+        private final MatrixExpression right;
+
+        Product(MatrixExpression left, MatrixExpression right) {
+            super(new Order(left.order.rows, right.order.cols));
+            if (left.order.cols != right.order.rows) {
+                throw new IllegalArgumentException(
+                        "Row count of argument not equal to the column count of the calling matrix");
+            }
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void collect(double coef, List<Term> terms) {
+            terms.add(new Term(coef, left, right));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes matrices in a compact binary format.
+ *
+ * <p>
+ * A file begins with a 64 byte header, all fields little-endian:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic number 0x4D545258 ("MTRX")
+ *      4     4  format version, currently 1
+ *      8     4  element type, {@link #FLOAT64}
+ *     12     4  layout, {@link #ROW_MAJOR}
+ *     16     8  rows
+ *     24     8  columns
+ *     32    32  reserved, zero
+ * </pre>
+ * It is followed by the rows x columns entries as little-endian IEEE 754
+ * doubles in row-major order, with nothing after them.
+ *
+ * <p>
+ * Files are written and read with bulk {@link FileChannel} transfers. A
+ * file may also be opened as a memory-mapped {@link OffHeapMatrix}, which
+ * reads the entries straight from the page cache without copying them into
+ * the heap, and which writes through to the file if opened for writing.
+ *
+ * @author Thurman
+ */
+public final class MatrixIO {
+
+    /**
+     * The magic number at the start of every matrix file.
+     */
+    static final int MAGIC = 0x4D545258;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The length of the header in bytes.
+     */
+    static final int HEADER = 64;
+
+    /**
+     * The element type code for 64-bit IEEE 754 floating point entries.
+     */
+    public static final int FLOAT64 = 1;
+
+    /**
+     * The layout code for dense entries stored row after row.
+     */
+    public static final int ROW_MAJOR = 1;
+
+    /**
+     * The number of entries moved per bulk transfer.
+     */
+    private static final int TRANSFER = 1 << 16;
+
+    private MatrixIO() {
+    }
+
+    /**
+     * Writes a matrix to a file, replacing any existing file.
+     *
+     * @param M the matrix to write
+     * @param path the file to write to
+     * @throws java.io.IOException if the file cannot be written
+     */
+    public static void write(Matrix M, Path path) throws IOException {
+        write(RowStore.of(M), path);
+    }
+
+    /**
+     * Writes an off-heap matrix to a file, replacing any existing file.
+     *
+     * @param M the matrix to write
+     * @param path the file to write to
+     * @throws java.io.IOException if the file cannot be written
+     */
+    public static void write(OffHeapMatrix M, Path path) throws IOException {
+        write((RowStore) M, path);
+    }
+
+    private static void write(RowStore s, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(FLOAT64).putInt(ROW_MAJOR)
+                    .putLong(s.rowCount()).putLong(s.colCount());
+            header.clear();
+            writeFully(channel, header);
+
+            long cols = s.colCount();
+            ByteBuffer buf = ByteBuffer.allocateDirect(TRANSFER * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer view = buf.asDoubleBuffer();
+            double[] run = new double[(int) Math.min(cols, TRANSFER)];
+            for (long r = 0; r < s.rowCount(); r++) {
+                for (long c = 0; c < cols; c += run.length) {
+                    int n = (int) Math.min(run.length, cols - c);
+                    s.readRow(r, c, run, 0, n);
+                    if (view.remaining() < n) {
+                        buf.limit(view.position() * Double.BYTES);
+                        writeFully(channel, buf);
+                        buf.clear();
+                        view.clear();
+                    }
+                    view.put(run, 0, n);
+                }
+            }
+            buf.limit(view.position() * Double.BYTES);
+            writeFully(channel, buf);
+        }
+    }
+
+    /**
+     * Reads a matrix from a file into the heap.
+     *
+     * @param path the file to read
+     * @return the matrix stored in the file
+     * @throws java.io.IOException if the file cannot be read or is not a
+     * matrix file
+     * @throws java.lang.ArithmeticException if the stored matrix has more
+     * rows or columns than a heap matrix can hold
+     */
+    public static Matrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] order = readHeader(channel, path);
+            Matrix M = new Matrix(Math.toIntExact(order[0]), Math.toIntExact(order[1]));
+            int size = M.data.length;
+            for (int i = 0; i < OffHeapMatrix.chunkCount(size); i++) {
+                int len = OffHeapMatrix.chunkLength(size, i);
+                mapChunk(channel, FileChannel.MapMode.READ_ONLY, i, len)
+                        .get(M.data, i << OffHeapMatrix.CHUNK_SHIFT, len);
+            }
+            return M;
+        }
+    }
+
+    /**
+     * Opens a file as a memory-mapped matrix in an arena, without copying
+     * its entries.
+     *
+     * <p>
+     * The view can be used until the arena is closed. If it is writable,
+     * changes to its entries are written through to the file; otherwise
+     * setting an entry throws {@link java.nio.ReadOnlyBufferException}.
+     *
+     * @param path the file to open
+     * @param arena the arena to tie the lifetime of the view to
+     * @param writable whether the view writes through to the file
+     * @return an off-heap matrix backed by the file
+     * @throws java.io.IOException if the file cannot be opened or is not a
+     * matrix file
+     */
+    public static OffHeapMatrix map(Path path, OffHeapArena arena, boolean writable)
+            throws IOException {
+        arena.ensureOpen();
+        FileChannel.MapMode mode = writable
+                ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] order = readHeader(channel, path);
+            long size = order[0] * order[1];
+            DoubleBuffer[] chunks = new DoubleBuffer[OffHeapMatrix.chunkCount(size)];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = mapChunk(channel, mode, i, OffHeapMatrix.chunkLength(size, i));
+            }
+            return arena.register(new OffHeapMatrix(arena, order[0], order[1], chunks));
+        }
+    }
+
+    /**
+     * Reads and validates a header, returning the rows and columns.
+     */
+    private static long[] readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException("Not a matrix file: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a matrix file: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported matrix file version: " + version);
+        }
+        int type = header.getInt();
+        if (type != FLOAT64) {
+            throw new IOException("Unsupported element type: " + type);
+        }
+        int layout = header.getInt();
+        if (layout != ROW_MAJOR) {
+            throw new IOException("Unsupported layout: " + layout);
+        }
+        long rows = header.getLong();
+        long cols = header.getLong();
+        if (rows < 0 || cols < 0) {
+            throw new IOException("Corrupt matrix file header: " + path);
+        }
+        long expected = HEADER + Math.multiplyExact(Math.multiplyExact(rows, cols), Double.BYTES);
+        if (channel.size() != expected) {
+            throw new IOException(String.format("Matrix file %s has %s bytes, expected %s",
+                    path, channel.size(), expected));
+        }
+        return new long[] {rows, cols};
+    }
+
+    private static DoubleBuffer mapChunk(FileChannel channel, FileChannel.MapMode mode,
+            int chunk, int len) throws IOException {
+        long position = HEADER + ((long) chunk << OffHeapMatrix.CHUNK_SHIFT) * Double.BYTES;
+        return channel.map(mode, position, (long) len * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+}
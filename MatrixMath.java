@@ -10,17 +10,28 @@ public class MatrixMath {
 
     /**
      * Returns an array representing a matrix with specified order and 
-     * psuedorandom entry values, generated by the java.lang.Math class.
+     * psuedorandom entry values between 0 and 1, generated in parallel by
+     * a {@link MatrixRandom} with an unpredictable seed.
      * @param m the number of rows of the array
      * @param n the number of columns of the array
      * @return an m x n array with random values
      */
     public static double[][] random(int m, int n) {
-        double[][] C = new double[m][n];
-        for (int i = 0; i < m; i++)
-            for (int j = 0; j < n; j++)
-                C[i][j] = Math.random();
-        return C;
+        return new MatrixRandom().uniform(m, n).toArray();
+    }
+
+    /**
+     * Returns an array representing a matrix with specified order and 
+     * psuedorandom entry values between 0 and 1, generated by a 
+     * {@link MatrixRandom} with the specified seed, so that the same seed
+     * always gives the same array.
+     * @param m the number of rows of the array
+     * @param n the number of columns of the array
+     * @param seed the seed of the generator
+     * @return an m x n array with random values
+     */
+    public static double[][] random(int m, int n, long seed) {
+        return new MatrixRandom(seed).uniform(m, n).toArray();
     }
 
     /**
@@ -61,18 +72,21 @@ public class MatrixMath {
      * @return the dot product of the vectors (denoted A · B)
      */
     public static double dot(double[]... x) {
-        int m = x.length;
+        int n = x[0].length;
         for (double[] arr : x) {
-            if (arr.length != m) {
-                throw new RuntimeException();
+            if (arr.length != n) {
+                throw new RuntimeException("Illegal vector dimensions.");
             }
         }
+        if (x.length == 2) {
+            return KernelUtils.dot(x[0], 0, x[1], 0, n);
+        }
         double sum = 0.0;
         double product;
-        for (int i = 0; i < x[0].length; i++) {
+        for (int i = 0; i < n; i++) {
             product = 1;
             for (int j = 0 ; j < x.length ; j++) {
-               product *= x[i][j];
+               product *= x[j][i];
             }
             sum += product;
         }
@@ -94,9 +108,12 @@ public class MatrixMath {
         int m = A.length;
         int n = A[0].length;
         double[][] C = new double[n][m];
-        for (int i = 0; i < m; i++)
-            for (int j = 0; j < n; j++)
-                C[j][i] = A[i][j];
+        int b = TransposeUtils.leaf;
+        for (int i0 = 0; i0 < m; i0 += b)
+            for (int j0 = 0; j0 < n; j0 += b)
+                for (int i = i0; i < Math.min(m, i0 + b); i++)
+                    for (int j = j0; j < Math.min(n, j0 + b); j++)
+                        C[j][i] = A[i][j];
         return C;
     }
 
@@ -114,9 +131,7 @@ public class MatrixMath {
         double[][] C = new double[m][n];
         for (double[][] arr : A) {
             for (int i = 0 ; i < m ; i++) {
-                for (int j = 0 ; j < n ; j++) {
-                    C[i][j] += arr[i][j];
-                }
+                KernelUtils.add(C[i], 0, arr[i], 0, C[i], 0, n);
             }
         }
         return C;
@@ -160,12 +175,13 @@ public class MatrixMath {
         int mB = B.length;
         int nB = B[0].length;
         if (nA != mB) throw new RuntimeException("Illegal matrix dimensions.");
-        double[][] C = new double[mA][nB];
-        for (int i = 0; i < mA; i++)
-            for (int j = 0; j < nB; j++)
-                for (int k = 0; k < nA; k++)
-                    C[i][j] += (A[i][k] * B[k][j]);
-        return C;
+        double[] C = new double[mA * nB];
+        Parallelism p = Parallelism.getDefault();
+        p.getBackend().gemm(p, 1.0, mA, nB, nA,
+                ArrayUtils.resize(A, mA, nA), 0, nA,
+                ArrayUtils.resize(B, mB, nB), 0, nB,
+                0.0, C, 0, nB);
+        return ArrayUtils.unflatten(C, 0, nB, mA, nB);
     }
     
     /**
@@ -206,9 +222,9 @@ public class MatrixMath {
         int n = A[0].length;
         if (x.length != n) throw new RuntimeException("Illegal matrix dimensions.");
         double[] y = new double[m];
-        for (int i = 0; i < m; i++)
-            for (int j = 0; j < n; j++)
-                y[i] += (A[i][j] * x[j]);
+        Parallelism p = Parallelism.getDefault();
+        p.getBackend().gemv(p, false, 1.0, m, n, ArrayUtils.resize(A, m, n), 0, n,
+                x, 0, 0.0, y, 0);
         return y;
     }
     
@@ -228,14 +244,25 @@ public class MatrixMath {
         int n = A[0].length;
         if (x.length != m) throw new RuntimeException("Illegal matrix dimensions.");
         double[] y = new double[n];
-        for (int j = 0; j < n; j++)
-            for (int i = 0; i < m; i++)
-                y[j] += (A[i][j] * x[i]);
+        Parallelism p = Parallelism.getDefault();
+        p.getBackend().gemv(p, true, 1.0, m, n, ArrayUtils.resize(A, m, n), 0, n,
+                x, 0, 0.0, y, 0);
         return y;
     }
     
+    /**
+     * Returns the determinant of an array representing a square matrix.
+     * 
+     * <p>The determinant is computed by Gaussian elimination with partial
+     * pivoting, as the product of the pivots negated for each row 
+     * interchange.
+     * @param A an array representing a square matrix
+     * @return the determinant of the matrix (denoted |A|)
+     */
     public static double determinant(double[][] A) {
-        return 2;
+        int n = A.length;
+        if (A[0].length != n) throw new RuntimeException("Illegal matrix dimensions.");
+        return new LUDecomposition(new Matrix(A)).determinant();
     }
 }
 /*
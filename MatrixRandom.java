@@ -0,0 +1,476 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * A seeded generator of random matrices, filling their entries in parallel.
+ *
+ * <p>
+ * Each matrix is divided into tiles of a fixed number of entries, or of
+ * rows, which depends only on the order of the matrix. Before filling, the
+ * generator splits one {@link SplittableRandom} stream for every tile, in
+ * tile order, and each tile then draws all of its entries from its own
+ * stream. Tiles may therefore be filled by any number of threads in any
+ * order, and a generator constructed with the same seed produces the same
+ * sequence of matrices, entry for entry, whatever the parallelism.
+ *
+ * <p>
+ * A generator is safe for use by several threads, though the matrices it
+ * returns then depend on the order of the calls.
+ *
+ * @author Thurman
+ */
+public final class MatrixRandom {
+
+    /**
+     * The number of entries drawn from each stream.
+     */
+    static final int TILE = 1 << 14;
+
+    private final SplittableRandom root;
+
+    /**
+     * Constructs a generator with an unpredictable seed.
+     */
+    public MatrixRandom() {
+        this.root = new SplittableRandom();
+    }
+
+    /**
+     * Constructs a generator with the specified seed.
+     *
+     * @param seed the seed
+     */
+    public MatrixRandom(long seed) {
+        this.root = new SplittableRandom(seed);
+    }
+
+    /**
+     * Returns a matrix of the specified order with entries uniformly
+     * distributed between zero, inclusive, and one, exclusive.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @return a random m x n matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public Matrix uniform(int m, int n) {
+        return uniform(m, n, 0.0, 1.0, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns a matrix of the specified order with entries uniformly
+     * distributed between a lower bound, inclusive, and an upper bound,
+     * exclusive.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @param low the lower bound of the entries
+     * @param high the upper bound of the entries
+     * @param p the parallelism to compute with
+     * @return a random m x n matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries, or if the bounds are not finite and increasing
+     */
+    public Matrix uniform(int m, int n, double low, double high, Parallelism p) {
+        Objects.requireNonNull(p);
+        if (!(low < high) || Double.isInfinite(high - low)) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid bounds [%s, %s)", low, high));
+        }
+        double[] a = new double[size(m, n)];
+        SplittableRandom[] streams = split((a.length + TILE - 1) / TILE);
+        double width = high - low;
+        ParallelUtils.forRange(p, streams.length, TILE, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                SplittableRandom r = streams[t];
+                int end = Math.min(a.length, (t + 1) * TILE);
+                for (int i = t * TILE; i < end; i++) {
+                    a[i] = low + width * r.nextDouble();
+                }
+            }
+        });
+        return new Matrix(a, 0, n, new Order(m, n));
+    }
+
+    /**
+     * Returns a matrix of the specified order with entries drawn from the
+     * standard normal distribution.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @return a random m x n matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public Matrix gaussian(int m, int n) {
+        return gaussian(m, n, 0.0, 1.0, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns a matrix of the specified order with entries drawn from a
+     * normal distribution.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @param mean the mean of the entries
+     * @param deviation the standard deviation of the entries
+     * @param p the parallelism to compute with
+     * @return a random m x n matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries, or if the deviation is negative
+     */
+    public Matrix gaussian(int m, int n, double mean, double deviation, Parallelism p) {
+        Objects.requireNonNull(p);
+        if (!(deviation >= 0.0)) {
+            throw new IllegalArgumentException("Deviation must not be negative");
+        }
+        double[] a = new double[size(m, n)];
+        fillGaussian(a, mean, deviation, p);
+        return new Matrix(a, 0, n, new Order(m, n));
+    }
+
+    /**
+     * Returns a sparse matrix of the specified order in which each entry is
+     * independently nonzero with the specified probability, the nonzero
+     * entries being uniformly distributed between zero, exclusive, and one,
+     * inclusive.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @param density the expected fraction of nonzero entries
+     * @return a random m x n sparse matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * the density is not between zero and one
+     */
+    public SparseMatrix sparse(int m, int n, double density) {
+        return sparse(m, n, density, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns a sparse matrix of the specified order in which each entry is
+     * independently nonzero with the specified probability, the nonzero
+     * entries being uniformly distributed between zero, exclusive, and one,
+     * inclusive.
+     *
+     * <p>
+     * The columns of the nonzero entries of each row are found by drawing
+     * the geometrically distributed gaps between them, so the work is
+     * proportional to the number of nonzero entries rather than to the
+     * order.
+     *
+     * @param m the number of rows
+     * @param n the number of columns
+     * @param density the expected fraction of nonzero entries
+     * @param p the parallelism to compute with
+     * @return a random m x n sparse matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * the density is not between zero and one
+     */
+    public SparseMatrix sparse(int m, int n, double density, Parallelism p) {
+        Objects.requireNonNull(p);
+        if (m < 0 || n < 0) {
+            throw new IllegalArgumentException("Order must not be negative");
+        }
+        if (!(density >= 0.0 && density <= 1.0)) {
+            throw new IllegalArgumentException("Density must be between 0 and 1");
+        }
+        int rowsPerTile = Math.max(1, TILE / Math.max(1, n));
+        int tiles = (m + rowsPerTile - 1) / rowsPerTile;
+        SplittableRandom[] streams = split(tiles);
+        int[] rowPtr = new int[m + 1];
+        int[][] tileCols = new int[tiles][];
+        double[][] tileValues = new double[tiles][];
+        double logSkip = Math.log1p(-density);
+        long work = Math.max(1L, (long) (density * n)) * rowsPerTile;
+        ParallelUtils.forRange(p, tiles, work, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                SplittableRandom r = streams[t];
+                int first = t * rowsPerTile;
+                int last = Math.min(m, first + rowsPerTile);
+                int capacity = (int) Math.min((long) (last - first) * n,
+                        16 + (long) (1.25 * density * (last - first) * n));
+                int[] cols = new int[capacity];
+                double[] values = new double[capacity];
+                int k = 0;
+                for (int row = first; row < last && density > 0.0; row++) {
+                    double c = -1.0;
+                    while (true) {
+                        c += density == 1.0 ? 1.0
+                                : 1.0 + Math.floor(Math.log(1.0 - r.nextDouble()) / logSkip);
+                        if (c >= n) {
+                            break;
+                        }
+                        if (k == cols.length) {
+                            int grown = (int) Math.min((long) (last - first) * n, 2L * k);
+                            cols = Arrays.copyOf(cols, grown);
+                            values = Arrays.copyOf(values, grown);
+                        }
+                        cols[k] = (int) c;
+                        values[k++] = 1.0 - r.nextDouble();
+                    }
+                    rowPtr[row + 1] = k;
+                }
+                tileCols[t] = cols;
+                tileValues[t] = values;
+            }
+        });
+
+        // rowPtr holds the counts to the end of each row within its tile
+        int nnz = 0;
+        for (int t = 0; t < tiles; t++) {
+            int first = t * rowsPerTile;
+            int last = Math.min(m, first + rowsPerTile);
+            int base = nnz;
+            for (int row = first; row < last; row++) {
+                rowPtr[row + 1] += base;
+            }
+            nnz = rowPtr[last];
+        }
+        int[] colIdx = new int[nnz];
+        double[] values = new double[nnz];
+        ParallelUtils.forRange(p, tiles, rowsPerTile, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                int first = t * rowsPerTile;
+                int last = Math.min(m, first + rowsPerTile);
+                int len = rowPtr[last] - rowPtr[first];
+                System.arraycopy(tileCols[t], 0, colIdx, rowPtr[first], len);
+                System.arraycopy(tileValues[t], 0, values, rowPtr[first], len);
+            }
+        });
+        return new SparseMatrix(new Order(m, n), rowPtr, colIdx, values);
+    }
+
+    /**
+     * Returns a random symmetric positive definite matrix of the specified
+     * order.
+     *
+     * @param n the number of rows and columns
+     * @return a random n x n symmetric positive definite matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public SquareMatrix positiveDefinite(int n) {
+        return positiveDefinite(n, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns a random symmetric positive definite matrix of the specified
+     * order.
+     *
+     * <p>
+     * The entries off the diagonal are uniformly distributed between -1 and
+     * 1, and each entry on the diagonal exceeds the sum of the magnitudes of
+     * the other entries of its row by a number uniformly distributed between
+     * 0, exclusive, and 1, inclusive. A symmetric matrix whose diagonal
+     * dominates in this way is positive definite, and it is generated in
+     * time proportional to its entries, rather than the cube of its order
+     * taken by a product of the form A&middot;A<sup>T</sup>.
+     *
+     * @param n the number of rows and columns
+     * @param p the parallelism to compute with
+     * @return a random n x n symmetric positive definite matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public SquareMatrix positiveDefinite(int n, Parallelism p) {
+        Objects.requireNonNull(p);
+        double[] a = new double[size(n, n)];
+        int rowsPerTile = Math.max(1, TILE / Math.max(1, n));
+        int tiles = (n + rowsPerTile - 1) / rowsPerTile;
+        SplittableRandom[] streams = split(tiles);
+
+        // each tile draws the entries right of the diagonal in its rows and
+        // mirrors them below the diagonal, so every entry has a single writer
+        ParallelUtils.forRange(p, tiles, (long) rowsPerTile * n, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                SplittableRandom r = streams[t];
+                int last = Math.min(n, (t + 1) * rowsPerTile);
+                for (int i = t * rowsPerTile; i < last; i++) {
+                    a[i * n + i] = 1.0 - r.nextDouble();
+                    for (int j = i + 1; j < n; j++) {
+                        double x = 2.0 * r.nextDouble() - 1.0;
+                        a[i * n + j] = x;
+                        a[j * n + i] = x;
+                    }
+                }
+            }
+        });
+        ParallelUtils.forRange(p, n, n, 1, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int ii = i * n + i;
+                a[ii] += KernelUtils.asum(a, i * n, n) - a[ii];
+            }
+        });
+        return new SquareMatrix(a, n);
+    }
+
+    /**
+     * Returns a random orthogonal matrix of the specified order.
+     *
+     * @param n the number of rows and columns
+     * @return a random n x n orthogonal matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public SquareMatrix orthogonal(int n) {
+        return orthogonal(n, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns a random orthogonal matrix of the specified order, distributed
+     * uniformly over the orthogonal group.
+     *
+     * <p>
+     * A matrix of standard normal entries is factored as Q&middot;R by
+     * Householder reflections, and the columns of Q are multiplied by the
+     * signs of the diagonal of R, which makes the distribution of the result
+     * uniform rather than dependent on the factorization. Each reflection is
+     * applied to ranges of columns in parallel, every column being computed
+     * by the same operations in the same order whatever the ranges, so the
+     * result is reproducible.
+     *
+     * @param n the number of rows and columns
+     * @param p the parallelism to compute with
+     * @return a random n x n orthogonal matrix
+     * @throws java.lang.IllegalArgumentException if the order is negative or
+     * has too many entries
+     */
+    public SquareMatrix orthogonal(int n, Parallelism p) {
+        Objects.requireNonNull(p);
+        double[] a = new double[size(n, n)];
+        fillGaussian(a, 0.0, 1.0, p);
+        double[] signs = new double[n];
+        double[] v = new double[n];
+
+        // factor A = Q * R, leaving each Householder vector in the column of
+        // A it reduced
+        for (int k = 0; k < n - 1; k++) {
+            int len = n - k;
+            for (int i = 0; i < len; i++) {
+                v[i] = a[(k + i) * n + k];
+            }
+            double norm = KernelUtils.nrm2(v, 0, len);
+            double alpha = v[0] >= 0.0 ? -norm : norm;
+            signs[k] = alpha < 0.0 ? -1.0 : 1.0;
+            v[0] -= alpha;
+            double scale = KernelUtils.nrm2(v, 0, len);
+            if (scale != 0.0) {
+                KernelUtils.scale(1.0 / scale, v, 0, v, 0, len);
+            }
+            reflect(p, a, n, k, v, k + 1);
+            for (int i = 0; i < len; i++) {
+                a[(k + i) * n + k] = v[i];
+            }
+        }
+        if (n > 0) {
+            signs[n - 1] = a[n * n - 1] < 0.0 ? -1.0 : 1.0;
+        }
+
+        // accumulate Q = H(0) * ... * H(n - 2) from the right, each product
+        // leaving the first k rows and columns those of the identity
+        double[] q = new double[a.length];
+        for (int i = 0; i < n; i++) {
+            q[i * n + i] = 1.0;
+        }
+        for (int k = n - 2; k >= 0; k--) {
+            int len = n - k;
+            for (int i = 0; i < len; i++) {
+                v[i] = a[(k + i) * n + k];
+            }
+            reflect(p, q, n, k, v, k);
+        }
+        ParallelUtils.forRange(p, n, n, 1, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                for (int j = 0, ij = i * n; j < n; j++, ij++) {
+                    q[ij] *= signs[j];
+                }
+            }
+        });
+        return new SquareMatrix(q, n);
+    }
+
+    /**
+     * Applies the reflection I - 2&middot;v&middot;v<sup>T</sup>, by a unit
+     * vector v, to the rows from k and columns from c0 of an n x n array.
+     */
+    private static void reflect(Parallelism p, double[] a, int n, int k, double[] v, int c0) {
+        int rows = n - k;
+        ParallelUtils.forRange(p, n - c0, 4L * rows, 16, (from, to) -> {
+            int len = to - from;
+            double[] w = Workspace.borrowZeroed(len);
+            for (int i = 0; i < rows; i++) {
+                KernelUtils.axpy(v[i], a, (k + i) * n + c0 + from, w, 0, len);
+            }
+            for (int i = 0; i < rows; i++) {
+                KernelUtils.axpy(-2.0 * v[i], w, 0, a, (k + i) * n + c0 + from, len);
+            }
+            Workspace.release(w);
+        });
+    }
+
+    /**
+     * Fills an array with normally distributed values by the polar method,
+     * each tile drawing pairs of values from its own stream.
+     */
+    private void fillGaussian(double[] a, double mean, double deviation, Parallelism p) {
+        SplittableRandom[] streams = split((a.length + TILE - 1) / TILE);
+        ParallelUtils.forRange(p, streams.length, 2L * TILE, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                SplittableRandom r = streams[t];
+                int end = Math.min(a.length, (t + 1) * TILE);
+                for (int i = t * TILE; i < end; i += 2) {
+                    double x, y, s;
+                    do {
+                        x = 2.0 * r.nextDouble() - 1.0;
+                        y = 2.0 * r.nextDouble() - 1.0;
+                        s = x * x + y * y;
+                    } while (s >= 1.0 || s == 0.0);
+                    double f = deviation * Math.sqrt(-2.0 * Math.log(s) / s);
+                    a[i] = mean + f * x;
+                    if (i + 1 < end) {
+                        a[i + 1] = mean + f * y;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits the streams of the tiles of the next matrix from the root
+     * stream, in tile order.
+     */
+    private SplittableRandom[] split(int tiles) {
+        SplittableRandom[] streams = new SplittableRandom[tiles];
+        synchronized (root) {
+            SplittableRandom call = root.split();
+            for (int t = 0; t < tiles; t++) {
+                streams[t] = call.split();
+            }
+        }
+        return streams;
+    }
+
+    /**
+     * Returns the number of entries of an m x n matrix.
+     */
+    private static int size(int m, int n) {
+        if (m < 0 || n < 0) {
+            throw new IllegalArgumentException("Order must not be negative");
+        }
+        long size = (long) m * n;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format(
+                    "Order %s x %s has too many entries", m, n));
+        }
+        return (int) size;
+    }
+}
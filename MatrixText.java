@@ -0,0 +1,758 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reads and writes matrices as text, in CSV and Matrix Market formats.
+ *
+ * <p>
+ * Writers stream to any {@link Appendable} one row at a time, so the text
+ * of a matrix is never built in memory as a whole. Wrap a {@link
+ * java.io.Writer} in a {@link java.io.BufferedWriter} when writing to a
+ * file.
+ *
+ * <p>
+ * Readers accept a {@link Reader}, which is read line by line, or a {@link
+ * Path}. A file is split into chunks of about 4 MB that are parsed in
+ * parallel, each chunk owning the lines that begin in it.
+ *
+ * <p>
+ * CSV files hold one row per line, with entries separated by commas. Blank
+ * lines are ignored. Matrix Market files are read in both the {@code array}
+ * and {@code coordinate} formats, with {@code real}, {@code integer} or
+ * {@code pattern} fields and {@code general}, {@code symmetric} or {@code
+ * skew-symmetric} symmetry. Malformed input is reported by an {@link
+ * IOException}.
+ *
+ * @author Thurman
+ */
+public final class MatrixText {
+
+    /**
+     * The number of entries up to which {@link Matrix#toString()} prints a
+     * matrix in full.
+     */
+    static final int SUMMARY_THRESHOLD = 10_000;
+
+    /**
+     * The number of leading and trailing rows and columns printed in a
+     * summary.
+     */
+    static final int SUMMARY_EDGE = 3;
+
+    /**
+     * The nominal length in bytes of a chunk of a file parsed by one task.
+     */
+    static final int CHUNK = 1 << 22;
+
+    private MatrixText() {
+    }
+
+    /**
+     * Writes the entries of a matrix, one row per line with entries
+     * separated by spaces, as printed by {@link Matrix#toString()} for small
+     * matrices.
+     *
+     * @param M the matrix to write
+     * @param out the destination
+     * @throws java.io.IOException if the destination cannot be written
+     */
+    public static void write(Matrix M, Appendable out) throws IOException {
+        writeRows(M, out, ' ');
+    }
+
+    /**
+     * Writes a matrix as CSV, one row per line.
+     *
+     * @param M the matrix to write
+     * @param out the destination
+     * @throws java.io.IOException if the destination cannot be written
+     */
+    public static void writeCSV(Matrix M, Appendable out) throws IOException {
+        writeRows(M, out, ',');
+    }
+
+    private static void writeRows(Matrix M, Appendable out, char sep) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < M.getRows(); r++) {
+            sb.setLength(0);
+            int i = M.index(r, 0);
+            sb.append(M.data[i]);
+            for (int c = 1; c < M.getCols(); c++) {
+                sb.append(sep).append(M.data[i + c]);
+            }
+            out.append(sb.append('\n'));
+        }
+    }
+
+    /**
+     * Writes a matrix in the Matrix Market {@code array} format, which lists
+     * the entries column by column.
+     *
+     * @param M the matrix to write
+     * @param out the destination
+     * @throws java.io.IOException if the destination cannot be written
+     */
+    public static void writeMatrixMarket(Matrix M, Appendable out) throws IOException {
+        out.append("%%MatrixMarket matrix array real general\n");
+        out.append(M.getRows() + " " + M.getCols() + "\n");
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < M.getCols(); c++) {
+            sb.setLength(0);
+            for (int r = 0; r < M.getRows(); r++) {
+                sb.append(M.data[M.index(r, c)]).append('\n');
+            }
+            out.append(sb);
+        }
+    }
+
+    /**
+     * Writes a sparse matrix in the Matrix Market {@code coordinate} format,
+     * which lists the one-based row, column and value of each nonzero entry.
+     *
+     * @param S the matrix to write
+     * @param out the destination
+     * @throws java.io.IOException if the destination cannot be written
+     */
+    public static void writeMatrixMarket(SparseMatrix S, Appendable out) throws IOException {
+        out.append("%%MatrixMarket matrix coordinate real general\n");
+        out.append(S.getRows() + " " + S.getCols() + " " + S.nonZeros() + "\n");
+        int[] rowPtr = S.getRowPointers();
+        int[] colIdx = S.getColumnIndices();
+        double[] values = S.getValues();
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < S.getRows(); r++) {
+            sb.setLength(0);
+            for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                sb.append(r + 1).append(' ').append(colIdx[k] + 1).append(' ')
+                        .append(values[k]).append('\n');
+            }
+            out.append(sb);
+        }
+    }
+
+    /**
+     * Returns the text of a matrix, summarized if it has more than
+     * {@link #SUMMARY_THRESHOLD} entries.
+     *
+     * <p>
+     * A summary starts with the order of the matrix and shows the first and
+     * last {@link #SUMMARY_EDGE} rows and columns, with an ellipsis in place
+     * of the rest.
+     */
+    static String toString(Matrix M) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            if ((long) M.getRows() * M.getCols() <= SUMMARY_THRESHOLD) {
+                write(M, sb);
+                return sb.toString();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int[] rows = edges(M.getRows());
+        int[] cols = edges(M.getCols());
+        sb.append(M.getOrder()).append(" matrix\n");
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] < 0) {
+                sb.append("...\n");
+                continue;
+            }
+            for (int j = 0; j < cols.length; j++) {
+                if (j > 0) {
+                    sb.append(' ');
+                }
+                if (cols[j] < 0) {
+                    sb.append("...");
+                } else {
+                    sb.append(M.data[M.index(rows[i], cols[j])]);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the indices shown in a summary, with -1 marking an ellipsis.
+     */
+    private static int[] edges(int n) {
+        if (n <= 2 * SUMMARY_EDGE) {
+            int[] all = new int[n];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        int[] shown = new int[2 * SUMMARY_EDGE + 1];
+        for (int i = 0; i < SUMMARY_EDGE; i++) {
+            shown[i] = i;
+            shown[shown.length - 1 - i] = n - 1 - i;
+        }
+        shown[SUMMARY_EDGE] = -1;
+        return shown;
+    }
+
+    /**
+     * Reads a matrix from CSV text.
+     *
+     * @param in the source
+     * @return the matrix read
+     * @throws java.io.IOException if the source cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readCSV(Reader in) throws IOException {
+        Chunk chunk = new Chunk();
+        BufferedReader reader = buffered(in);
+        for (String line; (line = reader.readLine()) != null;) {
+            chunk.parse(line, true);
+        }
+        return toMatrix(new Chunk[] {chunk});
+    }
+
+    /**
+     * Reads a matrix from a CSV file, parsing chunks of the file with the
+     * default parallelism.
+     *
+     * @param path the file to read
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readCSV(Path path) throws IOException {
+        return readCSV(path, Parallelism.getDefault());
+    }
+
+    /**
+     * Reads a matrix from a CSV file, parsing chunks of the file with a
+     * specified parallelism.
+     *
+     * @param path the file to read
+     * @param p the parallelism to parse chunks with
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readCSV(Path path, Parallelism p) throws IOException {
+        return toMatrix(parse(path, 0, true, p));
+    }
+
+    private static Matrix toMatrix(Chunk[] chunks) throws IOException {
+        int cols = -1;
+        long size = 0;
+        for (Chunk c : chunks) {
+            if (c.cols >= 0) {
+                if (cols >= 0 && c.cols != cols) {
+                    throw new IOException("Rows of unequal length");
+                }
+                cols = c.cols;
+            }
+            size += c.size;
+        }
+        if (cols <= 0) {
+            throw new IOException("No entries");
+        }
+        double[] data = concat(chunks, size);
+        return new Matrix(data, 0, cols, new Order(data.length / cols, cols));
+    }
+
+    /**
+     * Reads a dense matrix from Matrix Market text in either format.
+     *
+     * @param in the source
+     * @return the matrix read
+     * @throws java.io.IOException if the source cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readMatrixMarket(Reader in) throws IOException {
+        BufferedReader reader = buffered(in);
+        Header h = Header.read(reader::readLine);
+        return h.toMatrix(h.readAll(reader));
+    }
+
+    /**
+     * Reads a dense matrix from a Matrix Market file in either format,
+     * parsing chunks of the file with the default parallelism.
+     *
+     * @param path the file to read
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readMatrixMarket(Path path) throws IOException {
+        return readMatrixMarket(path, Parallelism.getDefault());
+    }
+
+    /**
+     * Reads a dense matrix from a Matrix Market file in either format,
+     * parsing chunks of the file with a specified parallelism.
+     *
+     * @param path the file to read
+     * @param p the parallelism to parse chunks with
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static Matrix readMatrixMarket(Path path, Parallelism p) throws IOException {
+        Header h = Header.read(path);
+        return h.toMatrix(parse(path, h.dataStart, false, p));
+    }
+
+    /**
+     * Reads a sparse matrix from Matrix Market text in either format.
+     *
+     * @param in the source
+     * @return the matrix read
+     * @throws java.io.IOException if the source cannot be read or is not
+     * well-formed
+     */
+    public static SparseMatrix readSparseMatrixMarket(Reader in) throws IOException {
+        BufferedReader reader = buffered(in);
+        Header h = Header.read(reader::readLine);
+        return h.toSparse(h.readAll(reader));
+    }
+
+    /**
+     * Reads a sparse matrix from a Matrix Market file in either format,
+     * parsing chunks of the file with the default parallelism.
+     *
+     * @param path the file to read
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static SparseMatrix readSparseMatrixMarket(Path path) throws IOException {
+        return readSparseMatrixMarket(path, Parallelism.getDefault());
+    }
+
+    /**
+     * Reads a sparse matrix from a Matrix Market file in either format,
+     * parsing chunks of the file with a specified parallelism.
+     *
+     * @param path the file to read
+     * @param p the parallelism to parse chunks with
+     * @return the matrix read
+     * @throws java.io.IOException if the file cannot be read or is not
+     * well-formed
+     */
+    public static SparseMatrix readSparseMatrixMarket(Path path, Parallelism p)
+            throws IOException {
+        Header h = Header.read(path);
+        return h.toSparse(parse(path, h.dataStart, false, p));
+    }
+
+    private static BufferedReader buffered(Reader in) {
+        return in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    private static double[] concat(Chunk[] chunks, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Too many entries: " + size);
+        }
+        double[] all = new double[(int) size];
+        int pos = 0;
+        for (Chunk c : chunks) {
+            System.arraycopy(c.values, 0, all, pos, c.size);
+            pos += c.size;
+        }
+        return all;
+    }
+
+    /**
+     * Parses the lines of a file from a position on, in chunks.
+     */
+    private static Chunk[] parse(Path path, long start, boolean csv, Parallelism p)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int n = Math.toIntExact(Math.max(1, (size - start + CHUNK - 1) / CHUNK));
+            Chunk[] chunks = new Chunk[n];
+            ParallelUtils.forRange(p, n, CHUNK, 1, (c0, c1) -> {
+                for (int c = c0; c < c1; c++) {
+                    long from = start + (long) c * CHUNK;
+                    try {
+                        chunks[c] = parseRange(channel, from, Math.min(size, from + CHUNK),
+                                from == start, size, csv);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            return chunks;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses the lines beginning in [from, to) of a file, reading past the
+     * end of the range to finish the last line.
+     */
+    private static Chunk parseRange(FileChannel channel, long from, long to, boolean first,
+            long size, boolean csv) throws IOException {
+        Chunk chunk = new Chunk();
+        if (from >= size) {
+            return chunk;
+        }
+        long base = first ? from : from - 1;
+        long slack = 1 << 16;
+        MappedByteBuffer buf = map(channel, base, Math.min(size, to + slack));
+        int pos = 0;
+        if (!first) {
+            // a line belongs to the chunk it begins in
+            int nl;
+            while ((nl = indexOf(buf, 0)) < 0 && base + buf.limit() < size) {
+                slack <<= 1;
+                buf = map(channel, base, Math.min(size, to + slack));
+            }
+            pos = nl < 0 ? buf.limit() : nl + 1;
+        }
+        byte[] line = new byte[256];
+        while (base + pos < to) {
+            int nl = indexOf(buf, pos);
+            if (nl < 0 && base + buf.limit() < size) {
+                slack <<= 1;
+                buf = map(channel, base, Math.min(size, to + slack));
+                continue;
+            }
+            int end = nl < 0 ? buf.limit() : nl;
+            int len = end - pos;
+            if (len > 0 && buf.get(end - 1) == '\r') {
+                len--;
+            }
+            if (line.length < len) {
+                line = new byte[Math.max(len, 2 * line.length)];
+            }
+            for (int i = 0; i < len; i++) {
+                line[i] = buf.get(pos + i);
+            }
+            chunk.parse(new String(line, 0, len, StandardCharsets.ISO_8859_1), csv);
+            pos = end + 1;
+        }
+        return chunk;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long to)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    private static int indexOf(MappedByteBuffer buf, int from) {
+        for (int i = from, n = buf.limit(); i < n; i++) {
+            if (buf.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The numbers parsed from a run of lines.
+     */
+    private static final class Chunk {
+
+        double[] values = new double[1024];
+        int size;
+
+        /**
+         * The entries per line of CSV, or -1 before the first line.
+         */
+        int cols = -1;
+
+        void add(double v) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = v;
+        }
+
+        void parse(String line, boolean csv) throws IOException {
+            if (csv) {
+                parseCSV(line);
+            } else {
+                parseFields(line);
+            }
+        }
+
+        private void parseCSV(String line) throws IOException {
+            if (line.trim().isEmpty()) {
+                return;
+            }
+            int fields = 0;
+            int from = 0;
+            while (true) {
+                int comma = line.indexOf(',', from);
+                int end = comma < 0 ? line.length() : comma;
+                add(number(line.substring(from, end).trim()));
+                fields++;
+                if (comma < 0) {
+                    break;
+                }
+                from = comma + 1;
+            }
+            if (cols >= 0 && fields != cols) {
+                throw new IOException("Rows of unequal length");
+            }
+            cols = fields;
+        }
+
+        private void parseFields(String line) throws IOException {
+            int n = line.length();
+            int i = 0;
+            while (i < n) {
+                char ch = line.charAt(i);
+                if (ch == '%') {
+                    return;
+                }
+                if (Character.isWhitespace(ch)) {
+                    i++;
+                    continue;
+                }
+                int j = i;
+                while (j < n && !Character.isWhitespace(line.charAt(j))) {
+                    j++;
+                }
+                add(number(line.substring(i, j)));
+                i = j;
+            }
+        }
+
+        private static double number(String s) throws IOException {
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                throw new IOException("Not a number: \"" + s + "\"");
+            }
+        }
+    }
+
+    /**
+     * A source of lines, as for {@link BufferedReader#readLine()}.
+     */
+    private interface LineSource {
+
+        String readLine() throws IOException;
+    }
+
+    /**
+     * The banner and size line of a Matrix Market file.
+     */
+    private static final class Header {
+
+        boolean coordinate;
+        boolean pattern;
+        int symmetry;
+        int rows;
+        int cols;
+        long entries;
+
+        /**
+         * The position in the file of the first line after the size line.
+         */
+        long dataStart;
+
+        static Header read(LineSource in) throws IOException {
+            String banner = in.readLine();
+            if (banner == null) {
+                throw new IOException("Not a Matrix Market file");
+            }
+            String[] b = banner.trim().toLowerCase(Locale.ROOT).split("\\s+");
+            if (b.length != 5 || !b[0].equals("%%matrixmarket") || !b[1].equals("matrix")) {
+                throw new IOException("Not a Matrix Market file: " + banner);
+            }
+            Header h = new Header();
+            switch (b[2]) {
+                case "coordinate":
+                    h.coordinate = true;
+                    break;
+                case "array":
+                    break;
+                default:
+                    throw new IOException("Unsupported format: " + b[2]);
+            }
+            switch (b[3]) {
+                case "pattern":
+                    if (!h.coordinate) {
+                        throw new IOException("Pattern fields require the coordinate format");
+                    }
+                    h.pattern = true;
+                    break;
+                case "real":
+                case "integer":
+                    break;
+                default:
+                    throw new IOException("Unsupported field: " + b[3]);
+            }
+            switch (b[4]) {
+                case "general":
+                    h.symmetry = 0;
+                    break;
+                case "symmetric":
+                    h.symmetry = 1;
+                    break;
+                case "skew-symmetric":
+                    h.symmetry = -1;
+                    break;
+                default:
+                    throw new IOException("Unsupported symmetry: " + b[4]);
+            }
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    throw new IOException("Missing size line");
+                }
+                line = line.trim();
+            } while (line.isEmpty() || line.startsWith("%"));
+            String[] size = line.split("\\s+");
+            try {
+                if (size.length != (h.coordinate ? 3 : 2)) {
+                    throw new IOException("Malformed size line: " + line);
+                }
+                h.rows = Integer.parseInt(size[0]);
+                h.cols = Integer.parseInt(size[1]);
+                h.entries = h.coordinate ? Long.parseLong(size[2])
+                        : h.symmetry == 0 ? (long) h.rows * h.cols
+                        : (long) h.rows * (h.rows + h.symmetry) / 2;
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed size line: " + line);
+            }
+            if (h.rows <= 0 || h.cols <= 0 || h.entries < 0
+                    || (h.symmetry != 0 && h.rows != h.cols)) {
+                throw new IOException("Illegal size: " + line);
+            }
+            return h;
+        }
+
+        /**
+         * Reads the header of a file, recording where its data begins.
+         */
+        static Header read(Path path) throws IOException {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+                long[] pos = new long[1];
+                Header h = read(() -> {
+                    StringBuilder sb = new StringBuilder();
+                    int ch;
+                    while ((ch = in.read()) >= 0) {
+                        pos[0]++;
+                        if (ch == '\n') {
+                            return sb.toString();
+                        }
+                        sb.append((char) ch);
+                    }
+                    return sb.length() == 0 ? null : sb.toString();
+                });
+                h.dataStart = pos[0];
+                return h;
+            }
+        }
+
+        Chunk[] readAll(BufferedReader in) throws IOException {
+            Chunk chunk = new Chunk();
+            for (String line; (line = in.readLine()) != null;) {
+                chunk.parse(line, false);
+            }
+            return new Chunk[] {chunk};
+        }
+
+        private int fields() {
+            return coordinate ? (pattern ? 2 : 3) : 1;
+        }
+
+        private double[] values(Chunk[] chunks) throws IOException {
+            long size = 0;
+            for (Chunk c : chunks) {
+                size += c.size;
+            }
+            if (size != entries * fields()) {
+                throw new IOException(String.format("Expected %s entries, found %s numbers",
+                        entries, size));
+            }
+            return concat(chunks, size);
+        }
+
+        Matrix toMatrix(Chunk[] chunks) throws IOException {
+            double[] v = values(chunks);
+            double[] data = new double[rows * cols];
+            if (coordinate) {
+                int k = fields();
+                for (int e = 0; e < v.length; e += k) {
+                    int r = index(v[e], rows);
+                    int c = index(v[e + 1], cols);
+                    double x = pattern ? 1.0 : v[e + 2];
+                    data[r * cols + c] += x;
+                    if (symmetry != 0 && r != c) {
+                        data[c * cols + r] += symmetry * x;
+                    }
+                }
+            } else {
+                int e = 0;
+                for (int c = 0; c < cols; c++) {
+                    for (int r = symmetry == 0 ? 0 : c + (symmetry < 0 ? 1 : 0); r < rows; r++) {
+                        double x = v[e++];
+                        data[r * cols + c] = x;
+                        if (symmetry != 0) {
+                            data[c * cols + r] = symmetry * x;
+                        }
+                    }
+                }
+            }
+            return new Matrix(data, 0, cols, new Order(rows, cols));
+        }
+
+        SparseMatrix toSparse(Chunk[] chunks) throws IOException {
+            if (!coordinate) {
+                return new SparseMatrix(toMatrix(chunks));
+            }
+            double[] v = values(chunks);
+            int k = fields();
+            int n = v.length / k;
+            int mirrored = 0;
+            if (symmetry != 0) {
+                for (int e = 0; e < v.length; e += k) {
+                    if (v[e] != v[e + 1]) {
+                        mirrored++;
+                    }
+                }
+            }
+            int[] r = new int[n + mirrored];
+            int[] c = new int[n + mirrored];
+            double[] x = new double[n + mirrored];
+            for (int e = 0, i = 0, j = n; e < v.length; e += k, i++) {
+                r[i] = index(v[e], rows) + 1;
+                c[i] = index(v[e + 1], cols) + 1;
+                x[i] = pattern ? 1.0 : v[e + 2];
+                if (symmetry != 0 && r[i] != c[i]) {
+                    r[j] = c[i];
+                    c[j] = r[i];
+                    x[j++] = symmetry * x[i];
+                }
+            }
+            return SparseMatrix.fromCoordinates(new Order(rows, cols), r, c, x);
+        }
+
+        private static int index(double v, int bound) throws IOException {
+            int i = (int) v;
+            if (i != v || i < 1 || i > bound) {
+                throw new IOException("Illegal index: " + v);
+            }
+            return i - 1;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * A rectangular window onto the entries of a matrix, sharing its storage.
+ *
+ * <p>
+ * A view maps each of its rows and columns to a position in the internal
+ * array of the matrix it was created from, so the entry in zero-based row
+ * {@code r} and column {@code c} is stored at {@code rowBase[r] +
+ * colBase[c]}. Transposing a view swaps the two maps, and taking a minor or
+ * a region of it drops or slices them, so every view is created in time
+ * proportional to its rows and columns rather than its entries. Setting an
+ * entry of a view sets the entry of the matrix it shares.
+ *
+ * <p>
+ * Views are obtained from {@link Matrix#view()}, {@link
+ * Matrix#transposedView()}, {@link Matrix#colView(int)} and {@link
+ * Matrix#minorView(int, int)}, and are turned into independent matrices by
+ * {@link #copy()}.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class MatrixView {
+
+    private final double[] data;
+    private final int[] rowBase;
+    private final int[] colBase;
+
+    private MatrixView(double[] data, int[] rowBase, int[] colBase) {
+        this.data = data;
+        this.rowBase = rowBase;
+        this.colBase = colBase;
+    }
+
+    /**
+     * Returns a view of a matrix.
+     *
+     * @param M the matrix to view
+     * @return a view of the entire matrix
+     */
+    static MatrixView of(Matrix M) {
+        int[] rowBase = new int[M.getRows()];
+        int[] colBase = new int[M.getCols()];
+        for (int r = 0; r < rowBase.length; r++) {
+            rowBase[r] = M.index(r, 0);
+        }
+        Arrays.setAll(colBase, c -> c);
+        M.owner = false;
+        return new MatrixView(M.data, rowBase, colBase);
+    }
+
+    /**
+     * Returns the number of rows of this view.
+     *
+     * @return the number of rows of this view
+     */
+    public int getRows() {
+        return rowBase.length;
+    }
+
+    /**
+     * Returns the number of columns of this view.
+     *
+     * @return the number of columns of this view
+     */
+    public int getCols() {
+        return colBase.length;
+    }
+
+    /**
+     * Returns the order of this view.
+     *
+     * @return the order of this view
+     */
+    public Order getOrder() {
+        return new Order(getRows(), getCols());
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the view
+     */
+    public double getEntry(int row, int col) {
+        return data[rowBase[row - 1] + colBase[col - 1]];
+    }
+
+    /**
+     * Sets the entry at the specified row and column, and so the entry of the
+     * viewed matrix, to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     */
+    public void setEntry(int row, int col, double a) {
+        data[rowBase[row - 1] + colBase[col - 1]] = a;
+    }
+
+    /**
+     * Returns a view of a rectangular region of this view.
+     *
+     * @param r0 the first row of the region
+     * @param r1 the last row of the region
+     * @param c0 the first column of the region
+     * @param c1 the last column of the region
+     * @return a view of the region
+     * @throws java.lang.IllegalArgumentException if the region is empty or
+     * exceeds this view
+     */
+    public MatrixView subView(int r0, int r1, int c0, int c1) {
+        checkRegion(r0, r1, c0, c1, getRows(), getCols());
+        return new MatrixView(data, Arrays.copyOfRange(rowBase, r0 - 1, r1),
+                Arrays.copyOfRange(colBase, c0 - 1, c1));
+    }
+
+    /**
+     * Returns the transposition of this view, sharing the same entries.
+     *
+     * @return a transposed view
+     */
+    public MatrixView transposed() {
+        return new MatrixView(data, colBase, rowBase);
+    }
+
+    /**
+     * Returns a view of this view without the specified row and column.
+     *
+     * @param row the row to skip
+     * @param col the column to skip
+     * @return a view of the minor submatrix of an entry
+     */
+    public MatrixView minor(int row, int col) {
+        return new MatrixView(data, skip(rowBase, row - 1), skip(colBase, col - 1));
+    }
+
+    /**
+     * Returns a view of a row of this view, as a view with one row.
+     *
+     * @param row the row to view
+     * @return a view of the row
+     */
+    public MatrixView row(int row) {
+        return subView(row, row, 1, getCols());
+    }
+
+    /**
+     * Returns a view of a column of this view, as a view with one column.
+     *
+     * @param col the column to view
+     * @return a view of the column
+     */
+    public MatrixView col(int col) {
+        return subView(1, getRows(), col, col);
+    }
+
+    /**
+     * Returns an independent matrix holding the entries of this view.
+     *
+     * @return a copy of this view
+     */
+    public Matrix copy() {
+        int m = getRows();
+        int n = getCols();
+        Matrix M = new Matrix(m, n);
+        boolean unitCols = true;
+        for (int c = 1; c < n && unitCols; c++) {
+            unitCols = colBase[c] == colBase[c - 1] + 1;
+        }
+        for (int r = 0; r < m; r++) {
+            if (unitCols) {
+                System.arraycopy(data, rowBase[r] + colBase[0], M.data, r * n, n);
+                continue;
+            }
+            for (int c = 0; c < n; c++) {
+                M.data[r * n + c] = data[rowBase[r] + colBase[c]];
+            }
+        }
+        return M;
+    }
+
+    /**
+     * Returns the determinant of this view by cofactor expansion along its
+     * first row, taking minors as views instead of copies.
+     *
+     * @return the determinant of the viewed entries
+     * @throws java.lang.IllegalArgumentException if this view is not square
+     */
+    double determinantRecursive() {
+        int n = getRows();
+        if (n != getCols()) {
+            throw new IllegalArgumentException("Matrix must be square");
+        }
+        if (n == 1) {
+            return data[rowBase[0] + colBase[0]];
+        }
+        double det = 0;
+        for (int c = 0; c < n; c++) {
+            double a = data[rowBase[0] + colBase[c]];
+            if (a != 0.0) {
+                det += a * DeterminantUtils.negOnePow(c) * minor(1, c + 1).determinantRecursive();
+            }
+        }
+        return det;
+    }
+
+    @Override
+    public String toString() {
+        return copy().toString();
+    }
+
+    /**
+     * Checks that the one-based, inclusive region lies within an m x n
+     * array and is not empty.
+     */
+    static void checkRegion(int r0, int r1, int c0, int c1, int m, int n) {
+        if (r0 < 1 || r1 > m || r0 > r1 || c0 < 1 || c1 > n || c0 > c1) {
+            throw new IllegalArgumentException(String.format(
+                    "Illegal region rows %s to %s, columns %s to %s of a %s x %s matrix",
+                    r0, r1, c0, c1, m, n));
+        }
+    }
+
+    private static int[] skip(int[] base, int i) {
+        if (i < 0 || i >= base.length) {
+            throw new IndexOutOfBoundsException(Integer.toString(i + 1));
+        }
+        int[] rest = new int[base.length - 1];
+        System.arraycopy(base, 0, rest, 0, i);
+        System.arraycopy(base, i + 1, rest, i, rest.length - i);
+        return rest;
+    }
+}
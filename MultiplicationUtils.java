@@ -0,0 +1,540 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Provides the matrix multiplication kernel of the default {@link
+ * MatrixBackend}, which tiled and off-heap matrices also use directly.
+ *
+ * <p>
+ * Operands are flat, row-major arrays described by an offset and a row
+ * stride (the <i>leading dimension</i>). The product is computed in blocks:
+ * a panel of the right operand and a block of the left operand are packed
+ * into contiguous buffers so that the innermost micro-kernel only reads
+ * sequential memory, and each micro-kernel keeps an {@code MR x NR} tile of
+ * the product in local variables.
+ *
+ * <p>
+ * The block sizes may be tuned with the system properties
+ * {@code matrix.gemm.mc}, {@code matrix.gemm.kc} and {@code matrix.gemm.nc},
+ * a profile written by the {@link Autotuner}, or at runtime with {@link
+ * setBlockSizes(int, int, int)}. Large products
+ * are split into bands of rows of the product, which run in parallel.
+ *
+ * <p>
+ * Square products may instead use the Strassen-Winograd algorithm, which
+ * replaces one of every eight block products by block additions. It
+ * recurses until the order falls to the cutoff given by the system property
+ * {@code matrix.strassen.cutoff}, the profile or {@link
+ * setStrassenCutoff(int)}, below which the blocked kernel is used.
+ *
+ * @author Thurman
+ */
+class MultiplicationUtils {
+
+    /**
+     * The rows of a micro-tile.
+     */
+    static final int MR = 4;
+
+    /**
+     * The columns of a micro-tile.
+     */
+    static final int NR = 4;
+
+    /**
+     * The number of multiply-adds below which packing costs more than it
+     * saves, and the simple kernel is used instead.
+     */
+    static final long SMALL_PRODUCT = 32 * 32 * 32;
+
+    /**
+     * The rows of a packed block of the left operand.
+     */
+    static volatile int blockM = Autotuner.getInt("matrix.gemm.mc", 64);
+
+    /**
+     * The shared dimension of a packed block.
+     */
+    static volatile int blockK = Autotuner.getInt("matrix.gemm.kc", 256);
+
+    /**
+     * The columns of a packed panel of the right operand.
+     */
+    static volatile int blockN = Autotuner.getInt("matrix.gemm.nc", 1024);
+
+    /**
+     * The number of multiply-adds below which a Strassen-Winograd
+     * sub-product is not worth forking.
+     */
+    static final long PARALLEL_PRODUCT = 128L * 128 * 128;
+
+    /**
+     * The order at or below which Strassen-Winograd recursion stops.
+     */
+    static volatile int strassenCutoff = Autotuner.getInt("matrix.strassen.cutoff", 256);
+
+    private MultiplicationUtils() {
+    }
+
+    /**
+     * Changes the order at or below which Strassen-Winograd recursion stops.
+     *
+     * @param cutoff the order below which the blocked kernel is used
+     * @throws java.lang.IllegalArgumentException if the cutoff is less than 
+     * one
+     */
+    static void setStrassenCutoff(int cutoff) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Cutoff must be positive");
+        }
+        strassenCutoff = cutoff;
+    }
+
+    /**
+     * Changes the block sizes used by the blocked kernel.
+     *
+     * @param mc the rows of a packed block of the left operand
+     * @param kc the shared dimension of a packed block
+     * @param nc the columns of a packed panel of the right operand
+     * @throws java.lang.IllegalArgumentException if any size is not positive
+     */
+    static void setBlockSizes(int mc, int kc, int nc) {
+        if (mc <= 0 || kc <= 0 || nc <= 0) {
+            throw new IllegalArgumentException("Block sizes must be positive");
+        }
+        blockM = mc;
+        blockK = kc;
+        blockN = nc;
+    }
+
+    /**
+     * Adds the product of two flat matrices to a third, that is
+     * {@code C += A * B}, where A is m x k, B is k x n and C is m x n.
+     *
+     * @param p the parallelism to run with
+     * @param m the rows of A and C
+     * @param n the columns of B and C
+     * @param k the columns of A and rows of B
+     * @param a the array storing A
+     * @param aOff the index of the first entry of A
+     * @param lda the row stride of A
+     * @param b the array storing B
+     * @param bOff the index of the first entry of B
+     * @param ldb the row stride of B
+     * @param c the array storing C
+     * @param cOff the index of the first entry of C
+     * @param ldc the row stride of C
+     */
+    static void gemm(Parallelism p, int m, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        gemm(p, 1.0, m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+    }
+
+    /**
+     * Adds a multiple of the product of two flat matrices to a third, that is
+     * {@code C += alpha * A * B}, where A is m x k, B is k x n and C is m x n.
+     * The multiple is applied while A is packed, so it costs no extra pass.
+     *
+     * @param p the parallelism to run with
+     * @param alpha the scalar multiplying the product
+     * @param m the rows of A and C
+     * @param n the columns of B and C
+     * @param k the columns of A and rows of B
+     * @param a the array storing A
+     * @param aOff the index of the first entry of A
+     * @param lda the row stride of A
+     * @param b the array storing B
+     * @param bOff the index of the first entry of B
+     * @param ldb the row stride of B
+     * @param c the array storing C
+     * @param cOff the index of the first entry of C
+     * @param ldc the row stride of C
+     */
+    static void gemm(Parallelism p, double alpha, int m, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        if (m == 0 || n == 0 || k == 0 || alpha == 0.0) {
+            return;
+        }
+        if ((long) m * n * k <= SMALL_PRODUCT) {
+            gemmSimple(alpha, 0, m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        if (!p.isParallel((long) m * n * k)) {
+            gemmBlocked(alpha, 0, m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        ParallelUtils.forRange(p, m, (long) n * k, blockM, (r0, r1) -> 
+                gemmBlocked(alpha, r0, r1, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc));
+    }
+
+    /**
+     * Adds alpha times the product of rows {@code [r0, r1)} of A and B to the
+     * same rows of C with an i-k-j loop, so that the inner loop walks rows of
+     * B and C.
+     */
+    static void gemmSimple(double alpha, int r0, int r1, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        for (int i = r0; i < r1; i++) {
+            int ci = cOff + i * ldc;
+            int ai = aOff + i * lda;
+            for (int p = 0; p < k; p++) {
+                KernelUtils.axpy(alpha * a[ai + p], b, bOff + p * ldb, c, ci, n);
+            }
+        }
+    }
+
+    /**
+     * Adds alpha times the product of rows {@code [r0, r1)} of A and B to the
+     * same rows of C with the packed, blocked kernel.
+     */
+    static void gemmBlocked(double alpha, int r0, int r1, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        int mc = blockM;
+        int kc = blockK;
+        int nc = blockN;
+        double[] packedA = Workspace.borrow(roundUp(Math.min(mc, r1 - r0), MR) * Math.min(kc, k));
+        double[] packedB = Workspace.borrow(Math.min(kc, k) * roundUp(Math.min(nc, n), NR));
+
+        for (int jc = 0; jc < n; jc += nc) {
+            int nb = Math.min(nc, n - jc);
+            for (int pc = 0; pc < k; pc += kc) {
+                int kb = Math.min(kc, k - pc);
+                packB(kb, nb, b, bOff + pc * ldb + jc, ldb, packedB);
+                for (int ic = r0; ic < r1; ic += mc) {
+                    int mb = Math.min(mc, r1 - ic);
+                    packA(alpha, mb, kb, a, aOff + ic * lda + pc, lda, packedA);
+                    macroKernel(mb, nb, kb, packedA, packedB,
+                            c, cOff + ic * ldc + jc, ldc);
+                }
+            }
+        }
+        Workspace.release(packedA);
+        Workspace.release(packedB);
+    }
+
+    /**
+     * Multiplies a packed block by a packed panel, one micro-tile at a time.
+     */
+    private static void macroKernel(int mb, int nb, int kb,
+            double[] packedA, double[] packedB,
+            double[] c, int cOff, int ldc) {
+        for (int jr = 0; jr < nb; jr += NR) {
+            int nr = Math.min(NR, nb - jr);
+            int bp = jr * kb;
+            for (int ir = 0; ir < mb; ir += MR) {
+                int mr = Math.min(MR, mb - ir);
+                microKernel(kb, packedA, ir * kb, packedB, bp,
+                        c, cOff + ir * ldc + jr, ldc, mr, nr);
+            }
+        }
+    }
+
+    /**
+     * Adds the product of an MR x kb micro-panel and a kb x NR micro-panel
+     * to a tile of C, of which only the leading mr x nr entries exist.
+     */
+    private static void microKernel(int kb,
+            double[] pa, int ap, double[] pb, int bp,
+            double[] c, int ci, int ldc, int mr, int nr) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int p = 0; p < kb; p++, ap += MR, bp += NR) {
+            double a0 = pa[ap], a1 = pa[ap + 1], a2 = pa[ap + 2], a3 = pa[ap + 3];
+            double b0 = pb[bp], b1 = pb[bp + 1], b2 = pb[bp + 2], b3 = pb[bp + 3];
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+        }
+        if (mr == MR && nr == NR) {
+            c[ci] += c00; c[ci + 1] += c01; c[ci + 2] += c02; c[ci + 3] += c03;
+            ci += ldc;
+            c[ci] += c10; c[ci + 1] += c11; c[ci + 2] += c12; c[ci + 3] += c13;
+            ci += ldc;
+            c[ci] += c20; c[ci + 1] += c21; c[ci + 2] += c22; c[ci + 3] += c23;
+            ci += ldc;
+            c[ci] += c30; c[ci + 1] += c31; c[ci + 2] += c32; c[ci + 3] += c33;
+            return;
+        }
+        addPartialRow(c, ci, nr, c00, c01, c02, c03);
+        if (mr > 1) {
+            addPartialRow(c, ci += ldc, nr, c10, c11, c12, c13);
+        }
+        if (mr > 2) {
+            addPartialRow(c, ci += ldc, nr, c20, c21, c22, c23);
+        }
+        if (mr > 3) {
+            addPartialRow(c, ci + ldc, nr, c30, c31, c32, c33);
+        }
+    }
+
+    /**
+     * Adds the leading nr of four values to a row of an edge tile of C.
+     */
+    private static void addPartialRow(double[] c, int ci, int nr,
+            double x0, double x1, double x2, double x3) {
+        c[ci] += x0;
+        if (nr > 1) {
+            c[ci + 1] += x1;
+        }
+        if (nr > 2) {
+            c[ci + 2] += x2;
+        }
+        if (nr > 3) {
+            c[ci + 3] += x3;
+        }
+    }
+
+    /**
+     * Packs alpha times an mb x kb block of A into micro-panels of MR rows,
+     * each stored column by column, padding missing rows with zeros.
+     */
+    private static void packA(double alpha, int mb, int kb, double[] a, int aOff, int lda,
+            double[] packed) {
+        int q = 0;
+        for (int ir = 0; ir < mb; ir += MR) {
+            int mr = Math.min(MR, mb - ir);
+            int row = aOff + ir * lda;
+            for (int p = 0; p < kb; p++) {
+                for (int i = 0; i < mr; i++) {
+                    packed[q++] = alpha * a[row + i * lda + p];
+                }
+                for (int i = mr; i < MR; i++) {
+                    packed[q++] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs a kb x nb panel of B into micro-panels of NR columns, each stored
+     * row by row, padding missing columns with zeros.
+     */
+    private static void packB(int kb, int nb, double[] b, int bOff, int ldb,
+            double[] packed) {
+        int q = 0;
+        for (int jr = 0; jr < nb; jr += NR) {
+            int nr = Math.min(NR, nb - jr);
+            for (int p = 0; p < kb; p++) {
+                int row = bOff + p * ldb + jr;
+                for (int j = 0; j < nr; j++) {
+                    packed[q++] = b[row + j];
+                }
+                for (int j = nr; j < NR; j++) {
+                    packed[q++] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the product of two flat n x n matrices in a third, that is
+     * {@code C = A * B}, using the Strassen-Winograd algorithm.
+     *
+     * <p>
+     * Odd orders are peeled: the product of the leading even-order blocks
+     * is computed recursively, and the last row and column are completed
+     * with the blocked kernel.
+     *
+     * @param p the parallelism to run the seven sub-products with
+     * @param n the order of the matrices
+     * @param a the array storing A
+     * @param aOff the index of the first entry of A
+     * @param lda the row stride of A
+     * @param b the array storing B
+     * @param bOff the index of the first entry of B
+     * @param ldb the row stride of B
+     * @param c the array storing C
+     * @param cOff the index of the first entry of C
+     * @param ldc the row stride of C
+     */
+    static void strassen(Parallelism p, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        int cutoff = strassenCutoff;
+        if (n <= cutoff) {
+            clear(n, n, c, cOff, ldc);
+            gemm(p, n, n, n, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        StrassenTask task = new StrassenTask(p.isParallel((long) n * n * n), cutoff,
+                n, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        if (task.parallel) {
+            p.pool.invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    /**
+     * Computes one Strassen-Winograd product, forking its seven sub-products
+     * if it is allowed to run in parallel.
+     */
+    private static class StrassenTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        final boolean parallel;
+        final int cutoff;
+        final int n;
+        final double[] a;
+        final int aOff;
+        final int lda;
+        final double[] b;
+        final int bOff;
+        final int ldb;
+        final double[] c;
+        final int cOff;
+        final int ldc;
+
+        StrassenTask(boolean parallel, int cutoff, int n,
+                double[] a, int aOff, int lda,
+                double[] b, int bOff, int ldb,
+                double[] c, int cOff, int ldc) {
+            this.parallel = parallel;
+            this.cutoff = cutoff;
+            this.n = n;
+            this.a = a;
+            this.aOff = aOff;
+            this.lda = lda;
+            this.b = b;
+            this.bOff = bOff;
+            this.ldb = ldb;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+        }
+
+        @Override
+        protected void compute() {
+            if (n <= cutoff) {
+                clear(n, n, c, cOff, ldc);
+                gemm(Parallelism.SERIAL, n, n, n, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+                return;
+            }
+            if ((n & 1) == 1) {
+                peel();
+                return;
+            }
+            int h = n / 2;
+            int hh = h * h;
+            int a11 = aOff, a12 = aOff + h, a21 = aOff + h * lda, a22 = a21 + h;
+            int b11 = bOff, b12 = bOff + h, b21 = bOff + h * ldb, b22 = b21 + h;
+            int c11 = cOff, c12 = cOff + h, c21 = cOff + h * ldc, c22 = c21 + h;
+
+            double[] s1 = Workspace.borrow(hh), s2 = Workspace.borrow(hh);
+            double[] s3 = Workspace.borrow(hh), s4 = Workspace.borrow(hh);
+            double[] t1 = Workspace.borrow(hh), t2 = Workspace.borrow(hh);
+            double[] t3 = Workspace.borrow(hh), t4 = Workspace.borrow(hh);
+            add(h, a, a21, lda, a, a22, lda, s1, 0, h);
+            subtract(h, s1, 0, h, a, a11, lda, s2, 0, h);
+            subtract(h, a, a11, lda, a, a21, lda, s3, 0, h);
+            subtract(h, a, a12, lda, s2, 0, h, s4, 0, h);
+            subtract(h, b, b12, ldb, b, b11, ldb, t1, 0, h);
+            subtract(h, b, b22, ldb, t1, 0, h, t2, 0, h);
+            subtract(h, b, b22, ldb, b, b12, ldb, t3, 0, h);
+            subtract(h, t2, 0, h, b, b21, ldb, t4, 0, h);
+
+            double[] p1 = Workspace.borrow(hh), p2 = Workspace.borrow(hh), p3 = Workspace.borrow(hh);
+            double[] p4 = Workspace.borrow(hh), p5 = Workspace.borrow(hh), p6 = Workspace.borrow(hh);
+            double[] p7 = Workspace.borrow(hh);
+            StrassenTask[] products = {
+                sub(h, a, a11, lda, b, b11, ldb, p1),
+                sub(h, a, a12, lda, b, b21, ldb, p2),
+                sub(h, s4, 0, h, b, b22, ldb, p3),
+                sub(h, a, a22, lda, t4, 0, h, p4),
+                sub(h, s1, 0, h, t1, 0, h, p5),
+                sub(h, s2, 0, h, t2, 0, h, p6),
+                sub(h, s3, 0, h, t3, 0, h, p7)
+            };
+            if (parallel) {
+                invokeAll(products);
+            } else {
+                for (StrassenTask product : products) {
+                    product.compute();
+                }
+            }
+
+            // U2 = P1 + P6, U3 = U2 + P7, U4 = U2 + P5
+            add(h, p1, 0, h, p2, 0, h, c, c11, ldc);
+            add(h, p1, 0, h, p6, 0, h, p6, 0, h);
+            add(h, p6, 0, h, p7, 0, h, p7, 0, h);
+            add(h, p6, 0, h, p5, 0, h, p6, 0, h);
+            add(h, p6, 0, h, p3, 0, h, c, c12, ldc);
+            subtract(h, p7, 0, h, p4, 0, h, c, c21, ldc);
+            add(h, p7, 0, h, p5, 0, h, c, c22, ldc);
+            for (double[] x : new double[][] {s1, s2, s3, s4, t1, t2, t3, t4,
+                    p1, p2, p3, p4, p5, p6, p7}) {
+                Workspace.release(x);
+            }
+        }
+
+        private StrassenTask sub(int h, double[] x, int xOff, int ldx,
+                double[] y, int yOff, int ldy, double[] z) {
+            return new StrassenTask(parallel && (long) h * h * h >= PARALLEL_PRODUCT,
+                    cutoff, h, x, xOff, ldx, y, yOff, ldy, z, 0, h);
+        }
+
+        /**
+         * Computes an odd-order product from the product of its leading
+         * blocks of order n - 1 and thin products for the last row and
+         * column.
+         */
+        private void peel() {
+            int m = n - 1;
+            new StrassenTask(parallel, cutoff, m, a, aOff, lda, b, bOff, ldb,
+                    c, cOff, ldc).compute();
+            Parallelism serial = Parallelism.SERIAL;
+            gemm(serial, m, m, 1, a, aOff + m, lda, b, bOff + m * ldb, ldb,
+                    c, cOff, ldc);
+            clear(n, 1, c, cOff + m, ldc);
+            gemm(serial, n, 1, n, a, aOff, lda, b, bOff + m, ldb,
+                    c, cOff + m, ldc);
+            clear(1, m, c, cOff + m * ldc, ldc);
+            gemm(serial, 1, m, n, a, aOff + m * lda, lda, b, bOff, ldb,
+                    c, cOff + m * ldc, ldc);
+        }
+    }
+
+    private static void add(int h, double[] x, int xOff, int ldx,
+            double[] y, int yOff, int ldy, double[] z, int zOff, int ldz) {
+        for (int i = 0; i < h; i++) {
+            KernelUtils.add(x, xOff + i * ldx, y, yOff + i * ldy, z, zOff + i * ldz, h);
+        }
+    }
+
+    private static void subtract(int h, double[] x, int xOff, int ldx,
+            double[] y, int yOff, int ldy, double[] z, int zOff, int ldz) {
+        for (int i = 0; i < h; i++) {
+            KernelUtils.subtract(x, xOff + i * ldx, y, yOff + i * ldy, z, zOff + i * ldz, h);
+        }
+    }
+
+    private static void clear(int m, int n, double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            Arrays.fill(c, cOff + i * ldc, cOff + i * ldc + n, 0.0);
+        }
+    }
+
+    private static int roundUp(int x, int multiple) {
+        return (x + multiple - 1) / multiple * multiple;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The scope of a group of {@link OffHeapMatrix} instances.
+ *
+ * <p>
+ * Matrices are allocated in an arena and remain usable until the arena is
+ * closed. Closing releases the arena's references to their memory and makes
+ * any further access to them fail, so that no matrix outlives the scope it
+ * was created for. Arenas are intended for use in try-with-resources
+ * statements.
+ *
+ * <p>
+ * Off-heap memory is limited by the {@code -XX:MaxDirectMemorySize} option
+ * of the virtual machine, not by the heap size.
+ *
+ * @author Thurman
+ */
+public final class OffHeapArena implements AutoCloseable {
+
+    private final List<OffHeapMatrix> matrices = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs an open arena.
+     */
+    public OffHeapArena() {
+    }
+
+    /**
+     * Allocates a zero matrix of the specified dimensions in this arena.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return a zero matrix whose lifetime is this arena
+     * @throws java.lang.IllegalStateException if this arena is closed
+     */
+    public OffHeapMatrix allocate(long rows, long cols) {
+        return register(new OffHeapMatrix(this, rows, cols));
+    }
+
+    /**
+     * Ties the lifetime of a matrix to this arena.
+     *
+     * @param M a matrix whose arena is this arena
+     * @return the matrix
+     */
+    OffHeapMatrix register(OffHeapMatrix M) {
+        synchronized (matrices) {
+            ensureOpen();
+            matrices.add(M);
+        }
+        return M;
+    }
+
+    /**
+     * Allocates a matrix in this arena holding a copy of a heap matrix.
+     *
+     * @param M the matrix to copy
+     * @return an off-heap copy of the matrix whose lifetime is this arena
+     * @throws java.lang.IllegalStateException if this arena is closed
+     */
+    public OffHeapMatrix copyOf(Matrix M) {
+        OffHeapMatrix copy = allocate(M.getRows(), M.getCols());
+        RowStore src = RowStore.of(M);
+        double[] row = new double[M.getCols()];
+        for (int r = 0; r < M.getRows(); r++) {
+            src.readRow(r, 0, row, 0, row.length);
+            copy.writeRow(r, 0, row, 0, row.length);
+        }
+        return copy;
+    }
+
+    /**
+     * Checks if this arena has been closed.
+     *
+     * @return {@code true} if this arena is closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Arena is closed");
+        }
+    }
+
+    /**
+     * Closes this arena, releasing the memory of every matrix allocated in
+     * it. Closing a closed arena has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (matrices) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (OffHeapMatrix M : matrices) {
+                M.release();
+            }
+            matrices.clear();
+        }
+    }
+}
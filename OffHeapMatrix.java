@@ -0,0 +1,301 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * A rectangular array of scalars stored outside the Java heap.
+ *
+ * <p>
+ * Entries are stored in row-major order in direct buffers, so they are not
+ * copied or scanned by the garbage collector. Dimensions and indices are
+ * {@code long}, and the number of entries is not limited by the maximum
+ * length of a Java array. The memory is divided into chunks of at most
+ * 2^27 entries, and a row may span two chunks.
+ *
+ * <p>
+ * Off-heap matrices are created by an {@link OffHeapArena} and can only be
+ * used until it is closed. Arithmetic works on off-heap and heap operands
+ * alike by moving square tiles through heap buffers; results are allocated
+ * in the arena of the off-heap operand.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting in public methods is one-based.
+ *
+ * @author Thurman
+ */
+public class OffHeapMatrix implements RowStore {
+
+    /**
+     * The base two logarithm of the number of entries in a chunk.
+     */
+    static final int CHUNK_SHIFT = 27;
+
+    /**
+     * The number of entries in a full chunk.
+     */
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private final OffHeapArena arena;
+    private final long rows;
+    private final long cols;
+    private volatile DoubleBuffer[] chunks;
+
+    OffHeapMatrix(OffHeapArena arena, long rows, long cols) {
+        this(arena, rows, cols, allocateChunks(rows, cols));
+    }
+
+    /**
+     * Constructs a matrix over existing chunks, each of which but the last
+     * holding {@link #CHUNK_SIZE} entries.
+     */
+    OffHeapMatrix(OffHeapArena arena, long rows, long cols, DoubleBuffer[] chunks) {
+        this.arena = arena;
+        this.rows = rows;
+        this.cols = cols;
+        this.chunks = chunks;
+    }
+
+    private static DoubleBuffer[] allocateChunks(long rows, long cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Dimensions must not be negative");
+        }
+        long size = Math.multiplyExact(rows, cols);
+        DoubleBuffer[] buffers = new DoubleBuffer[chunkCount(size)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(chunkLength(size, i) * Double.BYTES)
+                    .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        return buffers;
+    }
+
+    /**
+     * Returns the number of chunks holding a number of entries.
+     */
+    static int chunkCount(long size) {
+        return Math.toIntExact((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Returns the number of entries in a chunk.
+     */
+    static int chunkLength(long size, int chunk) {
+        return (int) Math.min(CHUNK_SIZE, size - ((long) chunk << CHUNK_SHIFT));
+    }
+
+    /**
+     * Returns the arena this matrix was allocated in.
+     *
+     * @return the arena of this matrix
+     */
+    public OffHeapArena getArena() {
+        return arena;
+    }
+
+    /**
+     * Returns the number of rows of this matrix.
+     *
+     * @return the number of rows of this matrix
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of this matrix.
+     *
+     * @return the number of columns of this matrix
+     */
+    public long getCols() {
+        return cols;
+    }
+
+    @Override
+    public long rowCount() {
+        return rows;
+    }
+
+    @Override
+    public long colCount() {
+        return cols;
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the matrix
+     */
+    public double getEntry(long row, long col) {
+        long i = position(row - 1, col - 1);
+        return buffers()[(int) (i >>> CHUNK_SHIFT)].get((int) (i & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * Sets the entry at the specified row and column to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     */
+    public void setEntry(long row, long col, double a) {
+        long i = position(row - 1, col - 1);
+        buffers()[(int) (i >>> CHUNK_SHIFT)].put((int) (i & (CHUNK_SIZE - 1)), a);
+    }
+
+    private long position(long r, long c) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols) {
+            throw new IndexOutOfBoundsException(String.format("(%s, %s)", r + 1, c + 1));
+        }
+        return r * cols + c;
+    }
+
+    private DoubleBuffer[] buffers() {
+        DoubleBuffer[] buffers = chunks;
+        if (buffers == null) {
+            throw new IllegalStateException("Arena is closed");
+        }
+        return buffers;
+    }
+
+    @Override
+    public void readRow(long row, long col, double[] dst, int off, int len) {
+        DoubleBuffer[] buffers = buffers();
+        long i = row * cols + col;
+        while (len > 0) {
+            DoubleBuffer chunk = buffers[(int) (i >>> CHUNK_SHIFT)].duplicate();
+            int pos = (int) (i & (CHUNK_SIZE - 1));
+            int n = Math.min(len, chunk.capacity() - pos);
+            chunk.position(pos);
+            chunk.get(dst, off, n);
+            i += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void writeRow(long row, long col, double[] src, int off, int len) {
+        DoubleBuffer[] buffers = buffers();
+        long i = row * cols + col;
+        while (len > 0) {
+            DoubleBuffer chunk = buffers[(int) (i >>> CHUNK_SHIFT)].duplicate();
+            int pos = (int) (i & (CHUNK_SIZE - 1));
+            int n = Math.min(len, chunk.capacity() - pos);
+            chunk.position(pos);
+            chunk.put(src, off, n);
+            i += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Drops the buffers of this matrix when its arena is closed.
+     */
+    void release() {
+        chunks = null;
+    }
+
+    /**
+     * Returns the product of this and another off-heap matrix.
+     *
+     * @param M a matrix with the same row count as this matrix's columns
+     * @return the product, allocated in the arena of this matrix
+     */
+    public OffHeapMatrix times(OffHeapMatrix M) {
+        return multiply(arena, this, M);
+    }
+
+    /**
+     * Returns the product of this and a heap matrix.
+     *
+     * @param M a matrix with the same row count as this matrix's columns
+     * @return the product, allocated in the arena of this matrix
+     */
+    public OffHeapMatrix times(Matrix M) {
+        return multiply(arena, this, RowStore.of(M));
+    }
+
+    /**
+     * Returns the product of a heap matrix and this.
+     *
+     * @param M a matrix with the same column count as this matrix's rows
+     * @return the product, allocated in the arena of this matrix
+     */
+    OffHeapMatrix leftTimes(Matrix M) {
+        return multiply(arena, RowStore.of(M), this);
+    }
+
+    private static OffHeapMatrix multiply(OffHeapArena arena, RowStore a, RowStore b) {
+        if (a.colCount() != b.rowCount()) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        OffHeapMatrix product = arena.allocate(a.rowCount(), b.colCount());
+        TileUtils.multiply(a, b, product, TileUtils.DEFAULT_TILE, Parallelism.getDefault());
+        return product;
+    }
+
+    /**
+     * Returns the sum of this and another off-heap matrix.
+     *
+     * @param M a matrix of the same dimensions
+     * @return the sum, allocated in the arena of this matrix
+     */
+    public OffHeapMatrix plus(OffHeapMatrix M) {
+        return add(M);
+    }
+
+    /**
+     * Returns the sum of this and a heap matrix.
+     *
+     * @param M a matrix of the same dimensions
+     * @return the sum, allocated in the arena of this matrix
+     */
+    public OffHeapMatrix plus(Matrix M) {
+        return add(RowStore.of(M));
+    }
+
+    private OffHeapMatrix add(RowStore b) {
+        OffHeapMatrix sum = arena.allocate(rows, cols);
+        TileUtils.add(this, b, sum, TileUtils.DEFAULT_TILE, Parallelism.getDefault());
+        return sum;
+    }
+
+    /**
+     * Returns the transposition of this matrix.
+     *
+     * @return the transposition, allocated in the arena of this matrix
+     */
+    public OffHeapMatrix transposition() {
+        OffHeapMatrix T = arena.allocate(cols, rows);
+        TileUtils.transpose(this, T, TileUtils.DEFAULT_TILE, Parallelism.getDefault());
+        return T;
+    }
+
+    /**
+     * Returns a heap copy of this matrix.
+     *
+     * @return a heap matrix equal to this matrix
+     * @throws java.lang.ArithmeticException if this matrix has more rows or
+     * columns than a heap matrix can hold
+     */
+    public Matrix toMatrix() {
+        Matrix M = new Matrix(Math.toIntExact(rows), Math.toIntExact(cols));
+        TileUtils.read(this, 0, 0, M.getRows(), M.getCols(), M.data);
+        return M;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s x %s off-heap matrix", rows, cols);
+    }
+}
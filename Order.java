@@ -41,7 +41,7 @@ public class Order implements Cloneable {
     public Order(double[][] arr) {       
         Objects.requireNonNull(arr);
         this.rows = arr.length;
-        this.cols = ArrayUtils.maxRow(arr);
+        this.cols = ArrayUtils.maxRowLen(arr);
     }
     
     /**
@@ -0,0 +1,84 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Provides methods for splitting loops into fork/join tasks, as required by
+ * other classes in the matrix package.
+ *
+ * @author Thurman
+ */
+class ParallelUtils {
+
+    /**
+     * The number of tasks created per thread, so that uneven tasks can be
+     * balanced by work stealing.
+     */
+    static final int TASKS_PER_THREAD = 4;
+
+    private ParallelUtils() {
+    }
+
+    /**
+     * A loop body over a half-open range of indices.
+     */
+    interface RangeTask {
+
+        void run(int from, int to);
+    }
+
+    /**
+     * Runs a task over the indices {@code [0, n)}, splitting the range across
+     * the pool of the parallelism if the total work is large enough.
+     *
+     * @param p the parallelism to run with
+     * @param n the number of indices
+     * @param workPerIndex the number of scalar operations per index
+     * @param grain a multiple which the size of each split range must be of
+     * @param task the loop body
+     */
+    static void forRange(Parallelism p, int n, long workPerIndex, int grain,
+            RangeTask task) {
+        if (n <= grain || !p.isParallel(n * workPerIndex)) {
+            task.run(0, n);
+            return;
+        }
+        int parts = p.getLevel() * TASKS_PER_THREAD;
+        int leaf = (n + parts - 1) / parts;
+        leaf = (leaf + grain - 1) / grain * grain;
+        p.pool.invoke(new RangeAction(task, 0, n, leaf));
+    }
+
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+        private final int leaf;
+
+        RangeAction(RangeTask task, int from, int to, int leaf) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                task.run(from, to);
+                return;
+            }
+            int mid = from + ((to - from) / leaf + 1) / 2 * leaf;
+            invokeAll(new RangeAction(task, from, mid, leaf),
+                    new RangeAction(task, mid, to, leaf));
+        }
+    }
+}
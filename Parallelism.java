@@ -0,0 +1,186 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Describes how matrix operations may be split across threads.
+ *
+ * <p>
+ * An operation whose amount of work (the number of scalar operations it
+ * performs) is below the threshold runs on the calling thread. Otherwise it
+ * is divided into row or tile tasks executed on the pool. The threshold of
+ * the default parallelism is given by the system property {@code
+ * matrix.parallel.threshold}, or a profile written by the {@link Autotuner}.
+ *
+ * <p>
+ * Methods of {@link Matrix} which do not take a parallelism use the default
+ * parallelism, which may be changed with {@link setDefault(Parallelism)}.
+ *
+ * <p>
+ * A parallelism may also name the {@link MatrixBackend} operations given it
+ * compute with, so that a backend can be chosen for a single call with
+ * {@link #withBackend(MatrixBackend)}. Otherwise the default backend is
+ * used.
+ *
+ * @author Thurman
+ */
+public final class Parallelism {
+
+    /**
+     * The default amount of work below which operations stay serial.
+     */
+    public static final long DEFAULT_THRESHOLD = 1L << 16;
+
+    /**
+     * A parallelism running every operation on the calling thread.
+     */
+    public static final Parallelism SERIAL = new Parallelism();
+
+    private static volatile Parallelism defaultParallelism = new Parallelism(
+            ForkJoinPool.commonPool());
+
+    /**
+     * The pool executing the tasks, or {@code null} if serial.
+     */
+    final ForkJoinPool pool;
+
+    /**
+     * The amount of work below which operations stay serial.
+     */
+    final long threshold;
+
+    /**
+     * The backend to compute with, or {@code null} for the default backend.
+     */
+    final MatrixBackend backend;
+
+    private Parallelism() {
+        this.pool = null;
+        this.threshold = Long.MAX_VALUE;
+        this.backend = null;
+    }
+
+    private Parallelism(ForkJoinPool pool, long threshold, MatrixBackend backend) {
+        this.pool = pool;
+        this.threshold = threshold;
+        this.backend = backend;
+    }
+
+    /**
+     * Constructs a parallelism executing on the specified pool with the
+     * threshold given by the system property {@code
+     * matrix.parallel.threshold}, or else by the tuned profile of this host,
+     * or else {@link DEFAULT_THRESHOLD}.
+     *
+     * @param pool the pool to execute tasks on
+     */
+    public Parallelism(ForkJoinPool pool) {
+        this(pool, Autotuner.getLong("matrix.parallel.threshold", DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * Constructs a parallelism executing on the specified pool.
+     *
+     * @param pool the pool to execute tasks on
+     * @param threshold the amount of work below which operations stay serial
+     * @throws java.lang.IllegalArgumentException if the threshold is negative
+     */
+    public Parallelism(ForkJoinPool pool, long threshold) {
+        Objects.requireNonNull(pool);
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.backend = null;
+    }
+
+    /**
+     * Returns a parallelism splitting operations as this one does, which
+     * computes with the specified backend.
+     *
+     * @param backend the backend to compute with
+     * @return a parallelism computing with the backend
+     */
+    public Parallelism withBackend(MatrixBackend backend) {
+        return new Parallelism(pool, threshold, Objects.requireNonNull(backend));
+    }
+
+    /**
+     * Returns the parallelism used by operations not given one.
+     *
+     * @return the default parallelism
+     */
+    public static Parallelism getDefault() {
+        return defaultParallelism;
+    }
+
+    /**
+     * Changes the parallelism used by operations not given one.
+     *
+     * @param parallelism the new default parallelism
+     */
+    public static void setDefault(Parallelism parallelism) {
+        defaultParallelism = Objects.requireNonNull(parallelism);
+    }
+
+    /**
+     * Returns the pool executing the tasks.
+     *
+     * @return the pool, or {@code null} if this is {@link SERIAL}
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the amount of work below which operations stay serial.
+     *
+     * @return the threshold
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the backend operations given this parallelism compute with.
+     *
+     * @return the backend of this parallelism, or the default backend if it
+     * names none
+     */
+    public MatrixBackend getBackend() {
+        return backend == null ? MatrixBackend.getDefault() : backend;
+    }
+
+    /**
+     * Returns the number of threads tasks may be spread across.
+     *
+     * @return the parallelism level of the pool, or one if serial
+     */
+    public int getLevel() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Checks if an operation of the specified amount of work should be split.
+     *
+     * @param work the number of scalar operations
+     * @return {@code true} if the operation should run on the pool
+     */
+    boolean isParallel(long work) {
+        return pool != null && work >= threshold && pool.getParallelism() > 1;
+    }
+
+    @Override
+    public String toString() {
+        String s = pool == null ? "serial"
+                : String.format("%s threads, threshold %s", getLevel(), threshold);
+        return backend == null ? s : s + ", " + backend + " backend";
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * The backend named {@code reference}, computing every operation serially
+ * with the textbook loops, in the order the definitions give. It is slow,
+ * but simple enough to be evidently correct, and so serves to check other
+ * backends against.
+ *
+ * @author Thurman
+ */
+final class ReferenceBackend extends MatrixBackend {
+
+    /**
+     * The instance of this backend.
+     */
+    static final ReferenceBackend INSTANCE = new ReferenceBackend();
+
+    private ReferenceBackend() {
+    }
+
+    @Override
+    public String getName() {
+        return "reference";
+    }
+
+    @Override
+    public void gemm(Parallelism p, double alpha, int m, int n, int k,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double beta, double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                double s = 0.0;
+                for (int q = 0; q < k; q++) {
+                    s += a[aOff + i * lda + q] * b[bOff + q * ldb + j];
+                }
+                int ij = cOff + i * ldc + j;
+                c[ij] = beta == 0.0 ? alpha * s : alpha * s + beta * c[ij];
+            }
+        }
+    }
+
+    @Override
+    public void gemv(Parallelism p, boolean transpose, double alpha, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff) {
+        int rows = transpose ? n : m;
+        int cols = transpose ? m : n;
+        for (int i = 0; i < rows; i++) {
+            double s = 0.0;
+            for (int j = 0; j < cols; j++) {
+                double aij = transpose ? a[aOff + j * lda + i] : a[aOff + i * lda + j];
+                s += aij * x[xOff + j];
+            }
+            y[yOff + i] = beta == 0.0 ? alpha * s : alpha * s + beta * y[yOff + i];
+        }
+    }
+
+    @Override
+    public void add(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c[cOff + i * ldc + j] = a[aOff + i * lda + j] + b[bOff + i * ldb + j];
+            }
+        }
+    }
+
+    @Override
+    public void subtract(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] b, int bOff, int ldb,
+            double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c[cOff + i * ldc + j] = a[aOff + i * lda + j] - b[bOff + i * ldb + j];
+            }
+        }
+    }
+
+    @Override
+    public void scale(Parallelism p, int m, int n, double alpha,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c[cOff + i * ldc + j] = alpha * a[aOff + i * lda + j];
+            }
+        }
+    }
+
+    @Override
+    public void axpby(double alpha, double[] x, int xOff, double beta,
+            double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) {
+            y[yOff + i] = alpha * x[xOff + i] + beta * y[yOff + i];
+        }
+    }
+
+    @Override
+    public double dot(double[] x, int xOff, double[] y, int yOff, int len) {
+        double s = 0.0;
+        for (int i = 0; i < len; i++) {
+            s += x[xOff + i] * y[yOff + i];
+        }
+        return s;
+    }
+
+    @Override
+    public double asum(double[] x, int xOff, int len) {
+        double s = 0.0;
+        for (int i = 0; i < len; i++) {
+            s += Math.abs(x[xOff + i]);
+        }
+        return s;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The sum of squares is kept scaled by the largest magnitude seen so far,
+     * as in the classic BLAS routine.
+     */
+    @Override
+    public double nrm2(double[] x, int xOff, int len) {
+        double scale = 0.0;
+        double ssq = 1.0;
+        for (int i = 0; i < len; i++) {
+            double a = Math.abs(x[xOff + i]);
+            if (Double.isNaN(a)) {
+                return a;
+            }
+            if (a == 0.0) {
+                continue;
+            }
+            if (scale < a) {
+                ssq = 1.0 + ssq * (scale / a) * (scale / a);
+                scale = a;
+            } else {
+                ssq += (a / scale) * (a / scale);
+            }
+        }
+        return Double.isInfinite(scale) ? scale : scale * Math.sqrt(ssq);
+    }
+
+    @Override
+    public int iamax(double[] x, int xOff, int len) {
+        int best = -1;
+        double max = -1.0;
+        for (int i = 0; i < len; i++) {
+            double a = Math.abs(x[xOff + i]);
+            if (a > max) {
+                max = a;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void transpose(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda,
+            double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c[cOff + j * ldc + i] = a[aOff + i * lda + j];
+            }
+        }
+    }
+
+    @Override
+    public int lu(Parallelism p, int n, double[] a, int[] piv) {
+        int sign = 1;
+        for (int i = 0; i < n; i++) {
+            piv[i] = i;
+        }
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+            for (int i = k + 1; i < n; i++) {
+                if (Math.abs(a[i * n + k]) > Math.abs(a[pivot * n + k])) {
+                    pivot = i;
+                }
+            }
+            if (pivot != k) {
+                for (int j = 0; j < n; j++) {
+                    double t = a[pivot * n + j];
+                    a[pivot * n + j] = a[k * n + j];
+                    a[k * n + j] = t;
+                }
+                int t = piv[pivot];
+                piv[pivot] = piv[k];
+                piv[k] = t;
+                sign = -sign;
+            }
+            if (a[k * n + k] == 0.0) {
+                continue;
+            }
+            for (int i = k + 1; i < n; i++) {
+                a[i * n + k] /= a[k * n + k];
+                for (int j = k + 1; j < n; j++) {
+                    a[i * n + j] -= a[i * n + k] * a[k * n + j];
+                }
+            }
+        }
+        return sign;
+    }
+
+    @Override
+    public boolean cholesky(Parallelism p, int n,
+            double[] a, int aOff, int lda, double[] l) {
+        for (int j = 0; j < n; j++) {
+            double d = a[aOff + j * lda + j];
+            for (int q = 0; q < j; q++) {
+                d -= l[j * n + q] * l[j * n + q];
+            }
+            if (!(d > 0.0)) {
+                return false;
+            }
+            l[j * n + j] = Math.sqrt(d);
+            for (int i = j + 1; i < n; i++) {
+                double s = a[aOff + i * lda + j];
+                for (int q = 0; q < j; q++) {
+                    s -= l[i * n + q] * l[j * n + q];
+                }
+                l[i * n + j] = s / l[j * n + j];
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A row-major store of matrix entries which is read and written in runs of
+ * consecutive entries of a row, as required by the tiled kernels of the
+ * matrix package.
+ *
+ * <p>
+ * Indices are zero-based and of type {@code long}, so that stores may hold
+ * more entries than a Java array.
+ *
+ * @author Thurman
+ */
+interface RowStore {
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    long rowCount();
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return the number of columns
+     */
+    long colCount();
+
+    /**
+     * Copies consecutive entries of a row into an array.
+     *
+     * @param row the zero-based row
+     * @param col the zero-based column of the first entry
+     * @param dst the array to copy into
+     * @param off the index in the array of the first entry
+     * @param len the number of entries
+     */
+    void readRow(long row, long col, double[] dst, int off, int len);
+
+    /**
+     * Copies an array into consecutive entries of a row.
+     *
+     * @param row the zero-based row
+     * @param col the zero-based column of the first entry
+     * @param src the array to copy from
+     * @param off the index in the array of the first entry
+     * @param len the number of entries
+     */
+    void writeRow(long row, long col, double[] src, int off, int len);
+
+    /**
+     * Returns a store reading and writing the entries of a matrix.
+     *
+     * @param M a matrix
+     * @return a store backed by the matrix
+     */
+    static RowStore of(Matrix M) {
+        return new RowStore() {
+            @Override
+            public long rowCount() {
+                return M.getRows();
+            }
+
+            @Override
+            public long colCount() {
+                return M.getCols();
+            }
+
+            @Override
+            public void readRow(long row, long col, double[] dst, int off, int len) {
+                System.arraycopy(M.data, M.index((int) row, (int) col), dst, off, len);
+            }
+
+            @Override
+            public void writeRow(long row, long col, double[] src, int off, int len) {
+                System.arraycopy(src, off, M.data, M.index((int) row, (int) col), len);
+            }
+        };
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A matrix storing only its nonzero entries, in compressed sparse row (CSR)
+ * form.
+ *
+ * <p>
+ * The column indices and values of the nonzero entries of each row are
+ * stored consecutively, row after row, and the row pointers give the start
+ * of each row in them. Storage is proportional to the number of nonzero
+ * entries rather than to the order of the matrix. Within a row, the column
+ * indices are strictly increasing.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting in public methods is one-based.
+ * Sparse matrices are immutable.
+ *
+ * @author Thurman
+ */
+public class SparseMatrix {
+
+    /**
+     * The order of the matrix.
+     */
+    final Order order;
+
+    /**
+     * The index in {@link colIdx} and {@link values} of the first entry of
+     * each row, followed by the number of nonzero entries.
+     */
+    final int[] rowPtr;
+
+    /**
+     * The zero-based column of each stored entry.
+     */
+    final int[] colIdx;
+
+    /**
+     * The value of each stored entry.
+     */
+    final double[] values;
+
+    /**
+     * Constructs a sparse matrix from the nonzero entries of a dense matrix.
+     *
+     * @param M a dense matrix
+     */
+    public SparseMatrix(Matrix M) {
+        Objects.requireNonNull(M);
+        int m = M.getRows();
+        int n = M.getCols();
+        int nnz = 0;
+        for (int r = 0; r < m; r++) {
+            for (int c = 0, i = M.index(r, 0); c < n; c++, i++) {
+                if (M.data[i] != 0.0) {
+                    nnz++;
+                }
+            }
+        }
+        this.order = new Order(m, n);
+        this.rowPtr = new int[m + 1];
+        this.colIdx = new int[nnz];
+        this.values = new double[nnz];
+        int k = 0;
+        for (int r = 0; r < m; r++) {
+            for (int c = 0, i = M.index(r, 0); c < n; c++, i++) {
+                if (M.data[i] != 0.0) {
+                    colIdx[k] = c;
+                    values[k++] = M.data[i];
+                }
+            }
+            rowPtr[r + 1] = k;
+        }
+    }
+
+    /**
+     * Returns a sparse matrix of the specified order built from a list of
+     * entries given in coordinate form. Entries given more than once are
+     * summed.
+     *
+     * @param order the order of the matrix
+     * @param rows the one-based row of each entry
+     * @param cols the one-based column of each entry
+     * @param entries the value of each entry
+     * @return the sparse matrix containing the entries
+     * @throws java.lang.IllegalArgumentException if the arrays differ in
+     * length or an entry lies outside the matrix
+     */
+    public static SparseMatrix fromCoordinates(Order order, int[] rows, int[] cols, 
+            double[] entries) {
+        Objects.requireNonNull(order);
+        if (rows.length != cols.length || rows.length != entries.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
+        }
+        int m = order.rows;
+        int[] ptr = new int[m + 1];
+        for (int k = 0; k < rows.length; k++) {
+            if (rows[k] < 1 || rows[k] > m || cols[k] < 1 || cols[k] > order.cols) {
+                throw new IllegalArgumentException(String.format(
+                        "Entry (%s, %s) outside matrix of order %s", rows[k], cols[k], order));
+            }
+            ptr[rows[k]]++;
+        }
+        for (int r = 0; r < m; r++) {
+            ptr[r + 1] += ptr[r];
+        }
+        int[] next = Arrays.copyOf(ptr, m);
+        int[] idx = new int[rows.length];
+        double[] val = new double[rows.length];
+        for (int k = 0; k < rows.length; k++) {
+            int q = next[rows[k] - 1]++;
+            idx[q] = cols[k] - 1;
+            val[q] = entries[k];
+        }
+
+        // sort each row by column and merge duplicates
+        int nnz = 0;
+        for (int r = 0; r < m; r++) {
+            int from = ptr[r];
+            int to = ptr[r + 1];
+            sortRow(idx, val, from, to);
+            ptr[r] = nnz;
+            for (int q = from; q < to; q++) {
+                if (nnz > ptr[r] && idx[nnz - 1] == idx[q]) {
+                    val[nnz - 1] += val[q];
+                } else {
+                    idx[nnz] = idx[q];
+                    val[nnz++] = val[q];
+                }
+            }
+        }
+        ptr[m] = nnz;
+        return new SparseMatrix(new Order(order), ptr, 
+                Arrays.copyOf(idx, nnz), Arrays.copyOf(val, nnz));
+    }
+
+    /**
+     * Constructs a sparse matrix from compressed rows, without copying them.
+     *
+     * <p>
+     * Note that this constructor is for internal use only.
+     */
+    SparseMatrix(Order order, int[] rowPtr, int[] colIdx, double[] values) {
+        this.order = order;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    private static void sortRow(int[] idx, double[] val, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            int c = idx[i];
+            double v = val[i];
+            int j = i - 1;
+            while (j >= from && idx[j] > c) {
+                idx[j + 1] = idx[j];
+                val[j + 1] = val[j];
+                j--;
+            }
+            idx[j + 1] = c;
+            val[j + 1] = v;
+        }
+    }
+
+    /**
+     * Returns the number of rows of this matrix.
+     *
+     * @return the number of rows of this matrix
+     */
+    public int getRows() {
+        return order.rows;
+    }
+
+    /**
+     * Returns the number of columns of this matrix.
+     *
+     * @return the number of columns of this matrix
+     */
+    public int getCols() {
+        return order.cols;
+    }
+
+    /**
+     * Returns the order representing the size of this matrix.
+     *
+     * @return the order of this matrix
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the number of stored (nonzero) entries of this matrix.
+     *
+     * @return the number of stored entries
+     */
+    public int nonZeros() {
+        return values.length;
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the entry, which is zero if it is not stored
+     */
+    public double getEntry(int row, int col) {
+        if (row < 1 || row > getRows() || col < 1 || col > getCols()) {
+            throw new IndexOutOfBoundsException(String.format("(%s, %s)", row, col));
+        }
+        int k = Arrays.binarySearch(colIdx, rowPtr[row - 1], rowPtr[row], col - 1);
+        return k < 0 ? 0.0 : values[k];
+    }
+
+    /**
+     * Returns the row pointers of the compressed rows.
+     *
+     * @return a copy of the index of the first stored entry of each row,
+     * followed by the number of stored entries
+     */
+    public int[] getRowPointers() {
+        return rowPtr.clone();
+    }
+
+    /**
+     * Returns the zero-based column of each stored entry.
+     *
+     * @return a copy of the column indices
+     */
+    public int[] getColumnIndices() {
+        return colIdx.clone();
+    }
+
+    /**
+     * Returns the value of each stored entry.
+     *
+     * @return a copy of the stored values
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * Returns a dense matrix equal to this matrix.
+     *
+     * @return a dense copy of this matrix
+     */
+    public Matrix toDense() {
+        Matrix M = new Matrix(getRows(), getCols());
+        for (int r = 0; r < getRows(); r++) {
+            for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                M.data[r * M.stride + colIdx[k]] = values[k];
+            }
+        }
+        return M;
+    }
+
+    /**
+     * Returns this matrix in compressed sparse column (CSC) form.
+     *
+     * @return the compressed columns of this matrix
+     */
+    public CompressedColumns toCSC() {
+        SparseMatrix T = transposition();
+        return new CompressedColumns(order, T.rowPtr, T.colIdx, T.values);
+    }
+
+    /**
+     * Returns the transposition of this matrix.
+     *
+     * <p>
+     * The entries are distributed to their columns by a counting sort, so
+     * this takes time proportional to the number of stored entries and
+     * columns.
+     *
+     * @return the transposition of this matrix
+     */
+    public SparseMatrix transposition() {
+        int n = getCols();
+        int[] ptr = new int[n + 1];
+        for (int c : colIdx) {
+            ptr[c + 1]++;
+        }
+        for (int c = 0; c < n; c++) {
+            ptr[c + 1] += ptr[c];
+        }
+        int[] next = Arrays.copyOf(ptr, n);
+        int[] idx = new int[values.length];
+        double[] val = new double[values.length];
+        for (int r = 0; r < getRows(); r++) {
+            for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                int q = next[colIdx[k]]++;
+                idx[q] = r;
+                val[q] = values[k];
+            }
+        }
+        return new SparseMatrix(order.inverse(), ptr, idx, val);
+    }
+
+    /**
+     * Returns the product of this matrix and a vector, regarded as a column.
+     *
+     * @param v a vector whose dimension equals the columns of this matrix
+     * @return the product of this matrix and the vector
+     */
+    public Vector times(Vector v) {
+        if (v.length() != getCols()) {
+            throw new IllegalArgumentException(
+                    "Dimension of argument not equal to the column count of the calling matrix");
+        }
+        double[] y = new double[getRows()];
+        double[] x = v.data;
+        int xOff = v.offset;
+        long work = Math.max(1, values.length / Math.max(1, getRows()));
+        ParallelUtils.forRange(Parallelism.getDefault(), getRows(), work, 1, (r0, r1) -> {
+            for (int r = r0; r < r1; r++) {
+                double sum = 0.0;
+                for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                    sum += values[k] * x[xOff + colIdx[k]];
+                }
+                y[r] = sum;
+            }
+        });
+        return new Vector(y, 0, y.length);
+    }
+
+    /**
+     * Returns the product of this matrix and a dense matrix.
+     *
+     * @param M a matrix with the same row count as this matrix's columns
+     * @return the dense product of this and another matrix
+     */
+    public Matrix times(Matrix M) {
+        if (getCols() != M.getRows()) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        int n = M.getCols();
+        Matrix product = new Matrix(getRows(), n);
+        long work = (long) n * Math.max(1, values.length / Math.max(1, getRows()));
+        ParallelUtils.forRange(Parallelism.getDefault(), getRows(), work, 1, (r0, r1) -> {
+            for (int r = r0; r < r1; r++) {
+                for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                    KernelUtils.axpy(values[k], M.data, M.index(colIdx[k], 0),
+                            product.data, r * n, n);
+                }
+            }
+        });
+        return product;
+    }
+
+    /**
+     * Returns the product of a dense matrix and this matrix.
+     *
+     * @param M a matrix with the same column count as this matrix's rows
+     * @return the dense product of the other matrix and this
+     */
+    Matrix leftTimes(Matrix M) {
+        if (M.getCols() != getRows()) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        int n = getCols();
+        Matrix product = new Matrix(M.getRows(), n);
+        ParallelUtils.forRange(Parallelism.getDefault(), M.getRows(), values.length, 1, (r0, r1) -> {
+            for (int r = r0; r < r1; r++) {
+                int mi = M.index(r, 0);
+                int pi = r * n;
+                for (int i = 0; i < getRows(); i++) {
+                    double a = M.data[mi + i];
+                    if (a == 0.0) {
+                        continue;
+                    }
+                    for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                        product.data[pi + colIdx[k]] += a * values[k];
+                    }
+                }
+            }
+        });
+        return product;
+    }
+
+    /**
+     * Returns the sum of this and another sparse matrix.
+     *
+     * @param S a sparse matrix of the same order
+     * @return the sum of this and the argument matrix
+     */
+    public SparseMatrix plus(SparseMatrix S) {
+        return merge(S, 1.0);
+    }
+
+    /**
+     * Returns the difference of this and another sparse matrix.
+     *
+     * @param S a sparse matrix of the same order
+     * @return the difference of this and the argument matrix
+     */
+    public SparseMatrix minus(SparseMatrix S) {
+        return merge(S, -1.0);
+    }
+
+    /**
+     * Returns the sum of this and a multiple of another sparse matrix,
+     * merging the sorted entries of each pair of rows and dropping those
+     * which cancel.
+     */
+    private SparseMatrix merge(SparseMatrix S, double k) {
+        if (!order.equals(S.order)) {
+            throw new IllegalArgumentException(Matrix.unequalOrderMsg()
+                    + String.format(", expected: %s, was: %s", order, S.order));
+        }
+        int m = getRows();
+        int[] ptr = new int[m + 1];
+        int[] idx = new int[values.length + S.values.length];
+        double[] val = new double[idx.length];
+        int q = 0;
+        for (int r = 0; r < m; r++) {
+            int i = rowPtr[r], iEnd = rowPtr[r + 1];
+            int j = S.rowPtr[r], jEnd = S.rowPtr[r + 1];
+            while (i < iEnd || j < jEnd) {
+                int ci = i < iEnd ? colIdx[i] : Integer.MAX_VALUE;
+                int cj = j < jEnd ? S.colIdx[j] : Integer.MAX_VALUE;
+                double v;
+                int c;
+                if (ci == cj) {
+                    c = ci;
+                    v = values[i++] + k * S.values[j++];
+                } else if (ci < cj) {
+                    c = ci;
+                    v = values[i++];
+                } else {
+                    c = cj;
+                    v = k * S.values[j++];
+                }
+                if (v != 0.0) {
+                    idx[q] = c;
+                    val[q++] = v;
+                }
+            }
+            ptr[r + 1] = q;
+        }
+        return new SparseMatrix(new Order(order), ptr, Arrays.copyOf(idx, q), Arrays.copyOf(val, q));
+    }
+
+    /**
+     * Returns the product of this matrix and a scalar.
+     *
+     * @param k a scalar
+     * @return the product of this and the scalar
+     */
+    public SparseMatrix times(double k) {
+        if (k == 0.0) {
+            return new SparseMatrix(new Order(order), new int[getRows() + 1], new int[0], new double[0]);
+        }
+        double[] val = new double[values.length];
+        KernelUtils.scale(k, values, 0, val, 0, val.length);
+        return new SparseMatrix(new Order(order), rowPtr, colIdx, val);
+    }
+
+    /**
+     * Checks if two sparse matrices are equal.
+     *
+     * <p>
+     * Two sparse matrices are equal if and only if they have the same order
+     * and the same stored entries.
+     *
+     * @param o an object to equate this to
+     * @return {@code true} if and only if this is equal to the argument
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SparseMatrix)) {
+            return false;
+        }
+        SparseMatrix S = (SparseMatrix) o;
+        return order.equals(S.order) && Arrays.equals(rowPtr, S.rowPtr)
+                && Arrays.equals(colIdx, S.colIdx) && Arrays.equals(values, S.values);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 23 * hash + Objects.hashCode(order);
+        hash = 23 * hash + Arrays.hashCode(colIdx);
+        hash = 23 * hash + Arrays.hashCode(values);
+        return hash;
+    }
+
+    /**
+     * Returns a string listing the order and the stored entries of this
+     * matrix, one per line.
+     *
+     * @return a string representation of this matrix
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(order).append(", ").append(nonZeros()).append(" nonzero\n");
+        for (int r = 0; r < getRows(); r++) {
+            for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+                sb.append('(').append(r + 1).append(", ").append(colIdx[k] + 1)
+                        .append(") ").append(values[k]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A sparse matrix in compressed sparse column (CSC) form, where the row
+     * indices and values of the nonzero entries of each column are stored
+     * consecutively.
+     */
+    public static final class CompressedColumns {
+
+        private final Order order;
+        private final int[] colPtr;
+        private final int[] rowIdx;
+        private final double[] values;
+
+        CompressedColumns(Order order, int[] colPtr, int[] rowIdx, double[] values) {
+            this.order = order;
+            this.colPtr = colPtr;
+            this.rowIdx = rowIdx;
+            this.values = values;
+        }
+
+        /**
+         * Returns the order of the matrix.
+         *
+         * @return the order of the matrix
+         */
+        public Order getOrder() {
+            return order;
+        }
+
+        /**
+         * Returns the column pointers of the compressed columns.
+         *
+         * @return a copy of the index of the first stored entry of each
+         * column, followed by the number of stored entries
+         */
+        public int[] getColumnPointers() {
+            return colPtr.clone();
+        }
+
+        /**
+         * Returns the zero-based row of each stored entry.
+         *
+         * @return a copy of the row indices
+         */
+        public int[] getRowIndices() {
+            return rowIdx.clone();
+        }
+
+        /**
+         * Returns the value of each stored entry.
+         *
+         * @return a copy of the stored values
+         */
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * Returns the matrix in compressed sparse row form.
+         *
+         * @return the sparse matrix these columns represent
+         */
+        public SparseMatrix toCSR() {
+            return new SparseMatrix(order.inverse(), colPtr, rowIdx, values).transposition();
+        }
+    }
+}
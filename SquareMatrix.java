@@ -54,6 +54,19 @@ public class SquareMatrix extends Matrix {
         super(M);
     }
     
+    /**
+     * Constructs a square matrix backed by a flat array, without copying it.
+     *
+     * <p>
+     * Note that this constructor is for internal use only.
+     *
+     * @param data the flat, row-major array storing the entries
+     * @param size the number of rows and columns
+     */
+    SquareMatrix(double[] data, int size) {
+        super(data, 0, size, new Order(size, size));
+    }
+    
     
     /**
      * Returns the adjugate of this matrix.
@@ -63,10 +76,112 @@ public class SquareMatrix extends Matrix {
      * determinant |M| of the original square invertible matrix, it will equal
      * M^-1, the inverse of M.
      *
-     * @return
+     * <p>
+     * It is computed from a single LU decomposition of this matrix, and is
+     * also defined when this matrix is singular.
+     *
+     * @return the adjugate of this matrix
      */
     public Matrix adjugate() {
-        return cofactorMatrix().transposition();
+        return lu().adjugate();
+    }
+    
+    /**
+     * Returns the product of this and another square matrix of the same
+     * order, computed with the Strassen-Winograd algorithm.
+     *
+     * <p>
+     * This performs fewer multiplications than {@link times(Matrix)} for
+     * large orders, at the cost of temporary storage and a somewhat larger
+     * rounding error.
+     *
+     * @param M a square matrix of the same order
+     * @return the product of this and another matrix
+     */
+    public SquareMatrix strassenTimes(Matrix M) {
+        return strassenTimes(M, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the product of this and another square matrix of the same
+     * order, computed with the Strassen-Winograd algorithm and the specified
+     * parallelism.
+     *
+     * @param M a square matrix of the same order
+     * @param p the parallelism to compute with
+     * @return the product of this and another matrix
+     */
+    public SquareMatrix strassenTimes(Matrix M, Parallelism p) {
+        if (!isOrderOf(M)) {
+            throw new IllegalArgumentException(unequalOrderMsg(M));
+        }
+        int n = getRows();
+        SquareMatrix product = new SquareMatrix(new double[n * n], n);
+        MultiplicationUtils.strassen(p, n, this.data, this.offset, this.stride,
+                M.data, M.offset, M.stride, product.data, 0, n);
+        return product;
+    }
+    
+    /**
+     * Returns a factorization of this matrix for solving linear systems.
+     *
+     * <p>
+     * A symmetric positive-definite matrix is factored by Cholesky
+     * decomposition, and any other by LU decomposition with partial 
+     * pivoting. The factorization can be kept to solve further systems
+     * with this matrix without factoring it again.
+     *
+     * @return a factorization of this matrix
+     */
+    public Factorization factorize() {
+        if (isSymmetric()) {
+            CholeskyDecomposition cholesky = new CholeskyDecomposition(this);
+            if (cholesky.isSPD()) {
+                return cholesky;
+            }
+        }
+        return lu();
+    }
+    
+    /**
+     * Returns the Cholesky decomposition of this matrix.
+     *
+     * @return the Cholesky decomposition of this matrix
+     */
+    public CholeskyDecomposition cholesky() {
+        return new CholeskyDecomposition(this);
+    }
+    
+    /**
+     * Returns the solution x of Ax = b, where A is this matrix.
+     *
+     * @param b the right-hand side
+     * @return the solution
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Vector solve(Vector b) {
+        return factorize().solve(b);
+    }
+    
+    /**
+     * Returns the solution X of AX = B, where A is this matrix.
+     *
+     * @param B a matrix whose columns are the right-hand sides
+     * @return the matrix whose columns are the solutions
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public Matrix solve(Matrix B) {
+        return factorize().solve(B);
+    }
+    
+    /**
+     * Returns the inverse of this matrix.
+     *
+     * @return the inverse of this matrix
+     * @throws java.lang.ArithmeticException if this matrix is singular
+     */
+    public SquareMatrix inverse() {
+        return factorize().inverse();
     }
 
 }
@@ -0,0 +1,165 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+
+/**
+ * Provides tiled kernels over {@link RowStore}s, as required by matrices
+ * whose entries do not live in a single Java array.
+ *
+ * <p>
+ * Each kernel copies square tiles of its operands into heap arrays, runs the
+ * flat-array kernels on them and writes the result tiles back, so the heap
+ * memory in use is a few tiles per task regardless of the operand sizes.
+ *
+ * @author Thurman
+ */
+class TileUtils {
+
+    /**
+     * The default order of a tile.
+     */
+    static final int DEFAULT_TILE = 512;
+
+    private TileUtils() {
+    }
+
+    /**
+     * Stores the product of two stores in a third, that is
+     * {@code C = A * B}.
+     *
+     * @param a the left operand
+     * @param b the right operand
+     * @param c the store to write the product to
+     * @param tile the order of a tile
+     * @param p the parallelism to process output tiles with
+     */
+    static void multiply(RowStore a, RowStore b, RowStore c, int tile, Parallelism p) {
+        long m = a.rowCount();
+        long k = a.colCount();
+        long n = b.colCount();
+        if (k != b.rowCount() || m != c.rowCount() || n != c.colCount()) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        long tilesDown = (m + tile - 1) / tile;
+        long tilesAcross = (n + tile - 1) / tile;
+        int tiles = Math.toIntExact(tilesDown * tilesAcross);
+        long work = (long) tile * tile * k;
+        ParallelUtils.forRange(p, tiles, work, 1, (t0, t1) -> {
+            double[] at = Workspace.borrow(tile * tile);
+            double[] bt = Workspace.borrow(tile * tile);
+            double[] ct = Workspace.borrow(tile * tile);
+            for (int t = t0; t < t1; t++) {
+                long i0 = t / tilesAcross * tile;
+                long j0 = t % tilesAcross * tile;
+                int ti = (int) Math.min(tile, m - i0);
+                int tj = (int) Math.min(tile, n - j0);
+                Arrays.fill(ct, 0, ti * tj, 0.0);
+                for (long p0 = 0; p0 < k; p0 += tile) {
+                    int tp = (int) Math.min(tile, k - p0);
+                    read(a, i0, p0, ti, tp, at);
+                    read(b, p0, j0, tp, tj, bt);
+                    MultiplicationUtils.gemm(Parallelism.SERIAL, ti, tj, tp,
+                            at, 0, tp, bt, 0, tj, ct, 0, tj);
+                }
+                write(c, i0, j0, ti, tj, ct);
+            }
+            Workspace.release(at);
+            Workspace.release(bt);
+            Workspace.release(ct);
+        });
+    }
+
+    /**
+     * Stores the sum of two stores of the same order in a third.
+     *
+     * @param a an addend
+     * @param b an addend
+     * @param c the store to write the sum to
+     * @param tile the length of a run of entries processed at once
+     * @param p the parallelism to process rows with
+     */
+    static void add(RowStore a, RowStore b, RowStore c, int tile, Parallelism p) {
+        long m = a.rowCount();
+        long n = a.colCount();
+        if (m != b.rowCount() || n != b.colCount() || m != c.rowCount() || n != c.colCount()) {
+            throw new IllegalArgumentException(Matrix.unequalOrderMsg());
+        }
+        ParallelUtils.forRange(p, Math.toIntExact(m), n, 1, (r0, r1) -> {
+            int len = (int) Math.min(n, (long) tile * tile);
+            double[] x = Workspace.borrow(len);
+            double[] y = Workspace.borrow(len);
+            for (long r = r0; r < r1; r++) {
+                for (long c0 = 0; c0 < n; c0 += len) {
+                    int w = (int) Math.min(len, n - c0);
+                    a.readRow(r, c0, x, 0, w);
+                    b.readRow(r, c0, y, 0, w);
+                    KernelUtils.add(x, 0, y, 0, x, 0, w);
+                    c.writeRow(r, c0, x, 0, w);
+                }
+            }
+            Workspace.release(x);
+            Workspace.release(y);
+        });
+    }
+
+    /**
+     * Stores the transposition of a store in another.
+     *
+     * @param a the store to transpose
+     * @param c the store to write the transposition to
+     * @param tile the order of a tile
+     * @param p the parallelism to process tiles with
+     */
+    static void transpose(RowStore a, RowStore c, int tile, Parallelism p) {
+        long m = a.rowCount();
+        long n = a.colCount();
+        if (m != c.colCount() || n != c.rowCount()) {
+            throw new IllegalArgumentException(Matrix.unequalOrderMsg());
+        }
+        long tilesAcross = (n + tile - 1) / tile;
+        int tiles = Math.toIntExact((m + tile - 1) / tile * tilesAcross);
+        ParallelUtils.forRange(p, tiles, (long) tile * tile, 1, (t0, t1) -> {
+            double[] at = Workspace.borrow(tile * tile);
+            double[] ct = Workspace.borrow(tile * tile);
+            for (int t = t0; t < t1; t++) {
+                long i0 = t / tilesAcross * tile;
+                long j0 = t % tilesAcross * tile;
+                int ti = (int) Math.min(tile, m - i0);
+                int tj = (int) Math.min(tile, n - j0);
+                read(a, i0, j0, ti, tj, at);
+                for (int i = 0; i < ti; i++) {
+                    for (int j = 0; j < tj; j++) {
+                        ct[j * ti + i] = at[i * tj + j];
+                    }
+                }
+                write(c, j0, i0, tj, ti, ct);
+            }
+            Workspace.release(at);
+            Workspace.release(ct);
+        });
+    }
+
+    /**
+     * Copies a rows x cols tile of a store into a flat array.
+     */
+    static void read(RowStore s, long row, long col, int rows, int cols, double[] dst) {
+        for (int i = 0; i < rows; i++) {
+            s.readRow(row + i, col, dst, i * cols, cols);
+        }
+    }
+
+    /**
+     * Copies a flat array into a rows x cols tile of a store.
+     */
+    static void write(RowStore s, long row, long col, int rows, int cols, double[] src) {
+        for (int i = 0; i < rows; i++) {
+            s.writeRow(row + i, col, src, i * cols, cols);
+        }
+    }
+}
@@ -0,0 +1,552 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A matrix kept on disk as a file of square tiles, for matrices too large to
+ * be held in memory.
+ *
+ * <p>
+ * The file begins with a 32 byte header holding a magic number, a format
+ * version, the rows and columns and the order of a tile. It is followed by
+ * the tiles in row-major order, each stored as tile x tile little-endian
+ * doubles in row-major order. Tiles on the bottom and right edges are padded
+ * with zeros, so every tile has the same size and position arithmetic.
+ *
+ * <p>
+ * Multiplication streams tile triples through the packed multiplication
+ * kernel. Each tile is mapped with {@link FileChannel#map} and copied into a
+ * heap buffer, and the next pair of operand tiles is read ahead on a
+ * separate thread while the current pair is multiplied. A task holds five
+ * tile buffers, and at most one task per thread of the parallelism runs at a
+ * time, so the heap in use is bounded by the tile order and the parallelism,
+ * not by the operands. Mapped regions are released by the garbage collector
+ * once they are no longer referenced.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting in public methods is one-based.
+ *
+ * @author Thurman
+ */
+public class TiledMatrixFile implements RowStore, AutoCloseable {
+
+    /**
+     * The magic number at the start of every tiled matrix file.
+     */
+    static final int MAGIC = 0x4D54494C;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The length of the header in bytes.
+     */
+    static final int HEADER = 32;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long rows;
+    private final long cols;
+    private final int tile;
+    private final long tilesAcross;
+
+    private TiledMatrixFile(Path path, FileChannel channel, long rows, long cols, int tile) {
+        this.path = path;
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.tile = tile;
+        this.tilesAcross = (cols + tile - 1) / tile;
+    }
+
+    /**
+     * Creates a tiled file holding a zero matrix, replacing any existing
+     * file.
+     *
+     * @param path the file to create
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param tile the order of a tile
+     * @return the tiled file, open for reading and writing
+     * @throws java.io.IOException if the file cannot be created
+     */
+    public static TiledMatrixFile create(Path path, long rows, long cols, int tile)
+            throws IOException {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Dimensions must not be negative");
+        }
+        if (tile <= 0 || (long) tile * tile > Integer.MAX_VALUE / Double.BYTES) {
+            throw new IllegalArgumentException("Illegal tile order: " + tile);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(rows).putLong(cols).putInt(tile);
+            header.clear();
+            writeFully(channel, header, 0);
+            TiledMatrixFile file = new TiledMatrixFile(path, channel, rows, cols, tile);
+            long end = file.tilePosition((rows + tile - 1) / tile, 0);
+            if (end > HEADER) {
+                writeFully(channel, ByteBuffer.allocate(1), end - 1);
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a tiled file holding a copy of a matrix, replacing any existing
+     * file.
+     *
+     * @param path the file to create
+     * @param M the matrix to copy
+     * @param tile the order of a tile
+     * @return the tiled file, open for reading and writing
+     * @throws java.io.IOException if the file cannot be created or written
+     */
+    public static TiledMatrixFile create(Path path, Matrix M, int tile) throws IOException {
+        TiledMatrixFile file = create(path, M.getRows(), M.getCols(), tile);
+        try {
+            file.copy(RowStore.of(M));
+            return file;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing tiled file, for writing as well as reading if the
+     * file is writable.
+     *
+     * @param path the file to open
+     * @return the tiled file
+     * @throws java.io.IOException if the file cannot be read or is not a
+     * tiled matrix file
+     */
+    public static TiledMatrixFile open(Path path) throws IOException {
+        FileChannel channel = Files.isWritable(path)
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a tiled matrix file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported tiled matrix file version: " + version);
+            }
+            long rows = header.getLong();
+            long cols = header.getLong();
+            int tile = header.getInt();
+            if (rows < 0 || cols < 0 || tile <= 0) {
+                throw new IOException("Corrupt tiled matrix file header: " + path);
+            }
+            return new TiledMatrixFile(path, channel, rows, cols, tile);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the path of this file.
+     *
+     * @return the path of this file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of rows of the stored matrix.
+     *
+     * @return the number of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the stored matrix.
+     *
+     * @return the number of columns
+     */
+    public long getCols() {
+        return cols;
+    }
+
+    /**
+     * Returns the order of the tiles of this file.
+     *
+     * @return the order of a tile
+     */
+    public int getTileSize() {
+        return tile;
+    }
+
+    @Override
+    public long rowCount() {
+        return rows;
+    }
+
+    @Override
+    public long colCount() {
+        return cols;
+    }
+
+    /**
+     * Returns the entry at the specified row and column.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @return the targeted entry in the matrix
+     */
+    public double getEntry(long row, long col) {
+        checkIndex(row, col);
+        double[] x = new double[1];
+        readRow(row - 1, col - 1, x, 0, 1);
+        return x[0];
+    }
+
+    /**
+     * Sets the entry at the specified row and column to a specified value.
+     *
+     * @param row the row of the entry
+     * @param col the column of the entry
+     * @param a the value to set the entry to
+     */
+    public void setEntry(long row, long col, double a) {
+        checkIndex(row, col);
+        writeRow(row - 1, col - 1, new double[] {a}, 0, 1);
+    }
+
+    private void checkIndex(long row, long col) {
+        if (row < 1 || row > rows || col < 1 || col > cols) {
+            throw new IndexOutOfBoundsException(String.format("(%s, %s)", row, col));
+        }
+    }
+
+    /**
+     * Returns the position in the file of a tile.
+     */
+    private long tilePosition(long ti, long tj) {
+        return HEADER + (ti * tilesAcross + tj) * tile * tile * Double.BYTES;
+    }
+
+    @Override
+    public void readRow(long row, long col, double[] dst, int off, int len) {
+        try {
+            while (len > 0) {
+                int c = (int) (col % tile);
+                int n = Math.min(len, tile - c);
+                ByteBuffer buf = ByteBuffer.allocate(n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, buf, tilePosition(row / tile, col / tile)
+                        + ((row % tile) * tile + c) * Double.BYTES);
+                buf.flip();
+                buf.asDoubleBuffer().get(dst, off, n);
+                col += n;
+                off += n;
+                len -= n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeRow(long row, long col, double[] src, int off, int len) {
+        try {
+            while (len > 0) {
+                int c = (int) (col % tile);
+                int n = Math.min(len, tile - c);
+                ByteBuffer buf = ByteBuffer.allocate(n * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buf.asDoubleBuffer().put(src, off, n);
+                writeFully(channel, buf, tilePosition(row / tile, col / tile)
+                        + ((row % tile) * tile + c) * Double.BYTES);
+                col += n;
+                off += n;
+                len -= n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies a tile, including its zero padding, into a tile x tile array.
+     */
+    void readTile(long ti, long tj, double[] dst) throws IOException {
+        int size = tile * tile;
+        channel.map(FileChannel.MapMode.READ_ONLY, tilePosition(ti, tj), (long) size * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(dst, 0, size);
+    }
+
+    /**
+     * Copies a tile x tile array into a tile, including its zero padding.
+     */
+    void writeTile(long ti, long tj, double[] src) throws IOException {
+        int size = tile * tile;
+        DoubleBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, tilePosition(ti, tj),
+                (long) size * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        mapped.put(src, 0, size);
+    }
+
+    /**
+     * Overwrites this file with the entries of a store of the same order.
+     */
+    private void copy(RowStore s) throws IOException {
+        if (s.rowCount() != rows || s.colCount() != cols) {
+            throw new IllegalArgumentException(Matrix.unequalOrderMsg());
+        }
+        int size = tile * tile;
+        double[] t = Workspace.borrow(size);
+        for (long ti = 0; ti * tile < rows; ti++) {
+            for (long tj = 0; tj < tilesAcross; tj++) {
+                int h = (int) Math.min(tile, rows - ti * tile);
+                int w = (int) Math.min(tile, cols - tj * tile);
+                Arrays.fill(t, 0, size, 0.0);
+                for (int i = 0; i < h; i++) {
+                    s.readRow(ti * tile + i, tj * tile, t, i * tile, w);
+                }
+                writeTile(ti, tj, t);
+            }
+        }
+        Workspace.release(t);
+    }
+
+    /**
+     * Returns the product of this and another tiled matrix, written to a new
+     * tiled file with the same tile order.
+     *
+     * @param B a tiled matrix with the same row count as this matrix's
+     * columns and the same tile order
+     * @param path the file to write the product to
+     * @return the product, open for reading and writing
+     * @throws java.io.IOException if a file cannot be read or written
+     */
+    public TiledMatrixFile times(TiledMatrixFile B, Path path) throws IOException {
+        return times(B, path, Parallelism.getDefault());
+    }
+
+    /**
+     * Returns the product of this and another tiled matrix, written to a new
+     * tiled file with the same tile order.
+     *
+     * @param B a tiled matrix with the same row count as this matrix's
+     * columns and the same tile order
+     * @param path the file to write the product to
+     * @param p the parallelism to compute output tiles with
+     * @return the product, open for reading and writing
+     * @throws java.io.IOException if a file cannot be read or written
+     */
+    public TiledMatrixFile times(TiledMatrixFile B, Path path, Parallelism p) throws IOException {
+        checkProduct(B);
+        TiledMatrixFile C = create(path, rows, B.cols, tile);
+        try {
+            multiply(this, B, C, p);
+            return C;
+        } catch (IOException | RuntimeException e) {
+            C.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Overwrites a tiled matrix with the product of this and another.
+     *
+     * @param B a tiled matrix with the same row count as this matrix's
+     * columns and the same tile order
+     * @param C a tiled matrix of the order of the product and the same tile
+     * order, distinct from both operands
+     * @param p the parallelism to compute output tiles with
+     * @throws java.io.IOException if a file cannot be read or written
+     */
+    public void times(TiledMatrixFile B, TiledMatrixFile C, Parallelism p) throws IOException {
+        checkProduct(B);
+        if (C.rows != rows || C.cols != B.cols || C.tile != tile) {
+            throw new IllegalArgumentException("Order or tile order of product file is incorrect");
+        }
+        if (C == this || C == B) {
+            throw new IllegalArgumentException("Product file must differ from the operands");
+        }
+        multiply(this, B, C, p);
+    }
+
+    private void checkProduct(TiledMatrixFile B) {
+        if (cols != B.rows) {
+            throw new IllegalArgumentException(
+                    "Row count of argument not equal to the column count of the calling matrix");
+        }
+        if (tile != B.tile) {
+            throw new IllegalArgumentException("Tile orders of the operands are unequal");
+        }
+    }
+
+    /**
+     * Streams the tile triples of C = AB through the multiplication kernel,
+     * reading the next pair of operand tiles ahead of each multiplication.
+     */
+    private static void multiply(TiledMatrixFile A, TiledMatrixFile B, TiledMatrixFile C,
+            Parallelism p) throws IOException {
+        int tile = A.tile;
+        long tilesDown = (A.rows + tile - 1) / tile;
+        long tilesAcross = C.tilesAcross;
+        long tilesInner = A.tilesAcross;
+        int tiles = Math.toIntExact(tilesDown * tilesAcross);
+        int size = tile * tile;
+        ExecutorService reader = Executors.newFixedThreadPool(Math.max(1, p.getLevel()), r -> {
+            Thread t = new Thread(r, "matrix-tile-reader");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            ParallelUtils.forRange(p, tiles, (long) size * A.cols, 1, (t0, t1) -> {
+                double[][] at = {Workspace.borrow(size), Workspace.borrow(size)};
+                double[][] bt = {Workspace.borrow(size), Workspace.borrow(size)};
+                double[] ct = Workspace.borrow(size);
+                for (int t = t0; t < t1; t++) {
+                    long ti = t / tilesAcross;
+                    long tj = t % tilesAcross;
+                    int h = (int) Math.min(tile, A.rows - ti * tile);
+                    int w = (int) Math.min(tile, C.cols - tj * tile);
+                    Arrays.fill(ct, 0, size, 0.0);
+                    Future<?> next = readAhead(reader, A, B, ti, 0, tj, at[0], bt[0]);
+                    for (long tk = 0; tk < tilesInner; tk++) {
+                        await(next);
+                        int cur = (int) (tk & 1);
+                        if (tk + 1 < tilesInner) {
+                            next = readAhead(reader, A, B, ti, tk + 1, tj, at[cur ^ 1], bt[cur ^ 1]);
+                        }
+                        int d = (int) Math.min(tile, A.cols - tk * tile);
+                        MultiplicationUtils.gemm(Parallelism.SERIAL, h, w, d,
+                                at[cur], 0, tile, bt[cur], 0, tile, ct, 0, tile);
+                    }
+                    try {
+                        C.writeTile(ti, tj, ct);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                // Only reached once no read ahead is pending into the tiles
+                for (double[] x : new double[][] {at[0], at[1], bt[0], bt[1], ct}) {
+                    Workspace.release(x);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    private static Future<?> readAhead(ExecutorService reader, TiledMatrixFile A,
+            TiledMatrixFile B, long ti, long tk, long tj, double[] at, double[] bt) {
+        return reader.submit(() -> {
+            A.readTile(ti, tk, at);
+            B.readTile(tk, tj, bt);
+            return null;
+        });
+    }
+
+    private static void await(Future<?> f) {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted reading tiles"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns a heap copy of the stored matrix.
+     *
+     * @return a matrix equal to the stored matrix
+     * @throws java.lang.ArithmeticException if the stored matrix has more
+     * rows or columns than a heap matrix can hold
+     */
+    public Matrix toMatrix() {
+        Matrix M = new Matrix(Math.toIntExact(rows), Math.toIntExact(cols));
+        TileUtils.read(this, 0, 0, M.getRows(), M.getCols(), M.data);
+        return M;
+    }
+
+    /**
+     * Forces any changes to this file to be written to the storage device.
+     *
+     * @throws java.io.IOException if the changes cannot be written
+     */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Closes this file.
+     *
+     * @throws java.io.IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s x %s tiled matrix file %s", rows, cols, path);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of tiled matrix file");
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf, long position)
+            throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+}
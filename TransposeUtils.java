@@ -0,0 +1,293 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Provides out-of-place and in-place transposition of flat, row-major
+ * arrays, as required by other classes in the matrix package.
+ *
+ * <p>
+ * Out-of-place and square in-place transposition are cache-oblivious: the
+ * longer side of the region is halved until a block of at most {@link
+ * #leaf} x {@link #leaf} entries remains, so that at every level of the
+ * memory hierarchy the rows read and the rows written fit together, without
+ * the block size being tuned to any one cache. Halves are transposed in
+ * parallel while the work is large enough for the parallelism. The order of
+ * the blocks may be changed with the system property {@code
+ * matrix.transpose.leaf}, a tuning profile or {@link #setLeaf(int)}.
+ *
+ * <p>
+ * Rectangular arrays are transposed in place by following the cycles of the
+ * permutation taking each entry to its transposed position, marking visited
+ * entries in a bit set of one bit per entry.
+ *
+ * @author Thurman
+ */
+class TransposeUtils {
+
+    /**
+     * The order of the blocks at which recursion stops.
+     */
+    static volatile int leaf = Autotuner.getInt("matrix.transpose.leaf", 32);
+
+    private TransposeUtils() {
+    }
+
+    /**
+     * Changes the order of the blocks at which recursion stops.
+     *
+     * @param order the largest order of a block transposed directly
+     * @throws java.lang.IllegalArgumentException if the order is not positive
+     */
+    static void setLeaf(int order) {
+        if (order < 1) {
+            throw new IllegalArgumentException("Leaf order must be positive");
+        }
+        leaf = order;
+    }
+
+    /**
+     * Stores the transposition of an m x n region of an array in an n x m
+     * region of another, which must not overlap it.
+     *
+     * @param p the parallelism to compute with
+     * @param m the rows of the region
+     * @param n the columns of the region
+     * @param a the array to transpose
+     * @param aOff the index of the first entry of the region
+     * @param lda the row stride of a
+     * @param c the array to store the transposition in
+     * @param cOff the index of the first entry of the transposition
+     * @param ldc the row stride of c
+     */
+    static void transpose(Parallelism p, int m, int n,
+            double[] a, int aOff, int lda, double[] c, int cOff, int ldc) {
+        int b = leaf;
+        if (!p.isParallel((long) m * n)) {
+            transpose(b, m, n, a, aOff, lda, c, cOff, ldc);
+            return;
+        }
+        long grain = Math.max((long) b * b, (long) m * n / (p.getLevel() * ParallelUtils.TASKS_PER_THREAD));
+        p.pool.invoke(new TransposeTask(b, grain, m, n, a, aOff, lda, c, cOff, ldc));
+    }
+
+    private static void transpose(int b, int m, int n,
+            double[] a, int aOff, int lda, double[] c, int cOff, int ldc) {
+        if (m <= b && n <= b) {
+            for (int i = 0; i < m; i++) {
+                int ai = aOff + i * lda;
+                for (int j = 0, ci = cOff + i; j < n; j++, ci += ldc) {
+                    c[ci] = a[ai + j];
+                }
+            }
+        } else if (m >= n) {
+            int h = m / 2;
+            transpose(b, h, n, a, aOff, lda, c, cOff, ldc);
+            transpose(b, m - h, n, a, aOff + h * lda, lda, c, cOff + h, ldc);
+        } else {
+            int h = n / 2;
+            transpose(b, m, h, a, aOff, lda, c, cOff, ldc);
+            transpose(b, m, n - h, a, aOff + h, lda, c, cOff + h * ldc, ldc);
+        }
+    }
+
+    /**
+     * Transposes an out-of-place region, forking its halves until their work
+     * is at most the grain.
+     */
+    private static class TransposeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        final int leaf;
+        final long grain;
+        final int m;
+        final int n;
+        final double[] a;
+        final int aOff;
+        final int lda;
+        final double[] c;
+        final int cOff;
+        final int ldc;
+
+        TransposeTask(int leaf, long grain, int m, int n,
+                double[] a, int aOff, int lda, double[] c, int cOff, int ldc) {
+            this.leaf = leaf;
+            this.grain = grain;
+            this.m = m;
+            this.n = n;
+            this.a = a;
+            this.aOff = aOff;
+            this.lda = lda;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) m * n <= grain) {
+                transpose(leaf, m, n, a, aOff, lda, c, cOff, ldc);
+            } else if (m >= n) {
+                int h = m / 2;
+                invokeAll(new TransposeTask(leaf, grain, h, n, a, aOff, lda, c, cOff, ldc),
+                        new TransposeTask(leaf, grain, m - h, n, a, aOff + h * lda, lda,
+                                c, cOff + h, ldc));
+            } else {
+                int h = n / 2;
+                invokeAll(new TransposeTask(leaf, grain, m, h, a, aOff, lda, c, cOff, ldc),
+                        new TransposeTask(leaf, grain, m, n - h, a, aOff + h, lda,
+                                c, cOff + h * ldc, ldc));
+            }
+        }
+    }
+
+    /**
+     * Transposes an n x n region of an array in place.
+     *
+     * @param p the parallelism to compute with
+     * @param n the order of the region
+     * @param a the array
+     * @param off the index of the first entry of the region
+     * @param ld the row stride of a
+     */
+    static void transposeSquare(Parallelism p, int n, double[] a, int off, int ld) {
+        int b = leaf;
+        long grain = p.isParallel((long) n * n)
+                ? Math.max((long) b * b, (long) n * n / (p.getLevel() * ParallelUtils.TASKS_PER_THREAD))
+                : Long.MAX_VALUE;
+        SquareTask task = new SquareTask(b, grain, n, n, a, off, -1, ld);
+        if (grain == Long.MAX_VALUE) {
+            task.compute();
+        } else {
+            p.pool.invoke(task);
+        }
+    }
+
+    /**
+     * Transposes a square diagonal block in place, or swaps an off-diagonal
+     * block with its mirror image while transposing both, forking halves
+     * whose work exceeds the grain.
+     */
+    private static class SquareTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        final int leaf;
+        final long grain;
+        final int m;
+        final int n;
+        final double[] a;
+        final int off;
+        final int mirror;
+        final int ld;
+
+        /**
+         * Constructs a task on the m x n block at off, which is a diagonal
+         * block transposed in place if mirror is negative, and is otherwise
+         * exchanged with the n x m block at mirror.
+         */
+        SquareTask(int leaf, long grain, int m, int n, double[] a, int off, int mirror, int ld) {
+            this.leaf = leaf;
+            this.grain = grain;
+            this.m = m;
+            this.n = n;
+            this.a = a;
+            this.off = off;
+            this.mirror = mirror;
+            this.ld = ld;
+        }
+
+        @Override
+        protected void compute() {
+            boolean fork = (long) m * n > grain;
+            if (mirror < 0) {
+                if (n <= leaf) {
+                    for (int i = 1; i < n; i++) {
+                        for (int j = 0; j < i; j++) {
+                            int x = off + i * ld + j;
+                            int y = off + j * ld + i;
+                            double t = a[x];
+                            a[x] = a[y];
+                            a[y] = t;
+                        }
+                    }
+                    return;
+                }
+                int h = n / 2;
+                int off22 = off + h * ld + h;
+                run(fork, new SquareTask(leaf, grain, h, h, a, off, -1, ld),
+                        new SquareTask(leaf, grain, n - h, n - h, a, off22, -1, ld),
+                        new SquareTask(leaf, grain, n - h, h, a, off + h * ld, off + h, ld));
+            } else if (m <= leaf && n <= leaf) {
+                for (int i = 0; i < m; i++) {
+                    for (int j = 0; j < n; j++) {
+                        int x = off + i * ld + j;
+                        int y = mirror + j * ld + i;
+                        double t = a[x];
+                        a[x] = a[y];
+                        a[y] = t;
+                    }
+                }
+            } else if (m >= n) {
+                int h = m / 2;
+                run(fork, new SquareTask(leaf, grain, h, n, a, off, mirror, ld),
+                        new SquareTask(leaf, grain, m - h, n, a, off + h * ld, mirror + h, ld));
+            } else {
+                int h = n / 2;
+                run(fork, new SquareTask(leaf, grain, m, h, a, off, mirror, ld),
+                        new SquareTask(leaf, grain, m, n - h, a, off + h, mirror + h * ld, ld));
+            }
+        }
+
+        private static void run(boolean fork, SquareTask... tasks) {
+            if (fork) {
+                invokeAll(tasks);
+            } else {
+                for (SquareTask task : tasks) {
+                    task.compute();
+                }
+            }
+        }
+    }
+
+    /**
+     * Transposes an m x n array, stored contiguously from an index, in
+     * place, so that the same entries hold it as an n x m array.
+     *
+     * @param a the array
+     * @param off the index of the first entry
+     * @param m the rows of the array before transposition
+     * @param n the columns of the array before transposition
+     */
+    static void transposeInPlace(double[] a, int off, int m, int n) {
+        long size = (long) m * n;
+        if (m <= 1 || n <= 1) {
+            return;
+        }
+        // The entry at index i moves to i * m mod (size - 1); the first and
+        // last entries stay in place
+        long last = size - 1;
+        long[] visited = new long[(int) ((size + 63) >>> 6)];
+        for (long start = 1; start < last; start++) {
+            if ((visited[(int) (start >>> 6)] & 1L << start) != 0) {
+                continue;
+            }
+            double carry = a[off + (int) start];
+            long i = start;
+            do {
+                long next = i * m % last;
+                visited[(int) (i >>> 6)] |= 1L << i;
+                double t = a[off + (int) next];
+                a[off + (int) next] = carry;
+                carry = t;
+                i = next;
+            } while (i != start);
+        }
+    }
+}
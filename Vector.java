@@ -5,6 +5,8 @@
  */
 package matrix;
 
+import java.util.Arrays;
+
 /**
  * A list of a scalars which represent a path in a space (known
  * as a <i>vector space</i>).
@@ -14,8 +16,6 @@ package matrix;
  */
 public class Vector extends Matrix {
     
-    double[] vec;
-    
     /**
      * Constructs a vector based on the specified array.
      * @param arr an array of doubles representing a vector
@@ -49,29 +49,35 @@ public class Vector extends Matrix {
      * @param dimension the number of scalars representing this vector
      */
     public Vector(double[] arr, int dimension) {
-        super(ArrayUtils.extend(arr), new Order(1, dimension));
-        this.vec = matrix[0];
+        this(Arrays.copyOf(arr, dimension), 0, dimension);
     }    
     
     public Vector(Vector v) {
-        this(v.vec, v.length());
+        this(Arrays.copyOfRange(v.data, v.offset, v.offset + v.length()), 
+                0, v.length());
     }
     
     /**
-     * Returns the dimensions of this vector.
-     * @return the number of scalars representing this vector
+     * Constructs a vector backed by the specified region of a flat array,
+     * without copying it.
+     * 
+     * <p>
+     * Note that this constructor is for internal use only.
+     * 
+     * @param data the array storing the scalars
+     * @param offset the index of the first scalar
+     * @param dimension the number of scalars representing this vector
      */
-    public int length() {
-        return order.rows;
+    Vector(double[] data, int offset, int dimension) {
+        super(data, offset, dimension, new Order(1, dimension));
     }
     
     /**
-     * Changes this vector and and its dimensions.
-     * 
-     * @param v the vector for this to change to
+     * Returns the dimensions of this vector.
+     * @return the number of scalars representing this vector
      */
-    private void setVector(Vector v) {
-        this.vec = v.vec;
+    public int length() {
+        return order.cols;
     }
     
     /**
@@ -81,7 +87,8 @@ public class Vector extends Matrix {
      * @return a vector representing this in another dimension
      */
     public Vector in(int dimension) {
-        return new Vector(this.vec, dimension);
+        return new Vector(ArrayUtils.resize(data, offset, length(), 
+                1, length(), 1, dimension), 0, dimension);
     }
     
     /**
@@ -105,7 +112,7 @@ public class Vector extends Matrix {
     
     @Override
     public void add(Matrix M) {
-        setVector(this.plus(M));
+        plusInto(M, this);
     }
     
     /**
@@ -116,7 +123,9 @@ public class Vector extends Matrix {
      */
     @Override
     public Vector plus(Matrix M) {
-        return super.plus(M).getRow(1);
+        Vector sum = new Vector(length());
+        plusInto(M, sum);
+        return sum;
     }
     
     /**
@@ -126,7 +135,7 @@ public class Vector extends Matrix {
      */
     @Override
     public void subtract(Matrix M) {
-        setVector(this.minus(M));
+        minusInto(M, this);
     }
     
     /**
@@ -136,7 +145,9 @@ public class Vector extends Matrix {
      */
     @Override
     public Vector minus(Matrix M) {
-        return super.minus(M).getRow(1);
+        Vector difference = new Vector(length());
+        minusInto(M, difference);
+        return difference;
     }
     
     /**
@@ -149,14 +160,100 @@ public class Vector extends Matrix {
      * @return 
      */
     public double dot(Vector v) {
-        return MatrixMath.dot(this.vec, v.vec);
+        checkDimension(v);
+        return backend().dot(this.data, this.offset, v.data, v.offset, length());
     }
     
+    /**
+     * Adds a multiple of another vector to this vector, that is
+     * {@code this += alpha * x}, as the BLAS routine of the same name.
+     *
+     * @param alpha the scalar multiplying x
+     * @param x a vector of the same dimension
+     * @return this vector
+     */
+    public Vector axpy(double alpha, Vector x) {
+        checkDimension(x);
+        backend().axpby(alpha, x.data, x.offset, 1.0, data, offset, length());
+        return this;
+    }
+
+    /**
+     * Sets this vector to the sum of multiples of another vector and itself,
+     * that is {@code this = alpha * x + beta * this}, in one pass.
+     *
+     * @param alpha the scalar multiplying x
+     * @param x a vector of the same dimension
+     * @param beta the scalar multiplying this vector
+     * @return this vector
+     */
+    public Vector axpby(double alpha, Vector x, double beta) {
+        checkDimension(x);
+        backend().axpby(alpha, x.data, x.offset, beta, data, offset, length());
+        return this;
+    }
+
+    /**
+     * Multiplies this vector by a scalar in place, as the BLAS routine of
+     * the same name.
+     *
+     * @param alpha a scalar
+     * @return this vector
+     */
+    public Vector scal(double alpha) {
+        backend().scale(Parallelism.SERIAL, 1, length(), alpha, data, offset, 0,
+                data, offset, 0);
+        return this;
+    }
+
+    /**
+     * Returns the Euclidean norm of this vector, which is accurate over the
+     * whole range of doubles.
+     *
+     * @return the length of this vector
+     */
+    public double nrm2() {
+        return backend().nrm2(data, offset, length());
+    }
+
+    /**
+     * Returns the sum of the magnitudes of the scalars of this vector.
+     *
+     * @return the 1-norm of this vector
+     */
+    public double asum() {
+        return backend().asum(data, offset, length());
+    }
+
+    /**
+     * Returns the dimension in which this vector has its largest magnitude,
+     * the first such one if there are several.
+     *
+     * @return the one-based index of the largest magnitude, or zero if this
+     * vector has no dimensions
+     */
+    public int iamax() {
+        return backend().iamax(data, offset, length()) + 1;
+    }
+
+    /**
+     * Returns the backend of the default parallelism, which computes the
+     * operations of vectors.
+     */
+    private static MatrixBackend backend() {
+        return Parallelism.getDefault().getBackend();
+    }
+
+    private void checkDimension(Vector v) {
+        if (!dimensionEquals(v)) {
+            throw new IllegalArgumentException(unequalOrderMsg(v));
+        }
+    }
+
+    @Override
     public Vector times(double k) {
         Vector vec = new Vector(this);
-        for (int i = 0 ; i < this.length() ; i++) {
-            this.vec[i] *= k;
-        }
+        vec.scal(k);
         return vec;
     }
     
@@ -0,0 +1,201 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A vector of dimension 2 whose components are held in scalar fields.
+ *
+ * <p>
+ * As with {@link Matrix2}, operations are written out component by
+ * component, and those returning a new vector have an {@code Into}
+ * variant which allocates nothing.
+ *
+ * @author Thurman
+ */
+public final class Vector2 {
+
+    double x, y;
+
+    /**
+     * Constructs a zero vector.
+     */
+    public Vector2() {
+    }
+
+    /**
+     * Constructs a vector from its components.
+     *
+     * @param x the x component
+     * @param y the y component
+     */
+    public Vector2(double x, double y) {
+        set(x, y);
+    }
+
+    /**
+     * Returns a vector with the entries of a general vector.
+     *
+     * @param v a vector of dimension 2
+     * @return a new vector equal to the argument
+     * @throws java.lang.IllegalArgumentException if the vector is not of
+     * dimension 2
+     */
+    public static Vector2 of(Vector v) {
+        if (v.length() != 2) {
+            throw new IllegalArgumentException("Vector must be of dimension 2");
+        }
+        int i = v.offset;
+        return new Vector2(v.data[i], v.data[i + 1]);
+    }
+
+    /**
+     * Returns a general vector with the components of this vector.
+     *
+     * @return a new vector equal to this
+     */
+    public Vector toVector() {
+        return new Vector(new double[] {x, y}, 0, 2);
+    }
+
+    /**
+     * Sets the components of this vector.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @return this vector
+     */
+    public Vector2 set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Returns the x component of this vector.
+     *
+     * @return the x component
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y component of this vector.
+     *
+     * @return the y component
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the sum of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the sum
+     */
+    public Vector2 plus(Vector2 v) {
+        return plusInto(v, new Vector2());
+    }
+
+    /**
+     * Stores the sum of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the sum in
+     * @return the destination
+     */
+    public Vector2 plusInto(Vector2 v, Vector2 dest) {
+        return dest.set(x + v.x, y + v.y);
+    }
+
+    /**
+     * Returns the difference of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the difference
+     */
+    public Vector2 minus(Vector2 v) {
+        return minusInto(v, new Vector2());
+    }
+
+    /**
+     * Stores the difference of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the difference in
+     * @return the destination
+     */
+    public Vector2 minusInto(Vector2 v, Vector2 dest) {
+        return dest.set(x - v.x, y - v.y);
+    }
+
+    /**
+     * Returns the product of this vector and a scalar.
+     *
+     * @param k a scalar
+     * @return a new vector holding the product
+     */
+    public Vector2 times(double k) {
+        return timesInto(k, new Vector2());
+    }
+
+    /**
+     * Stores the product of this vector and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector2 timesInto(double k, Vector2 dest) {
+        return dest.set(x * k, y * k);
+    }
+
+    /**
+     * Returns the dot product of this and another vector.
+     *
+     * @param v a vector
+     * @return the dot product
+     */
+    public double dot(Vector2 v) {
+        return x * v.x + y * v.y;
+    }
+
+    /**
+     * Returns the Euclidean norm of this vector.
+     *
+     * @return the length of this vector
+     */
+    public double norm() {
+        return Math.sqrt(dot(this));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector2)) {
+            return false;
+        }
+        Vector2 v = (Vector2) o;
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(v.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(v.y);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + Double.doubleToLongBits(x);
+        hash = 31 * hash + Double.doubleToLongBits(y);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toVector().toString();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A vector of dimension 3 whose components are held in scalar fields.
+ *
+ * <p>
+ * As with {@link Matrix3}, operations are written out component by
+ * component, and those returning a new vector have an {@code Into}
+ * variant which allocates nothing.
+ *
+ * @author Thurman
+ */
+public final class Vector3 {
+
+    double x, y, z;
+
+    /**
+     * Constructs a zero vector.
+     */
+    public Vector3() {
+    }
+
+    /**
+     * Constructs a vector from its components.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @param z the z component
+     */
+    public Vector3(double x, double y, double z) {
+        set(x, y, z);
+    }
+
+    /**
+     * Returns a vector with the entries of a general vector.
+     *
+     * @param v a vector of dimension 3
+     * @return a new vector equal to the argument
+     * @throws java.lang.IllegalArgumentException if the vector is not of
+     * dimension 3
+     */
+    public static Vector3 of(Vector v) {
+        if (v.length() != 3) {
+            throw new IllegalArgumentException("Vector must be of dimension 3");
+        }
+        int i = v.offset;
+        return new Vector3(v.data[i], v.data[i + 1], v.data[i + 2]);
+    }
+
+    /**
+     * Returns a general vector with the components of this vector.
+     *
+     * @return a new vector equal to this
+     */
+    public Vector toVector() {
+        return new Vector(new double[] {x, y, z}, 0, 3);
+    }
+
+    /**
+     * Sets the components of this vector.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @param z the z component
+     * @return this vector
+     */
+    public Vector3 set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Returns the x component of this vector.
+     *
+     * @return the x component
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y component of this vector.
+     *
+     * @return the y component
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the z component of this vector.
+     *
+     * @return the z component
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Returns the sum of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the sum
+     */
+    public Vector3 plus(Vector3 v) {
+        return plusInto(v, new Vector3());
+    }
+
+    /**
+     * Stores the sum of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the sum in
+     * @return the destination
+     */
+    public Vector3 plusInto(Vector3 v, Vector3 dest) {
+        return dest.set(x + v.x, y + v.y, z + v.z);
+    }
+
+    /**
+     * Returns the difference of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the difference
+     */
+    public Vector3 minus(Vector3 v) {
+        return minusInto(v, new Vector3());
+    }
+
+    /**
+     * Stores the difference of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the difference in
+     * @return the destination
+     */
+    public Vector3 minusInto(Vector3 v, Vector3 dest) {
+        return dest.set(x - v.x, y - v.y, z - v.z);
+    }
+
+    /**
+     * Returns the product of this vector and a scalar.
+     *
+     * @param k a scalar
+     * @return a new vector holding the product
+     */
+    public Vector3 times(double k) {
+        return timesInto(k, new Vector3());
+    }
+
+    /**
+     * Stores the product of this vector and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector3 timesInto(double k, Vector3 dest) {
+        return dest.set(x * k, y * k, z * k);
+    }
+
+    /**
+     * Returns the dot product of this and another vector.
+     *
+     * @param v a vector
+     * @return the dot product
+     */
+    public double dot(Vector3 v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /**
+     * Returns the Euclidean norm of this vector.
+     *
+     * @return the length of this vector
+     */
+    public double norm() {
+        return Math.sqrt(dot(this));
+    }
+
+    /**
+     * Returns the cross product of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the cross product
+     */
+    public Vector3 cross(Vector3 v) {
+        return crossInto(v, new Vector3());
+    }
+
+    /**
+     * Stores the cross product of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the cross product in
+     * @return the destination
+     */
+    public Vector3 crossInto(Vector3 v, Vector3 dest) {
+        return dest.set(y * v.z - z * v.y, z * v.x - x * v.z, x * v.y - y * v.x);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector3)) {
+            return false;
+        }
+        Vector3 v = (Vector3) o;
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(v.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(v.y)
+                && Double.doubleToLongBits(z) == Double.doubleToLongBits(v.z);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + Double.doubleToLongBits(x);
+        hash = 31 * hash + Double.doubleToLongBits(y);
+        hash = 31 * hash + Double.doubleToLongBits(z);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toVector().toString();
+    }
+}
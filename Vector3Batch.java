@@ -0,0 +1,112 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A batch of vectors of dimension 3 stored as a structure of arrays: one
+ * array per component, so that the {@code i}th vector is {@code (x[i], y[i], z[i])}.
+ *
+ * <p>
+ * Transforming a batch with {@link Matrix3#timesInto(Vector3Batch, Vector3Batch)}
+ * streams through each array in order, with no object per vector.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class Vector3Batch {
+
+    final double[] x, y, z;
+
+    /**
+     * Constructs a batch of zero vectors.
+     *
+     * @param size the number of vectors
+     * @throws java.lang.IllegalArgumentException if the size is negative
+     */
+    public Vector3Batch(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+    }
+
+    /**
+     * Constructs a batch backed by arrays of components, without copying
+     * them.
+     *
+     * @param x the x components
+     * @param y the y components
+     * @param z the z components
+     * @throws java.lang.IllegalArgumentException if the arrays are not of
+     * the same length
+     */
+    public Vector3Batch(double[] x, double[] y, double[] z) {
+        if (y.length != x.length || z.length != x.length) {
+            throw new IllegalArgumentException("Component arrays not of equal length");
+        }
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Returns the number of vectors in this batch.
+     *
+     * @return the size of this batch
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Copies a vector of this batch into a destination.
+     *
+     * @param index the index of the vector
+     * @param dest the vector to copy into
+     * @return the destination
+     */
+    public Vector3 get(int index, Vector3 dest) {
+        int i = index - 1;
+        return dest.set(x[i], y[i], z[i]);
+    }
+
+    /**
+     * Sets a vector of this batch.
+     *
+     * @param index the index of the vector
+     * @param v the vector to set it to
+     */
+    public void set(int index, Vector3 v) {
+        int i = index - 1;
+        x[i] = v.x;
+        y[i] = v.y;
+        z[i] = v.z;
+    }
+
+    /**
+     * Returns the component arrays as a general matrix with one row per
+     * component and one column per vector.
+     *
+     * @return a new 3 x size matrix
+     */
+    public Matrix toMatrix() {
+        int n = size();
+        double[] data = new double[3 * n];
+        System.arraycopy(x, 0, data, 0, n);
+        System.arraycopy(y, 0, data, n, n);
+        System.arraycopy(z, 0, data, 2 * n, n);
+        return new Matrix(data, 0, n, new Order(3, n));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch of %s vectors of dimension 3", size());
+    }
+}
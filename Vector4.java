@@ -0,0 +1,229 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A vector of dimension 4 whose components are held in scalar fields.
+ *
+ * <p>
+ * As with {@link Matrix4}, operations are written out component by
+ * component, and those returning a new vector have an {@code Into}
+ * variant which allocates nothing.
+ *
+ * @author Thurman
+ */
+public final class Vector4 {
+
+    double x, y, z, w;
+
+    /**
+     * Constructs a zero vector.
+     */
+    public Vector4() {
+    }
+
+    /**
+     * Constructs a vector from its components.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @param z the z component
+     * @param w the w component
+     */
+    public Vector4(double x, double y, double z, double w) {
+        set(x, y, z, w);
+    }
+
+    /**
+     * Returns a vector with the entries of a general vector.
+     *
+     * @param v a vector of dimension 4
+     * @return a new vector equal to the argument
+     * @throws java.lang.IllegalArgumentException if the vector is not of
+     * dimension 4
+     */
+    public static Vector4 of(Vector v) {
+        if (v.length() != 4) {
+            throw new IllegalArgumentException("Vector must be of dimension 4");
+        }
+        int i = v.offset;
+        return new Vector4(v.data[i], v.data[i + 1], v.data[i + 2], v.data[i + 3]);
+    }
+
+    /**
+     * Returns a general vector with the components of this vector.
+     *
+     * @return a new vector equal to this
+     */
+    public Vector toVector() {
+        return new Vector(new double[] {x, y, z, w}, 0, 4);
+    }
+
+    /**
+     * Sets the components of this vector.
+     *
+     * @param x the x component
+     * @param y the y component
+     * @param z the z component
+     * @param w the w component
+     * @return this vector
+     */
+    public Vector4 set(double x, double y, double z, double w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    /**
+     * Returns the x component of this vector.
+     *
+     * @return the x component
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y component of this vector.
+     *
+     * @return the y component
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the z component of this vector.
+     *
+     * @return the z component
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Returns the w component of this vector.
+     *
+     * @return the w component
+     */
+    public double getW() {
+        return w;
+    }
+
+    /**
+     * Returns the sum of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the sum
+     */
+    public Vector4 plus(Vector4 v) {
+        return plusInto(v, new Vector4());
+    }
+
+    /**
+     * Stores the sum of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the sum in
+     * @return the destination
+     */
+    public Vector4 plusInto(Vector4 v, Vector4 dest) {
+        return dest.set(x + v.x, y + v.y, z + v.z, w + v.w);
+    }
+
+    /**
+     * Returns the difference of this and another vector.
+     *
+     * @param v a vector
+     * @return a new vector holding the difference
+     */
+    public Vector4 minus(Vector4 v) {
+        return minusInto(v, new Vector4());
+    }
+
+    /**
+     * Stores the difference of this and another vector in a destination.
+     *
+     * @param v a vector
+     * @param dest the vector to store the difference in
+     * @return the destination
+     */
+    public Vector4 minusInto(Vector4 v, Vector4 dest) {
+        return dest.set(x - v.x, y - v.y, z - v.z, w - v.w);
+    }
+
+    /**
+     * Returns the product of this vector and a scalar.
+     *
+     * @param k a scalar
+     * @return a new vector holding the product
+     */
+    public Vector4 times(double k) {
+        return timesInto(k, new Vector4());
+    }
+
+    /**
+     * Stores the product of this vector and a scalar in a destination.
+     *
+     * @param k a scalar
+     * @param dest the vector to store the product in
+     * @return the destination
+     */
+    public Vector4 timesInto(double k, Vector4 dest) {
+        return dest.set(x * k, y * k, z * k, w * k);
+    }
+
+    /**
+     * Returns the dot product of this and another vector.
+     *
+     * @param v a vector
+     * @return the dot product
+     */
+    public double dot(Vector4 v) {
+        return x * v.x + y * v.y + z * v.z + w * v.w;
+    }
+
+    /**
+     * Returns the Euclidean norm of this vector.
+     *
+     * @return the length of this vector
+     */
+    public double norm() {
+        return Math.sqrt(dot(this));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector4)) {
+            return false;
+        }
+        Vector4 v = (Vector4) o;
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(v.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(v.y)
+                && Double.doubleToLongBits(z) == Double.doubleToLongBits(v.z)
+                && Double.doubleToLongBits(w) == Double.doubleToLongBits(v.w);
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = 7;
+        hash = 31 * hash + Double.doubleToLongBits(x);
+        hash = 31 * hash + Double.doubleToLongBits(y);
+        hash = 31 * hash + Double.doubleToLongBits(z);
+        hash = 31 * hash + Double.doubleToLongBits(w);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toVector().toString();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+/**
+ * A batch of vectors of dimension 4 stored as a structure of arrays: one
+ * array per component, so that the {@code i}th vector is {@code (x[i], y[i], z[i], w[i])}.
+ *
+ * <p>
+ * Transforming a batch with {@link Matrix4#timesInto(Vector4Batch, Vector4Batch)}
+ * streams through each array in order, with no object per vector.
+ *
+ * <p>
+ * As with {@link Matrix}, index counting is one-based.
+ *
+ * @author Thurman
+ */
+public final class Vector4Batch {
+
+    final double[] x, y, z, w;
+
+    /**
+     * Constructs a batch of zero vectors.
+     *
+     * @param size the number of vectors
+     * @throws java.lang.IllegalArgumentException if the size is negative
+     */
+    public Vector4Batch(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        this.w = new double[size];
+    }
+
+    /**
+     * Constructs a batch backed by arrays of components, without copying
+     * them.
+     *
+     * @param x the x components
+     * @param y the y components
+     * @param z the z components
+     * @param w the w components
+     * @throws java.lang.IllegalArgumentException if the arrays are not of
+     * the same length
+     */
+    public Vector4Batch(double[] x, double[] y, double[] z, double[] w) {
+        if (y.length != x.length || z.length != x.length || w.length != x.length) {
+            throw new IllegalArgumentException("Component arrays not of equal length");
+        }
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    /**
+     * Returns the number of vectors in this batch.
+     *
+     * @return the size of this batch
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Copies a vector of this batch into a destination.
+     *
+     * @param index the index of the vector
+     * @param dest the vector to copy into
+     * @return the destination
+     */
+    public Vector4 get(int index, Vector4 dest) {
+        int i = index - 1;
+        return dest.set(x[i], y[i], z[i], w[i]);
+    }
+
+    /**
+     * Sets a vector of this batch.
+     *
+     * @param index the index of the vector
+     * @param v the vector to set it to
+     */
+    public void set(int index, Vector4 v) {
+        int i = index - 1;
+        x[i] = v.x;
+        y[i] = v.y;
+        z[i] = v.z;
+        w[i] = v.w;
+    }
+
+    /**
+     * Returns the component arrays as a general matrix with one row per
+     * component and one column per vector.
+     *
+     * @return a new 4 x size matrix
+     */
+    public Matrix toMatrix() {
+        int n = size();
+        double[] data = new double[4 * n];
+        System.arraycopy(x, 0, data, 0, n);
+        System.arraycopy(y, 0, data, n, n);
+        System.arraycopy(z, 0, data, 2 * n, n);
+        System.arraycopy(w, 0, data, 3 * n, n);
+        return new Matrix(data, 0, n, new Order(4, n));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch of %s vectors of dimension 4", size());
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package matrix;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A per-thread pool of scratch arrays borrowed by the kernels of the matrix
+ * package.
+ *
+ * <p>
+ * Blocked products, tiled operations and Strassen-Winograd recursion need
+ * temporary arrays for packed panels, tile copies and intermediate
+ * products. Rather than allocating them on each call, a kernel borrows an
+ * array from the pool of its thread and releases it when done, so that
+ * repeated operations reuse the same arrays and allocate nothing once the
+ * pools are warm.
+ *
+ * <p>
+ * Arrays are pooled in size classes of powers of two, so a borrowed array
+ * may be longer than requested. Each thread retains at most a few arrays of
+ * each class, and no more than the {@linkplain #getCapacity() capacity} in
+ * bytes in total; arrays released beyond either limit are left to the
+ * garbage collector. The capacity defaults to the value of the system
+ * property {@code matrix.workspace.capacity}, or 32 MiB.
+ *
+ * <p>
+ * The hits and misses of all threads are counted, so that the
+ * effectiveness of the pools can be checked with {@link #getHitRate()}.
+ *
+ * @author Thurman
+ */
+public final class Workspace {
+
+    /**
+     * The base two logarithm of the length of the smallest size class.
+     */
+    static final int MIN_CLASS = 6;
+
+    /**
+     * The base two logarithm of the length of the largest size class.
+     */
+    static final int MAX_CLASS = 27;
+
+    /**
+     * The number of arrays of each size class a thread retains.
+     */
+    static final int DEPTH = 8;
+
+    private static volatile long capacity = Long.getLong("matrix.workspace.capacity", 32L << 20);
+
+    private static final ThreadLocal<Workspace> POOLS = ThreadLocal.withInitial(Workspace::new);
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder DISCARDS = new LongAdder();
+
+    private final double[][][] free = new double[MAX_CLASS - MIN_CLASS + 1][DEPTH][];
+    private final int[] count = new int[MAX_CLASS - MIN_CLASS + 1];
+    private long retained;
+
+    private Workspace() {
+    }
+
+    /**
+     * Borrows an array of at least the specified length from the pool of the
+     * calling thread. Its entries are unspecified.
+     *
+     * @param length the minimum length of the array
+     * @return an array, which should be given back with {@link
+     * #release(double[])}
+     */
+    static double[] borrow(int length) {
+        int c = sizeClass(length);
+        if (c > MAX_CLASS) {
+            MISSES.increment();
+            return new double[length];
+        }
+        Workspace w = POOLS.get();
+        int i = c - MIN_CLASS;
+        if (w.count[i] == 0) {
+            MISSES.increment();
+            return new double[1 << c];
+        }
+        HITS.increment();
+        double[] buffer = w.free[i][--w.count[i]];
+        w.free[i][w.count[i]] = null;
+        w.retained -= (long) buffer.length * Double.BYTES;
+        return buffer;
+    }
+
+    /**
+     * Borrows an array of at least the specified length from the pool of the
+     * calling thread, with its first {@code length} entries zero.
+     *
+     * @param length the minimum length of the array
+     * @return an array, which should be given back with {@link
+     * #release(double[])}
+     */
+    static double[] borrowZeroed(int length) {
+        double[] buffer = borrow(length);
+        Arrays.fill(buffer, 0, length, 0.0);
+        return buffer;
+    }
+
+    /**
+     * Gives a borrowed array back to the pool of the calling thread. The
+     * array must not be used by the caller afterwards. Arrays which were not
+     * borrowed from a pool, or which the pool has no room for, are
+     * discarded.
+     *
+     * @param buffer the array to give back
+     */
+    static void release(double[] buffer) {
+        int c = sizeClass(buffer.length);
+        if (c > MAX_CLASS || buffer.length != 1 << c) {
+            return;
+        }
+        Workspace w = POOLS.get();
+        int i = c - MIN_CLASS;
+        long bytes = (long) buffer.length * Double.BYTES;
+        if (w.count[i] == DEPTH || w.retained + bytes > capacity) {
+            DISCARDS.increment();
+            return;
+        }
+        w.free[i][w.count[i]++] = buffer;
+        w.retained += bytes;
+    }
+
+    /**
+     * Returns the base two logarithm of the length of the smallest size
+     * class holding the specified length.
+     */
+    private static int sizeClass(int length) {
+        if (length <= 1 << MIN_CLASS) {
+            return MIN_CLASS;
+        }
+        return 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Returns the number of bytes each thread may retain in its pool.
+     *
+     * @return the capacity of a pool in bytes
+     */
+    public static long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes the number of bytes each thread may retain in its pool. Pools
+     * holding more than a reduced capacity shrink as their arrays are
+     * borrowed.
+     *
+     * @param bytes the capacity of a pool in bytes
+     * @throws java.lang.IllegalArgumentException if the capacity is negative
+     */
+    public static void setCapacity(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        capacity = bytes;
+    }
+
+    /**
+     * Returns the number of bytes retained by the pool of the calling
+     * thread.
+     *
+     * @return the bytes held by the calling thread's pool
+     */
+    public static long getRetainedBytes() {
+        return POOLS.get().retained;
+    }
+
+    /**
+     * Discards the arrays retained by the pool of the calling thread.
+     */
+    public static void clear() {
+        Workspace w = POOLS.get();
+        for (double[][] stack : w.free) {
+            Arrays.fill(stack, null);
+        }
+        Arrays.fill(w.count, 0);
+        w.retained = 0;
+    }
+
+    /**
+     * Returns the number of borrows, by any thread, served by a pooled
+     * array.
+     *
+     * @return the number of pool hits
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * Returns the number of borrows, by any thread, which allocated a new
+     * array.
+     *
+     * @return the number of pool misses
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Returns the number of released arrays, by any thread, which a full
+     * pool discarded.
+     *
+     * @return the number of discarded arrays
+     */
+    public static long getDiscards() {
+        return DISCARDS.sum();
+    }
+
+    /**
+     * Returns the fraction of borrows served by a pooled array, or zero if
+     * nothing has been borrowed.
+     *
+     * @return the hit rate of the pools
+     */
+    public static double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Resets the counts of hits, misses and discards to zero.
+     */
+    public static void resetStatistics() {
+        HITS.reset();
+        MISSES.reset();
+        DISCARDS.reset();
+    }
+}